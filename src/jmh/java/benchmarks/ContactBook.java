@@ -0,0 +1,93 @@
+package benchmarks;
+
+import interfaces.Contact;
+import interfaces.ContactManager;
+import interfaces.NewContact;
+import interfaces.NewMeeting;
+import org.openjdk.jmh.annotations.*;
+import utils.ManualClock;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contact manager filled with a book of the given size, shared by the benchmarks.
+ *
+ * A book holds the given number of contacts and meetings, half of the meetings past and half
+ * future, spread over two years around a fixed "now". Every meeting has one to three participants.
+ * A fresh book is built for every benchmark.
+ *
+ * JMH does not accept benchmarks in the default package, which cannot be imported, so the
+ * implementation is created by name and used through the ContactManager interface.
+ */
+@State(Scope.Benchmark)
+public abstract class ContactBook {
+    static final long NOW = 1893456000000L; //2030-01-01 UTC
+    static final long DAY = TimeUnit.DAYS.toMillis(1);
+    static final int DAYS = 365;
+
+    //contacts/meetings
+    @Param({"1000/10000", "10000/100000", "100000/1000000", "1000000/5000000"})
+    public String book;
+
+    ContactManager cm;
+    Path store;
+    int contactCount;
+    //contacts by ID
+    Contact[] contacts;
+    int[] pastMeetings;
+
+    @Setup(Level.Trial)
+    public void fill() throws Exception {
+        String[] sizes = book.split("/");
+        contactCount = Integer.parseInt(sizes[0]);
+        int meetingCount = Integer.parseInt(sizes[1]);
+
+        store = Files.createTempFile("contact-manager-benchmark", ".store");
+        Class<?> implementation = Class.forName("ContactManagerImpl");
+        cm = (ContactManager) implementation.getConstructor(Path.class).newInstance(store);
+        implementation.getMethod("setClock", Clock.class).invoke(cm, new ManualClock(NOW));
+        Random random = new Random(42);
+
+        List<NewContact> newContacts = new ArrayList<>(contactCount);
+        for (int i = 0; i < contactCount; i++) {
+            newContacts.add(new NewContact("name_" + i, "notes_" + i));
+        }
+        contacts = new Contact[contactCount + 1];
+        for (int id : cm.addNewContacts(newContacts)) {
+            contacts[id] = cm.getContacts(id).iterator().next();
+        }
+
+        pastMeetings = new int[meetingCount / 2];
+        List<NewMeeting> newMeetings = new ArrayList<>(meetingCount);
+        for (int i = 0; i < meetingCount; i++) {
+            Set<Contact> participants = new HashSet<>();
+            int participantCount = 1 + random.nextInt(3);
+            for (int j = 0; j < participantCount; j++) {
+                participants.add(contacts[1 + random.nextInt(contactCount)]);
+            }
+            long offset = 1 + (long) (random.nextDouble() * DAYS * DAY);
+            if (i % 2 == 0) {
+                newMeetings.add(NewMeeting.past(participants, calendar(NOW - offset), "notes_" + i));
+                pastMeetings[i / 2] = i + 1; //meeting IDs follow the order of the list
+            } else {
+                newMeetings.add(NewMeeting.future(participants, calendar(NOW + offset)));
+            }
+        }
+        cm.addMeetings(newMeetings);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteStore() throws Exception {
+        Files.deleteIfExists(store);
+    }
+
+    static Calendar calendar(long millis) {
+        Calendar date = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        date.setTimeInMillis(millis);
+        return date;
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import interfaces.Contact;
+import interfaces.Meeting;
+import interfaces.PastMeeting;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the contact manager operations on books of growing size, to catch
+ * operations whose cost grows with the book. Run with the jmh profile, see pom.xml;
+ * the default arguments add the GC profiler, which reports allocation per operation.
+ *
+ * Adding benchmarks keep growing the book, so their numbers include the cost of a slightly
+ * larger book, and addMeetingNotes makes the notes of past meetings longer.
+ *
+ * The largest book needs a few GB of heap, select sizes with -p book=1000/10000.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ContactManagerBenchmark extends ContactBook {
+    private Calendar[] days;
+    private Set<Contact> participants;
+
+    @Setup(Level.Trial)
+    public void prepareArguments() {
+        days = new Calendar[2 * DAYS];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = calendar(NOW - DAYS * DAY + i * DAY);
+        }
+        participants = cm.getContacts(1);
+    }
+
+    @Benchmark
+    public int addNewContact() {
+        return cm.addNewContact("added", "notes");
+    }
+
+    @Benchmark
+    public int addFutureMeeting() {
+        long offset = 1 + ThreadLocalRandom.current().nextLong(DAYS * DAY);
+        return cm.addFutureMeeting(participants, calendar(NOW + offset));
+    }
+
+    @Benchmark
+    public Set<Contact> getContactsByName() {
+        return cm.getContacts("name_" + ThreadLocalRandom.current().nextInt(contactCount));
+    }
+
+    @Benchmark
+    public Set<Contact> getContactsById() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return cm.getContacts(1 + random.nextInt(contactCount), 1 + random.nextInt(contactCount), 1 + random.nextInt(contactCount));
+    }
+
+    @Benchmark
+    public List<Meeting> getFutureMeetingList() {
+        return cm.getFutureMeetingList(contacts[1 + ThreadLocalRandom.current().nextInt(contactCount)]);
+    }
+
+    @Benchmark
+    public List<Meeting> getMeetingListOn() {
+        return cm.getMeetingListOn(days[ThreadLocalRandom.current().nextInt(days.length)]);
+    }
+
+    @Benchmark
+    public PastMeeting addMeetingNotes() {
+        return cm.addMeetingNotes(pastMeetings[ThreadLocalRandom.current().nextInt(pastMeetings.length)], "x");
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.xml.bind.JAXBContext;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of a full flush and of loading the flushed file, for books of growing size in both store formats.
+ *
+ * flushWithNewContext marshals the XML the way flush used to, building a new JAXB context every time,
+ * to compare with flush using the cached context. It does not depend on the format parameter and
+ * neither forces the file to disk nor replaces it atomically, which flush does on top.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FlushBenchmark extends ContactBook {
+
+    @Param({"XML", "BINARY"})
+    public String format;
+
+    Method load;
+    Path uncachedStore;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setFormat() throws Exception {
+        Class storeFormat = Class.forName("StoreFormat");
+        cm.getClass().getMethod("setStoreFormat", storeFormat).invoke(cm, Enum.valueOf(storeFormat, format));
+        load = cm.getClass().getMethod("load", Path.class);
+        uncachedStore = Files.createTempFile("contact-manager-benchmark", ".xml");
+        cm.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteUncachedStore() throws Exception {
+        Files.deleteIfExists(uncachedStore);
+    }
+
+    @Benchmark
+    public void flush() {
+        cm.flush();
+    }
+
+    @Benchmark
+    public void flushWithNewContext() throws Exception {
+        JAXBContext.newInstance(cm.getClass()).createMarshaller().marshal(cm, uncachedStore.toFile());
+    }
+
+    @Benchmark
+    public Object load() throws Exception {
+        return load.invoke(null, store);
+    }
+}
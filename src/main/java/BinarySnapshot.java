@@ -0,0 +1,303 @@
+import interfaces.Contact;
+import interfaces.FutureMeeting;
+import interfaces.Meeting;
+import interfaces.PastMeeting;
+import utils.IntMap;
+import utils.Varint;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Compact binary snapshot of a contact manager, an alternative to the XML written by flush.
+ *
+ * Layout of version 2:
+ * <pre>
+ * magic "CMSB", version
+ * strings:  count, then UTF-8 length and bytes of every distinct name and note
+ * contacts: count, then for each: ID, name ref, notes ref
+ * meetings: count, then for each: type, ID, date in epoch millis, number of participants,
+ *           participant IDs in ascending order as deltas, notes ref of past meetings
+ * index:    file offset of every string, then ID and file offset of every contact and
+ *           of every meeting sorted by ID
+ * footer:   number of strings, contacts and meetings, file offset of the index, magic
+ * </pre>
+ * Everything up to the index is a varint. A string ref is the index of the string in the
+ * table plus one, zero stands for null. Participants are stored as contact IDs only.
+ *
+ * The index and footer are fixed width ints and a long, so {@link MappedSnapshot} can look
+ * records up in the mapped file without reading it all. Version 1 had no index and is still read.
+ * As offsets are ints, everything before the index must fit in 2 GB.
+ */
+public class BinarySnapshot {
+    public static final int VERSION = 2;
+    static final byte[] MAGIC = {'C', 'M', 'S', 'B'};
+    static final int FOOTER_LENGTH = 3 * 4 + 8 + MAGIC.length;
+
+    static final int MEETING = 0;
+    static final int FUTURE_MEETING = 1;
+    static final int PAST_MEETING = 2;
+
+    /**
+     * Writes snapshot of the contacts and meetings.
+     *
+     * @param contacts all contacts
+     * @param meetings all meetings
+     * @param out stream to write to, not closed
+     * @throws IOException if writing fails or the snapshot does not fit in 2 GB
+     */
+    public static void write(Collection<Contact> contacts, List<? super Meeting> meetings, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(MAGIC);
+        Varint.writeInt(data, VERSION);
+
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (Contact contact : contacts) {
+            intern(strings, contact.getName());
+            intern(strings, contact.getNotes());
+        }
+        for (Object meeting : meetings) {
+            if (meeting instanceof PastMeeting) intern(strings, ((PastMeeting) meeting).getNotes());
+        }
+        int[] stringOffsets = new int[strings.size()];
+        Varint.writeInt(data, strings.size());
+        for (String string : strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            stringOffsets[strings.get(string)] = offset(data);
+            Varint.writeInt(data, bytes.length);
+            data.write(bytes);
+        }
+
+        long[] contactOffsets = new long[contacts.size()];
+        int c = 0;
+        Varint.writeInt(data, contacts.size());
+        for (Contact contact : contacts) {
+            contactOffsets[c++] = entry(contact.getId(), offset(data));
+            Varint.writeInt(data, contact.getId());
+            Varint.writeInt(data, ref(strings, contact.getName()));
+            Varint.writeInt(data, ref(strings, contact.getNotes()));
+        }
+
+        long[] meetingOffsets = new long[meetings.size()];
+        int m = 0;
+        Varint.writeInt(data, meetings.size());
+        for (Object element : meetings) {
+            Meeting meeting = (Meeting) element;
+            meetingOffsets[m++] = entry(meeting.getId(), offset(data));
+            int type = (meeting instanceof PastMeeting) ? PAST_MEETING : (meeting instanceof FutureMeeting) ? FUTURE_MEETING : MEETING;
+            Varint.writeInt(data, type);
+            Varint.writeInt(data, meeting.getId());
+            Varint.writeLong(data, meeting.getEpochMillis());
+
+            int[] participants = meeting.getContacts().stream().mapToInt(Contact::getId).sorted().toArray();
+            Varint.writeInt(data, participants.length);
+            int previous = 0;
+            for (int id : participants) {
+                Varint.writeInt(data, id - previous);
+                previous = id;
+            }
+            if (type == PAST_MEETING) Varint.writeInt(data, ref(strings, ((PastMeeting) meeting).getNotes()));
+        }
+
+        long indexOffset = offset(data);
+        for (int offset : stringOffsets) {
+            data.writeInt(offset);
+        }
+        writeIndex(data, contactOffsets);
+        writeIndex(data, meetingOffsets);
+
+        data.writeInt(stringOffsets.length);
+        data.writeInt(contactOffsets.length);
+        data.writeInt(meetingOffsets.length);
+        data.writeLong(indexOffset);
+        data.write(MAGIC);
+        data.flush();
+    }
+
+    /**
+     * Reads snapshot and replaces contacts and meetings of the manager, rebuilding its indexes.
+     * Counts and lengths are checked against the length of the snapshot before anything is
+     * allocated for them, so a corrupt file fails with an IOException.
+     *
+     * @param cm contact manager to restore
+     * @param in stream positioned at the start of the snapshot, not closed
+     * @param length of the snapshot in bytes, e.g. the size of its file
+     * @throws IOException if reading fails or the snapshot is invalid
+     */
+    public static void readInto(ContactManagerImpl cm, InputStream in, long length) throws IOException {
+        CountingInputStream counted = new CountingInputStream(in);
+        DataInputStream data = new DataInputStream(counted);
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a contact manager snapshot");
+        int version = Varint.readInt(data);
+        if (version != 1 && version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+
+        //every string takes at least its length byte
+        String[] strings = new String[count(data, counted, length, 1, "string")];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[count(data, counted, length, 1, "string byte")];
+            data.readFully(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        //ID, name ref and notes ref
+        int contactCount = count(data, counted, length, 3, "contact");
+        IntMap<Contact> contactsById = new IntMap<>(contactCount);
+        Set<Contact> contacts = new HashSet<>(contactCount * 4 / 3 + 1);
+        for (int i = 0; i < contactCount; i++) {
+            int id = Varint.readInt(data);
+            Contact contact = new ContactImpl(id, string(strings, Varint.readInt(data)), string(strings, Varint.readInt(data)));
+            if (contactsById.put(id, contact) != null) throw new IOException("Duplicate contact " + id);
+            contacts.add(contact);
+        }
+
+        //type, ID, date and number of participants
+        int meetingCount = count(data, counted, length, 4, "meeting");
+        List<Meeting> meetings = new ArrayList<>(meetingCount);
+        IntMap<Meeting> meetingsById = new IntMap<>(meetingCount);
+        for (int i = 0; i < meetingCount; i++) {
+            int type = Varint.readInt(data);
+            if (type != MEETING && type != FUTURE_MEETING && type != PAST_MEETING) throw new IOException("Unknown meeting type " + type);
+            int id = Varint.readInt(data);
+            long date = Varint.readLong(data);
+
+            int participantCount = count(data, counted, length, 1, "participant");
+            Set<Contact> participants = new HashSet<>(participantCount * 4 / 3 + 1);
+            int participantId = 0;
+            for (int j = 0; j < participantCount; j++) {
+                participantId += Varint.readInt(data);
+                Contact contact = contactsById.get(participantId);
+                if (contact == null) throw new IOException("Unknown participant " + participantId);
+                participants.add(contact);
+            }
+
+            Meeting meeting;
+            if (type == PAST_MEETING) {
+                meeting = new PastMeetingImpl(id, date, participants, string(strings, Varint.readInt(data)));
+            } else if (type == FUTURE_MEETING) {
+                meeting = new FutureMeetingImpl(id, date, participants);
+            } else {
+                meeting = new MeetingImpl(id, date, participants);
+            }
+            if (meetingsById.put(id, meeting) != null) throw new IOException("Duplicate meeting " + id);
+            meetings.add(meeting);
+        }
+
+        cm.setContacts(contacts);
+        cm.setMeetings(meetings);
+    }
+
+    /**
+     * Tests if the file starts like a binary snapshot.
+     *
+     * @param path of the file
+     * @return true if the file is a snapshot
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isSnapshot(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] magic = new byte[MAGIC.length];
+            int read = 0;
+            while (read < magic.length) {
+                int n = in.read(magic, read, magic.length - read);
+                if (n < 0) return false;
+                read += n;
+            }
+            return Arrays.equals(magic, MAGIC);
+        }
+    }
+
+    //HELPER METHODS
+
+    /**
+     * Returns the number of bytes written so far as an offset for the index. The stream stops
+     * counting at Integer.MAX_VALUE, so the write fails there instead of storing wrong offsets.
+     */
+    private static int offset(DataOutputStream data) throws IOException {
+        int size = data.size();
+        if (size == Integer.MAX_VALUE) throw new IOException("Snapshot does not fit in 2 GB");
+        return size;
+    }
+
+    /**
+     * Packs ID and offset into one long, which sorts by ID.
+     */
+    private static long entry(int id, int offset) {
+        return ((long) id << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static void writeIndex(DataOutputStream data, long[] entries) throws IOException {
+        Arrays.sort(entries);
+        for (long entry : entries) {
+            data.writeInt((int) (entry >>> 32));
+            data.writeInt((int) entry);
+        }
+    }
+
+    private static void intern(Map<String, Integer> strings, String string) {
+        if (string != null && !strings.containsKey(string)) strings.put(string, strings.size());
+    }
+
+    private static int ref(Map<String, Integer> strings, String string) {
+        return (string == null) ? 0 : strings.get(string) + 1;
+    }
+
+    private static String string(String[] strings, int ref) throws IOException {
+        if (ref == 0) return null;
+        if (ref < 0 || ref > strings.length) throw new IOException("Invalid string reference " + ref);
+        return strings[ref - 1];
+    }
+
+    /**
+     * Reads count of items, each taking at least the given number of bytes,
+     * and checks that they fit in the rest of the snapshot.
+     */
+    private static int count(DataInputStream data, CountingInputStream counted, long length, int minBytes, String item) throws IOException {
+        int count = Varint.readInt(data);
+        if (count < 0 || (long) count * minBytes > length - counted.position) {
+            throw new IOException("Invalid " + item + " count " + count + " at offset " + counted.position);
+        }
+        return count;
+    }
+
+    /**
+     * Stream counting the bytes read through it.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long position;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) position++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
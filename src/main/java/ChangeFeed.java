@@ -0,0 +1,143 @@
+import interfaces.ChangeEvent;
+import interfaces.ChangeListener;
+import utils.RingBuffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers change events of one contact manager to its listeners.
+ *
+ * Writers put events into a bounded {@link RingBuffer} without locking or waiting. A dispatcher
+ * takes them out in batches and hands every batch to all listeners, so listeners are called
+ * once per batch rather than once per event and never on the thread of a writer.
+ * At most one dispatcher runs at a time, so listeners see events in the order they were published.
+ *
+ * If the listeners fall behind by more than the capacity, new events are dropped and counted,
+ * and the listeners get an {@link ChangeEvent.Type#EVENTS_LOST} event once the buffer drains.
+ */
+public class ChangeFeed {
+    public static final int DEFAULT_CAPACITY = 16384;
+    static final int MAX_BATCH = 256;
+    private static final int IDLE_SPINS = 100;
+
+    private final RingBuffer<ChangeEvent> events;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private final AtomicLong lost = new AtomicLong();
+    private final Executor executor;
+
+    /**
+     * Creates feed dispatching on a thread of its own, which stops when idle.
+     *
+     * @param capacity maximum number of events waiting for dispatch
+     */
+    public ChangeFeed(int capacity) {
+        this(capacity, createExecutor());
+    }
+
+    /**
+     * Creates feed.
+     *
+     * @param capacity maximum number of events waiting for dispatch
+     * @param executor runs the dispatcher
+     */
+    public ChangeFeed(int capacity, Executor executor) {
+        if (executor == null) throw new NullPointerException();
+        this.events = new RingBuffer<>(capacity);
+        this.executor = executor;
+    }
+
+    public void addListener(ChangeListener listener) {
+        if (listener == null) throw new NullPointerException();
+        listeners.add(listener);
+    }
+
+    public void removeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Queues event for the listeners, does nothing if there are none. Never blocks.
+     *
+     * @param event to be delivered
+     */
+    public void publish(ChangeEvent event) {
+        if (listeners.isEmpty()) return;
+
+        if (!events.offer(event)) lost.incrementAndGet();
+        if (dispatching.compareAndSet(false, true)) executor.execute(this::dispatch);
+    }
+
+    /**
+     * Returns number of events dropped so far because the buffer was full.
+     * Counted until the listeners are told.
+     *
+     * @return number of dropped events not yet reported
+     */
+    public long getLostCount() {
+        return lost.get();
+    }
+
+    //HELPER METHODS
+
+    /**
+     * Delivers batches until the buffer is empty. Runs on the executor, one at a time.
+     */
+    private void dispatch() {
+        List<ChangeEvent> batch = new ArrayList<>(Math.min(MAX_BATCH, events.capacity()));
+        List<ChangeEvent> view = Collections.unmodifiableList(batch);
+        int idle = 0;
+        while (true) {
+            batch.clear();
+            events.drainTo(batch, MAX_BATCH);
+            long dropped = lost.getAndSet(0);
+            if (dropped > 0) batch.add(ChangeEvent.eventsLost(dropped));
+
+            if (batch.isEmpty()) {
+                if (idle++ < IDLE_SPINS) {
+                    //writers usually follow with more events, waiting a moment for them
+                    //saves waking up a dispatcher for every single one
+                    Thread.yield();
+                    continue;
+                }
+                dispatching.set(false);
+                //an event published after the drain but before the flag was cleared
+                //did not start a dispatcher, so continue unless another one started
+                if ((events.isEmpty() && lost.get() == 0) || !dispatching.compareAndSet(false, true)) return;
+                continue;
+            }
+
+            idle = 0;
+            for (ChangeListener listener : listeners) {
+                try {
+                    listener.onChanges(view);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static Executor createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "contact-manager-changes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
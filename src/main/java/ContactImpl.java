@@ -6,6 +6,7 @@ import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlRootElement;
 import java.io.Serializable;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Contact implementation class.
@@ -23,6 +24,9 @@ public class ContactImpl implements Contact, Serializable {
     private String name;
     private String notes;
 
+    //told about added notes by the contact manager holding the contact
+    private transient Consumer<Contact> notesListener;
+
     //for XML marshalling purpose
     private ContactImpl() {}
 
@@ -76,6 +80,25 @@ public class ContactImpl implements Contact, Serializable {
     public void addNotes(String note) {
         note = note.trim();
         notes = (notes.equals("")) ? note : notes + " " + note;
+        if (notesListener != null) notesListener.accept(this);
+    }
+
+    /**
+     * Sets listener called after notes are added.
+     *
+     * @param notesListener listener or null
+     */
+    void setNotesListener(Consumer<Contact> notesListener) {
+        this.notesListener = notesListener;
+    }
+
+    /**
+     * Replaces notes without telling the listener, used when restoring a contact.
+     *
+     * @param notes all notes of the contact
+     */
+    void restoreNotes(String notes) {
+        this.notes = (notes == null) ? "" : notes;
     }
 
     @Override
@@ -1,61 +1,402 @@
 import interfaces.*;
+import utils.IdAllocator;
+import utils.IntMap;
+import utils.PrefixIndex;
+import utils.TimeIndex;
+import utils.TrigramIndex;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.*;
-import java.io.File;
-import java.lang.reflect.InvocationTargetException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import static java.nio.file.StandardOpenOption.*;
 import static utils.ContactManagerFilters.*;
-import static utils.Utils.generateNewNumber;
-import static utils.Utils.isFuture;
+import static utils.Utils.containsIgnoreCase;
+import static utils.Utils.moveAtomically;
 
 /**
  * Implementation of contact manager.
  *
+ * Every instance holds its own contact book, so a process can host many of them side by side.
+ *
+ * The manager is safe for use by concurrent threads. Every mutation holds an exclusive lock,
+ * so writes are linearizable. Lookups by ID run without locking and are validated afterwards,
+ * falling back to the shared lock only if a write interfered. Other queries hold the shared lock,
+ * so they run in parallel with each other and wait only for writes.
+ *
+ * Besides the full rewrite done by flush, mutations can be appended to a {@link WriteAheadLog}
+ * opened with {@link #openLog(Path, long, long)}. The log is replayed on open, so the last
+ * snapshot plus the log restore the state, and it is compacted into a fresh snapshot on the
+ * flush executor once it grows over the configured size.
+ *
+ * Snapshots are written by a background flusher from a copy of the contacts and meetings
+ * taken under the shared lock, so writers wait only for the copy and not for serialization.
+ * Flush requests arriving while one is waiting to run are coalesced into it.
+ *
+ * Every {@link ContactManager} method counts its calls and errors and records its latency
+ * in {@link ContactManagerMetrics}, see {@link #getMetrics()}.
+ *
+ * Whether a meeting is past or future is decided by the clock of the manager, the system
+ * clock by default. Tests and benchmarks can set a {@link utils.ManualClock}.
+ *
+ * Meetings not yet past are kept in a queue ordered by date. A timer converts each of them
+ * to a past meeting once, when its time comes, and tells the past meeting listeners.
+ *
+ * Imports should go through {@link #addNewContacts(List)} and {@link #addMeetings(List)},
+ * which take the lock, reserve IDs and append to the log once for the whole batch.
+ * Contacts and meetings are streamed to and from other tools as CSV or JSON Lines by
+ * {@link ExchangeWriter} and {@link ExchangeReader}.
+ *
+ * Change listeners follow every mutation through a {@link ChangeFeed}. Events are published
+ * under the exclusive lock, so they arrive in the order of the mutations, and are delivered
+ * in batches on a thread of the feed. Loading a snapshot or replaying the log publishes nothing.
+ *
  * Created by Vladimirs Ivanovs on 19/01/16.
  */
 
-@XmlSeeAlso({MeetingImpl.class, ContactImpl.class})
+@XmlSeeAlso({MeetingImpl.class, FutureMeetingImpl.class, PastMeetingImpl.class, ContactImpl.class})
 @XmlRootElement(name = "contactManager")
 @XmlAccessorType(XmlAccessType.FIELD)
 public class ContactManagerImpl implements ContactManager {
+    public static final String DEFAULT_STORE = "contacts.txt";
+    private static final int FLUSH_BUFFER_SIZE = 64 * 1024;
+
+    //shared by all managers, only runs the quick conversion of due meetings
+    private static final ScheduledThreadPoolExecutor transitionTimers = createTransitionTimers();
+
+    //marshallers are cheap to reuse but not thread safe
+    private static final ThreadLocal<Marshaller> marshaller = ThreadLocal.withInitial(ContactManagerImpl::createMarshaller);
 
     @XmlElementWrapper(name = "contacts")
     @XmlAnyElement
-    private static Set<Contact> allContacts;
+    private Set<Contact> allContacts = new HashSet<>();
 
     @XmlElementWrapper(name = "meetings")
     @XmlAnyElement
-    private static List<? super Meeting> meetings;
+    private List<? super Meeting> meetings = new ArrayList<>();
+
+    //primary key index: meeting ID -> position of the meeting in the list
+    @XmlTransient
+    private IntMap<Integer> meetingSlots = new IntMap<>();
+
+    //meeting IDs sorted by date
+    @XmlTransient
+    private TimeIndex meetingTimes = new TimeIndex();
+
+    //IDs of meetings not yet converted to past meetings, sorted by date
+    @XmlTransient
+    private TimeIndex upcomingMeetings = new TimeIndex();
+
+    //time the transition timer is set to, Long.MAX_VALUE if not set; guarded by the write lock
+    @XmlTransient
+    private long nextTransition = Long.MAX_VALUE;
+
+    @XmlTransient
+    private ScheduledFuture<?> transitionTimer;
+
+    @XmlTransient
+    private final List<Consumer<? super PastMeeting>> pastMeetingListeners = new CopyOnWriteArrayList<>();
+
+    //created with the first change listener
+    @XmlTransient
+    private volatile ChangeFeed changes;
+
+    //inverted index: contact ID -> IDs of meetings with the contact sorted by date
+    @XmlTransient
+    private IntMap<TimeIndex> contactMeetings = new IntMap<>();
+
+    @XmlTransient
+    private IntMap<Contact> contactsById = new IntMap<>();
+
+    //substring index over contact names
+    @XmlTransient
+    private TrigramIndex contactNames = new TrigramIndex();
+
+    //sorted index of contact names for autocomplete
+    @XmlTransient
+    private PrefixIndex contactPrefixes = new PrefixIndex();
+
+    @XmlTransient
+    private IdAllocator contactIds = new IdAllocator();
+
+    @XmlTransient
+    private IdAllocator meetingIds = new IdAllocator();
+
+    @XmlTransient
+    private Path storePath = Paths.get(DEFAULT_STORE);
+
+    @XmlTransient
+    private StoreFormat storeFormat = StoreFormat.XML;
+
+    @XmlTransient
+    private volatile Clock clock = Clock.systemDefaultZone();
+
+    @XmlTransient
+    private volatile WriteAheadLog log;
+
+    @XmlTransient
+    private long compactAfterBytes;
+
+    @XmlTransient
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    @XmlTransient
+    private Executor flushExecutor;
+
+    //flush requested but not yet started, later requests join it
+    @XmlTransient
+    private CompletableFuture<Void> pendingFlush;
+
+    @XmlTransient
+    private final Object flushLock = new Object();
+
+    //held while a snapshot is copied and written, so snapshots reach the disk in order
+    @XmlTransient
+    private final Object saveLock = new Object();
+
+    @XmlTransient
+    private final StampedLock lock = new StampedLock();
+
+    @XmlTransient
+    private final ContactManagerMetrics metrics = createMetrics();
 
     private static ContactManagerImpl contactManager = new ContactManagerImpl( );
 
+    /**
+     * Returns the default, process-wide contact manager.
+     * Independent contact books are created with the public constructor or
+     * held by a {@link ContactManagerRegistry}.
+     *
+     * @return default contact manager
+     */
     public static ContactManagerImpl getInstance( ) {
         return contactManager;
     }
 
-    //non argument constructor for XML marshalling purpose
-    private ContactManagerImpl(){}
+    /**
+     * Creates an empty contact manager with its own contacts, meetings and indexes.
+     * Also used for XML marshalling.
+     */
+    public ContactManagerImpl(){}
+
+    /**
+     * Creates an empty contact manager saving its data to the given file.
+     *
+     * @param storePath file written by flush
+     */
+    public ContactManagerImpl(Path storePath) {
+        setStorePath(storePath);
+    }
+
+    /**
+     * Restores contact manager from the file written by flush, in either format.
+     * The restored manager keeps saving in the format of the file.
+     * If the file does not exist yet, an empty manager saving to that file is returned.
+     *
+     * @param storePath file written by flush
+     * @return restored contact manager
+     * @throws IOException if the file cannot be read or is not a valid contact manager file
+     */
+    public static ContactManagerImpl load(Path storePath) throws IOException {
+        ContactManagerImpl cm = new ContactManagerImpl(storePath);
+        if (!Files.exists(storePath)) {
+            return cm;
+        } else if (BinarySnapshot.isSnapshot(storePath)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(storePath), FLUSH_BUFFER_SIZE)) {
+                BinarySnapshot.readInto(cm, in, Files.size(storePath));
+            }
+            cm.setStoreFormat(StoreFormat.BINARY);
+        } else {
+            new XmlStoreReader(storePath).readInto(cm);
+        }
+        return cm;
+    }
+
+    public Path getStorePath() {
+        return storePath;
+    }
+
+    public void setStorePath(Path storePath) {
+        if (storePath == null) throw new NullPointerException();
+        this.storePath = storePath;
+    }
+
+    public StoreFormat getStoreFormat() {
+        return storeFormat;
+    }
+
+    /**
+     * Sets format written by flush.
+     *
+     * @param storeFormat format of the store file
+     */
+    public void setStoreFormat(StoreFormat storeFormat) {
+        if (storeFormat == null) throw new NullPointerException();
+        this.storeFormat = storeFormat;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Sets clock deciding which meetings are in the past and which in the future.
+     *
+     * @param clock source of the current time
+     */
+    public void setClock(Clock clock) {
+        if (clock == null) throw new NullPointerException();
+
+        long stamp = lock.writeLock();
+        try {
+            this.clock = clock;
+            cancelTransitionTimer();
+            scheduleTransition(upcomingMeetings.earliest());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Registers listener told about every meeting converted to a past meeting because its time came,
+     * e.g. to ask for notes of the meeting. Listeners are called on the timer thread, or on the thread
+     * importing meetings which are due already, and should be quick.
+     *
+     * @param listener to be called with the converted meeting
+     */
+    public void addPastMeetingListener(Consumer<? super PastMeeting> listener) {
+        if (listener == null) throw new NullPointerException();
+        pastMeetingListeners.add(listener);
+    }
+
+    public void removePastMeetingListener(Consumer<? super PastMeeting> listener) {
+        pastMeetingListeners.remove(listener);
+    }
+
+    /**
+     * Registers listener of all changes made from now on. Listeners are called with batches
+     * of events on the dispatch thread of the manager, they may query the manager.
+     *
+     * @param listener to be called with every batch of events
+     */
+    public void addChangeListener(ChangeListener listener) {
+        if (listener == null) throw new NullPointerException();
+
+        long stamp = lock.writeLock();
+        try {
+            if (changes == null) changes = new ChangeFeed(ChangeFeed.DEFAULT_CAPACITY);
+            changes.addListener(listener);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
 
+    public void removeChangeListener(ChangeListener listener) {
+        ChangeFeed feed = changes;
+        if (feed != null) feed.removeListener(listener);
+    }
+
+    /**
+     * Converts meetings whose time came to past meetings and tells the listeners.
+     * Every meeting is converted once, meetings which got notes meanwhile are skipped.
+     *
+     * The timer calls this when the earliest upcoming meeting is due according to the clock.
+     * With a {@link utils.ManualClock} call it after moving the clock.
+     *
+     * @return number of converted meetings
+     */
+    public int transitionDueMeetings() {
+        List<PastMeeting> converted;
+        long stamp = lock.writeLock();
+        try {
+            converted = transitionUpTo(clock.millis());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        tellPastMeetingListeners(converted);
+        return converted.size();
+    }
+
+    /**
+     * Returns the built-in instrumentation of this manager, to be read directly or
+     * bound to a {@link utils.MetricsRegistry}, e.g. a {@link utils.JmxMetricsRegistry}.
+     *
+     * @return metrics of this manager
+     */
+    public ContactManagerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns copy of all meetings in the order they were added, taken under the shared lock.
+     *
+     * @return unmodifiable list of meetings
+     */
     public List<? super Meeting> getMeetings() {
-        return meetings;
+        return read(() -> Collections.unmodifiableList(new ArrayList<Object>(meetings)));
     }
 
+    /**
+     * Returns copy of all contacts, taken under the shared lock.
+     *
+     * @return unmodifiable set of contacts
+     */
     public Set<Contact> getAllContacts() {
-        return allContacts;
+        return read(() -> Collections.unmodifiableSet(new HashSet<>(allContacts)));
     }
 
+    /**
+     * Replaces meetings and rebuilds the ID index.
+     * The list must not be modified afterwards other than through the manager.
+     *
+     * @param meetings list of meetings
+     */
     public void setMeetings(List<? super Meeting> meetings) {
-        ContactManagerImpl.meetings = meetings;
+        long stamp = lock.writeLock();
+        try {
+            this.meetings = meetings;
+            reindexMeetings();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
+    /**
+     * Replaces contacts, rebuilds contact indexes and restores contact ID allocation
+     * after the highest existing ID.
+     * The set must not be modified afterwards other than through the manager.
+     *
+     * @param contacts set of contacts
+     */
     public void setContacts(Set<Contact> contacts) {
-        ContactManagerImpl.allContacts = contacts;
+        long stamp = lock.writeLock();
+        try {
+            this.allContacts = contacts;
+            reindexContacts();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     /**
@@ -73,12 +414,24 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public int addFutureMeeting(Set<Contact> contacts, Calendar date) {
-        if (!isFuture(date) || !allContacts.containsAll(contacts)) throw new IllegalArgumentException();
-
-        int newID = generateUniqueId(meetings); //always returns > 0
-        meetings.add(new MeetingImpl(newID, date, contacts));
+        return metrics.addFutureMeeting.time(() -> {
+            int newID;
+            long position;
+            long stamp = lock.writeLock();
+            try {
+                if (!isFuture(date) || !areKnown(contacts)) throw new IllegalArgumentException();
 
-        return newID;
+                newID = meetingIds.next(); //always returns > 0
+                Meeting meeting = new FutureMeetingImpl(newID, date, contacts);
+                position = logMeeting(meeting);
+                addMeeting(meeting);
+                publish(ChangeEvent.meetingScheduled(meeting));
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            commit(position);
+            return newID;
+        });
     }
 
     /**
@@ -93,8 +446,7 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public PastMeeting getPastMeeting(int id) {
-        updateStatusForNow();
-        return returnPastOrThrow(findMeetingBy(id));
+        return metrics.getPastMeeting.time(() -> readOptimistically(() -> returnPastOrThrow(findMeetingBy(id))));
     }
 
     /**
@@ -107,8 +459,7 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public FutureMeeting getFutureMeeting(int id) {
-        updateStatusForNow();
-        return returnFutureOrThrow(findMeetingBy(id));
+        return metrics.getFutureMeeting.time(() -> readOptimistically(() -> returnFutureOrThrow(findMeetingBy(id))));
     }
 
     /**
@@ -119,8 +470,7 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public Meeting getMeeting(int id) {
-        updateStatusForNow();
-        return returnMeetingOrNull(findMeetingBy(id));
+        return metrics.getMeeting.time(() -> readOptimistically(() -> withCurrentStatus(findMeetingBy(id))));
     }
 
     /**
@@ -137,21 +487,28 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public List<Meeting> getFutureMeetingList(Contact contact) {
-        if (contact == null){
-            throw new NullPointerException();
-        } else if (!allContacts.contains(contact)){
-            throw new IllegalArgumentException();
-        }
+        return metrics.getFutureMeetingList.time(() -> {
+            if (contact == null) throw new NullPointerException();
+
+            return read(() -> {
+                if (!allContacts.contains(contact)) throw new IllegalArgumentException();
 
-        updateStatusForNow();
-        Calendar now = new GregorianCalendar();
-        return filterFutureMeetingsWithContact(meetings, contact, now );
+                List<Meeting> result = new ArrayList<>();
+                TimeIndex contactTimes = contactMeetings.get(contact.getId());
+                if (contactTimes != null) {
+                    contactTimes.forEachAfter(clock.millis(), id -> result.add(findMeetingBy(id)));
+                }
+                return result;
+            });
+        });
     }
 
     /**
      * Returns the list of meetings that are scheduled for, or that took
      * place on, the specified date
      *
+     * Any time during the calendar day of the date matches.
+     *
      * If there are none, the returned list will be empty. Otherwise,
      * the list will be chronologically sorted and will not contain any
      * duplicates.
@@ -162,10 +519,48 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public List<Meeting> getMeetingListOn(Calendar date) {
-        if (date == null) throw new NullPointerException();
+        return metrics.getMeetingListOn.time(() -> {
+            if (date == null) throw new NullPointerException();
+
+            Calendar dayStart = (Calendar) date.clone();
+            dayStart.set(Calendar.HOUR_OF_DAY, 0);
+            dayStart.set(Calendar.MINUTE, 0);
+            dayStart.set(Calendar.SECOND, 0);
+            dayStart.set(Calendar.MILLISECOND, 0);
+            Calendar nextDayStart = (Calendar) dayStart.clone();
+            nextDayStart.add(Calendar.DAY_OF_MONTH, 1);
+
+            return read(() -> findMeetingsBetween(dayStart.getTimeInMillis(), nextDayStart.getTimeInMillis()));
+        });
+    }
+
+    /**
+     * Returns the list of meetings that are scheduled for, or that took
+     * place, from the first date (inclusive) until the second date (exclusive).
+     *
+     * If there are none, the returned list will be empty. Otherwise,
+     * the list will be chronologically sorted and will not contain any
+     * duplicates.
+     *
+     * @param from the start of the period
+     * @param to the end of the period
+     * @return the list of meetings
+     * @throws IllegalArgumentException if the start is after the end
+     * @throws NullPointerException if any of the dates are null
+     */
+    @Override
+    public List<Meeting> getMeetingsBetween(Calendar from, Calendar to) {
+        return metrics.getMeetingsBetween.time(() -> {
+            if (from == null || to == null) {
+                throw new NullPointerException();
+            } else if (from.after(to)) {
+                throw new IllegalArgumentException();
+            }
 
-        updateStatusForNow();
-        return filterAnyMeetingsOnDate(meetings, date);
+            long fromMillis = from.getTimeInMillis();
+            long toMillis = to.getTimeInMillis();
+            return read(() -> findMeetingsBetween(fromMillis, toMillis));
+        });
     }
 
     /**
@@ -182,19 +577,23 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public List<PastMeeting> getPastMeetingListFor(Contact contact) {
-        updateStatusForNow();
+        return metrics.getPastMeetingListFor.time(() -> {
+            if (contact == null) throw new NullPointerException();
 
-        if (contact == null) {
-            throw new NullPointerException();
-        }else if (!allContacts.contains(contact)) {
-            throw new IllegalArgumentException();
-        }
-
-        List<PastMeeting> result = filterPastMeetingsByContact(meetings, contact).stream()
-                .map(m -> (PastMeeting)m)
-                .collect(Collectors.toList());
+            return read(() -> {
+                if (!allContacts.contains(contact)) throw new IllegalArgumentException();
 
-        return result;
+                List<PastMeeting> result = new ArrayList<>();
+                TimeIndex contactTimes = contactMeetings.get(contact.getId());
+                if (contactTimes != null) {
+                    contactTimes.forEachBefore(clock.millis(), id -> {
+                        Meeting meeting = findMeetingBy(id);
+                        result.add((meeting instanceof PastMeeting) ? (PastMeeting) meeting : toPastMeeting(meeting));
+                    });
+                }
+                return result;
+            });
+        });
     }
 
     /**
@@ -209,14 +608,27 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public void addNewPastMeeting(Set<Contact> contacts, Calendar date, String text) {
-        if(contacts == null || date == null || text == null){
-            throw new NullPointerException();
-        } else if(contacts.isEmpty() || !allContacts.containsAll(contacts)) {
-            throw new IllegalArgumentException();
-        }
+        metrics.addNewPastMeeting.time(() -> {
+            if(contacts == null || date == null || text == null){
+                throw new NullPointerException();
+            } else if(contacts.isEmpty()) {
+                throw new IllegalArgumentException();
+            }
 
-        Meeting meeting = new PastMeetingImpl(generateUniqueId(meetings), date, contacts, text);
-        meetings.add(meeting);
+            long position;
+            long stamp = lock.writeLock();
+            try {
+                if (!areKnown(contacts)) throw new IllegalArgumentException();
+
+                Meeting meeting = new PastMeetingImpl(meetingIds.next(), date, contacts, text);
+                position = logMeeting(meeting);
+                addMeeting(meeting);
+                publish(ChangeEvent.meetingScheduled(meeting));
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            commit(position);
+        });
     }
 
     /**
@@ -235,22 +647,32 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public PastMeeting addMeetingNotes(int id, String text) {
-        updateStatusForNow();
-        Optional<Meeting> returnedMeeting = findMeetingBy(id);
-
-        if (text == null){
-            throw new NullPointerException();
-        } else if (!returnedMeeting.isPresent()){
-            throw new IllegalArgumentException();
-        } else if (isFuture(returnedMeeting.get().getDate())) {
-            throw new IllegalStateException();
-        }
+        return metrics.addMeetingNotes.time(() -> {
+            PastMeeting converted;
+            long position;
+            long stamp = lock.writeLock();
+            try {
+                Meeting meeting = findMeetingBy(id);
 
-        Meeting meeting = returnedMeeting.get();
-        PastMeeting converted = toPastMeetingWithNotes(meeting, text);
-        Collections.replaceAll(meetings, meeting, converted);
+                if (text == null){
+                    throw new NullPointerException();
+                } else if (meeting == null){
+                    throw new IllegalArgumentException();
+                } else if (isFuture(meeting.getEpochMillis())) {
+                    throw new IllegalStateException();
+                }
 
-        return converted;
+                converted = toPastMeetingWithNotes(meeting, text);
+                position = log(log -> log.appendMeetingNotes(id, converted.getNotes()));
+                meetings.set(meetingSlots.get(id), converted);
+                if (!(meeting instanceof PastMeeting)) publish(ChangeEvent.meetingBecamePast(converted));
+                publish(ChangeEvent.notesAdded(converted));
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            commit(position);
+            return converted;
+        });
     }
 
     /**
@@ -264,15 +686,164 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public int addNewContact(String name, String notes) {
-        if (name == null || notes == null) {
-            throw new NullPointerException();
-        } else if (name.equals("") || notes.equals("")){
-            throw new IllegalArgumentException();
+        return metrics.addNewContact.time(() -> {
+            if (name == null || notes == null) {
+                throw new NullPointerException();
+            } else if (name.equals("") || notes.equals("")){
+                throw new IllegalArgumentException();
+            }
+            int id;
+            long position;
+            long stamp = lock.writeLock();
+            try {
+                id = contactIds.next();
+                Contact contact = new ContactImpl(id, name, notes );
+                position = log(log -> log.appendContact(id, contact.getName(), contact.getNotes()));
+                addContact(contact);
+                publish(ChangeEvent.contactAdded(contact));
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            commit(position);
+            return id;
+        });
+    }
+
+    /**
+     * Create new contacts with the specified names and notes, all at once.
+     *
+     * Either all contacts are created or, if any of them is invalid, none.
+     * IDs are reserved as one range and the contacts are logged as one record.
+     *
+     * @param contacts names and notes of the contacts to be created
+     * @return the IDs for the new contacts, in the order of the list
+     * @throws IllegalArgumentException if any name or notes are empty strings
+     * @throws NullPointerException if the list, any of its elements, names or notes are null
+     */
+    @Override
+    public int[] addNewContacts(List<NewContact> contacts) {
+        return metrics.addNewContacts.time(() -> {
+            if (contacts == null) throw new NullPointerException();
+            for (NewContact contact : contacts) {
+                if (contact == null || contact.getName() == null || contact.getNotes() == null) {
+                    throw new NullPointerException();
+                } else if (contact.getName().equals("") || contact.getNotes().equals("")) {
+                    throw new IllegalArgumentException();
+                }
+            }
+            return createContacts(contacts).stream().mapToInt(Contact::getId).toArray();
+        });
+    }
+
+    /**
+     * Add new future and past meetings, all at once.
+     *
+     * Either all meetings are added or, if any of them is invalid, none.
+     * IDs are reserved as one range and the meetings are logged as one record.
+     *
+     * @param meetings participants, dates and notes of the meetings to be added
+     * @return the IDs for the new meetings, in the order of the list
+     * @throws IllegalArgumentException if a future meeting is set for a time in the past,
+     * a past meeting has no participants, or any contact is unknown / non-existent
+     * @throws NullPointerException if the list, any of its elements, participants or dates are null
+     */
+    @Override
+    public int[] addMeetings(List<NewMeeting> meetings) {
+        return metrics.addMeetings.time(() -> {
+            if (meetings == null) throw new NullPointerException();
+            for (NewMeeting meeting : meetings) {
+                if (meeting == null || meeting.getContacts() == null || meeting.getDate() == null) {
+                    throw new NullPointerException();
+                } else if (meeting.isPast() && meeting.getContacts().isEmpty()) {
+                    throw new IllegalArgumentException();
+                }
+            }
+            return createMeetings(meetings, true);
+        });
+    }
+
+    /**
+     * Creates contacts read by an import. Unlike {@link #addNewContacts(List)} empty notes
+     * are accepted, as existing contacts may have them.
+     *
+     * @param contacts names and notes of the contacts to be created
+     * @return created contacts, in the order of the list
+     * @throws IllegalArgumentException if any name is empty
+     * @throws NullPointerException if any name or notes are null
+     */
+    List<Contact> importContacts(List<NewContact> contacts) {
+        for (NewContact contact : contacts) {
+            if (contact.getName() == null || contact.getNotes() == null) {
+                throw new NullPointerException();
+            } else if (contact.getName().equals("")) {
+                throw new IllegalArgumentException();
+            }
         }
-        int id = generateUniqueId(allContacts);
-        Contact contact = new ContactImpl(id, name, notes );
-        allContacts.add(contact);
-        return id;
+        return createContacts(contacts);
+    }
+
+    /**
+     * Adds meetings read by an import. Unlike {@link #addMeetings(List)} future meetings may be due
+     * by now, they are converted before this returns, and past meetings may have no participants.
+     *
+     * @param meetings participants, dates and notes of the meetings to be added
+     * @return the IDs for the new meetings, in the order of the list
+     * @throws IllegalArgumentException if any contact is unknown
+     * @throws NullPointerException if any participants or dates are null
+     */
+    int[] importMeetings(List<NewMeeting> meetings) {
+        for (NewMeeting meeting : meetings) {
+            if (meeting.getContacts() == null || meeting.getDate() == null) throw new NullPointerException();
+        }
+        return createMeetings(meetings, false);
+    }
+
+    /**
+     * Adds the contacts with IDs from the given one on to the list, up to the maximum number,
+     * holding the shared lock only for this chunk.
+     *
+     * @param fromId lowest ID to be copied
+     * @param max number of contacts to be copied at most
+     * @param into list the contacts are added to, in order of ID
+     * @return ID to continue from, or 0 if there are no more contacts
+     */
+    int copyContacts(int fromId, int max, List<? super Contact> into) {
+        return read(() -> {
+            int last = contactIds.current();
+            int id = fromId;
+            for (int copied = 0; id <= last && copied < max; id++) {
+                Contact contact = contactsById.get(id);
+                if (contact != null) {
+                    into.add(contact);
+                    copied++;
+                }
+            }
+            return (id > last) ? 0 : id;
+        });
+    }
+
+    /**
+     * Adds the meetings with IDs from the given one on to the list, up to the maximum number,
+     * holding the shared lock only for this chunk.
+     *
+     * @param fromId lowest ID to be copied
+     * @param max number of meetings to be copied at most
+     * @param into list the meetings are added to, in order of ID
+     * @return ID to continue from, or 0 if there are no more meetings
+     */
+    int copyMeetings(int fromId, int max, List<? super Meeting> into) {
+        return read(() -> {
+            int last = meetingIds.current();
+            int id = fromId;
+            for (int copied = 0; id <= last && copied < max; id++) {
+                Meeting meeting = findMeetingBy(id);
+                if (meeting != null) {
+                    into.add(meeting);
+                    copied++;
+                }
+            }
+            return (id > last) ? 0 : id;
+        });
     }
 
     /**
@@ -287,14 +858,78 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public Set<Contact> getContacts(String name) {
-        if(name == null){
-            throw new NullPointerException();
-        } else if (name.equals("")){
-            return allContacts;
-        }
+        return getContacts(name, false);
+    }
+
+    /**
+     * Returns a list with the contacts whose name contains that string,
+     * optionally ignoring case.
+     *
+     * If the string is the empty string, this methods returns the set
+     * that contains all current contacts.
+     *
+     * @param name the string to search for
+     * @param ignoreCase true if upper and lower case letters should match each other
+     * @return a list with the contacts whose name contains that string.
+     * @throws NullPointerException if the name is null
+     */
+    @Override
+    public Set<Contact> getContacts(String name, boolean ignoreCase) {
+        return metrics.getContactsByName.time(() -> {
+            if(name == null) throw new NullPointerException();
+
+            return read(() -> {
+                if (name.equals("")){
+                    return new HashSet<>(allContacts);
+                } else if (name.length() < TrigramIndex.GRAM_LENGTH) {
+                    //too short to be narrowed down by the index
+                    return ignoreCase ? filterContactsWithNameIgnoreCase(allContacts, name) : filterContactsWithName(allContacts, name);
+                }
 
-        Set<Contact> contacts = filterContactsWithName(allContacts, name);
-        return contacts;
+                Set<Contact> contacts = new HashSet<>();
+                contactNames.forEachCandidate(name, id -> {
+                    Contact contact = contactsById.get(id);
+                    String candidate = contact.getName();
+                    if (ignoreCase ? containsIgnoreCase(candidate, name) : candidate.contains(name)) contacts.add(contact);
+                });
+                return contacts;
+            });
+        });
+    }
+
+    /**
+     * Returns up to the given number of contacts with a word of the name
+     * starting with that string, ignoring case.
+     *
+     * The list is sorted alphabetically by the matching word and
+     * will not contain any duplicates.
+     *
+     * @param prefix the start of the name or of any word in it
+     * @param limit the maximum number of contacts to be returned
+     * @return a list with the matching contacts (maybe empty).
+     * @throws IllegalArgumentException if the limit is negative
+     * @throws NullPointerException if the prefix is null
+     */
+    @Override
+    public List<Contact> suggestContacts(String prefix, int limit) {
+        return metrics.suggestContacts.time(() -> {
+            if (prefix == null) {
+                throw new NullPointerException();
+            } else if (limit < 0) {
+                throw new IllegalArgumentException();
+            }
+
+            return read(() -> {
+                Set<Contact> suggestions = new LinkedHashSet<>();
+                if (limit > 0) {
+                    contactPrefixes.forEachStartingWith(prefix, id -> {
+                        suggestions.add(contactsById.get(id));
+                        return suggestions.size() < limit;
+                    });
+                }
+                return new ArrayList<>(suggestions);
+            });
+        });
     }
 
     /**
@@ -308,12 +943,19 @@ public class ContactManagerImpl implements ContactManager {
      */
     @Override
     public Set<Contact> getContacts(int... ids) {
-        if (ids == null) throw new IllegalArgumentException();
-        List<Integer> providedIds = IntStream.of(ids).boxed().collect(Collectors.toList());
+        return metrics.getContactsById.time(() -> {
+            if (ids == null || ids.length == 0) throw new IllegalArgumentException();
 
-        if (!getExistingIDsOf(allContacts).containsAll(providedIds))throw new IllegalArgumentException();
-
-        return filterContactsWithId(allContacts, providedIds);
+            return readOptimistically(() -> {
+                Set<Contact> contacts = new HashSet<>(ids.length * 4 / 3 + 1);
+                for (int id : ids) {
+                    Contact contact = contactsById.get(id);
+                    if (contact == null) throw new IllegalArgumentException();
+                    contacts.add(contact);
+                }
+                return contacts;
+            });
+        });
     }
 
     /**
@@ -321,18 +963,156 @@ public class ContactManagerImpl implements ContactManager {
      *
      * This method must be executed when the program is
      * closed and when/if the user requests it.
+     *
+     * Blocks until the data is durable, see {@link #flushAsync()}.
      */
     @Override
     public void flush() {
-        JAXBContext jaxbContext = null;
-        Marshaller jaxbMarshaller = null;
-        File file = new File("contacts.txt");
+        metrics.flush.time(() -> {
+            try {
+                flushAsync().join();
+            } catch (CompletionException e) {
+                metrics.flush.failed();
+                e.getCause().printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Requests saving all data to disk in the background.
+     *
+     * If a flush was requested but has not started yet, its future is returned instead, so a burst
+     * of requests results in one write. The write contains every change made before this call.
+     * It goes to a temporary file which is forced to disk and then moved over the store file,
+     * so the store file is always complete.
+     *
+     * @return future completed once the data is durable, or exceptionally if saving failed
+     */
+    public CompletableFuture<Void> flushAsync() {
+        synchronized (flushLock) {
+            if (pendingFlush != null) return pendingFlush;
+
+            CompletableFuture<Void> flush = new CompletableFuture<>();
+            pendingFlush = flush;
+            try {
+                flushExecutor().execute(() -> runFlush(flush));
+            } catch (RejectedExecutionException e) {
+                pendingFlush = null;
+                flush.completeExceptionally(e);
+            }
+            return flush;
+        }
+    }
+
+    /**
+     * Sets executor running background flushes, e.g. to share one flusher thread
+     * among many managers. By default every manager starts a thread of its own when needed,
+     * which ends after a minute without flushes.
+     *
+     * @param flushExecutor executor of flushes
+     */
+    public void setFlushExecutor(Executor flushExecutor) {
+        if (flushExecutor == null) throw new NullPointerException();
+        synchronized (flushLock) {
+            this.flushExecutor = flushExecutor;
+        }
+    }
+
+    /**
+     * Saves all data as XML to the given file, whatever the store format is.
+     *
+     * @param path file to export to
+     */
+    public void exportXml(Path path) {
+        if (path == null) throw new NullPointerException();
+        write(path, StoreFormat.XML);
+    }
+
+    /**
+     * Opens write-ahead log, replaying its records over the current state first.
+     * To recover after a crash, load the last snapshot and open the log it was written with.
+     *
+     * From then on every mutation, including notes added to a contact, is appended to the log.
+     * Once the log grows over the given size it is compacted in the background: a fresh snapshot
+     * is written to the store path and the records it contains are dropped from the log.
+     *
+     * @param logPath file of the log
+     * @param syncIntervalMillis zero to force every mutation to disk before it returns,
+     *                           otherwise the interval in which the log is forced in the background
+     * @param compactAfterBytes size of the log which triggers compaction
+     * @throws IOException if the log cannot be opened or replayed
+     * @throws IllegalArgumentException if the interval is negative or the size is not positive
+     * @throws IllegalStateException if a log is already open
+     * @throws NullPointerException if the path is null
+     */
+    public void openLog(Path logPath, long syncIntervalMillis, long compactAfterBytes) throws IOException {
+        if (logPath == null) {
+            throw new NullPointerException();
+        } else if (syncIntervalMillis < 0 || compactAfterBytes < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        long stamp = lock.writeLock();
         try {
-            jaxbContext = JAXBContext.newInstance(ContactManagerImpl.class);
-            jaxbMarshaller = jaxbContext.createMarshaller();
-            jaxbMarshaller.marshal(getInstance(), file);
-        } catch (JAXBException e) {
-            e.printStackTrace();
+            if (log != null) throw new IllegalStateException();
+
+            log = WriteAheadLog.open(logPath, syncIntervalMillis, new LogReplay());
+            this.compactAfterBytes = compactAfterBytes;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Forces the write-ahead log to disk and closes it. Does nothing if no log is open.
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    public void closeLog() throws IOException {
+        //waits for a running compaction
+        synchronized (saveLock) {
+            long stamp = lock.writeLock();
+            try {
+                if (log != null) log.close();
+            } finally {
+                log = null;
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Writes a fresh snapshot to the store path and drops the records it contains from the write-ahead log.
+     *
+     * The snapshot is written to a temporary file first and moved over the old one, so a crash
+     * leaves either the old snapshot with the full log or the new one. Records left in the log
+     * in the latter case are replayed harmlessly. The data is copied under the lock for a moment
+     * only, writers go on meanwhile and their records stay in the log.
+     *
+     * @throws IOException if the snapshot cannot be written or the log cannot be shortened
+     */
+    public void compact() throws IOException {
+        synchronized (saveLock) {
+            ContactManagerImpl copy;
+            WriteAheadLog current;
+            long position;
+            long stamp = lock.readLock();
+            try {
+                copy = copy();
+                current = log;
+                position = (current == null) ? 0 : current.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+
+            try {
+                long start = System.nanoTime();
+                long bytes = copy.writeAtomically(storePath, storeFormat);
+                recordSnapshot(start, bytes);
+            } catch (JAXBException e) {
+                throw new IOException(e);
+            }
+            if (current != null) current.dropUpTo(position);
         }
     }
 
@@ -340,123 +1120,718 @@ public class ContactManagerImpl implements ContactManager {
     //HELPER METHODS
 
     /**
-     * Updates status of meetings in the list for current moment in time.
+     * Writes all data to the file in the given format.
+     *
+     * @param path file to be written
+     * @param format of the file
+     */
+    private void write(Path path, StoreFormat format) {
+        long stamp = lock.readLock();
+        try {
+            writeTo(path, format, false);
+        } catch (JAXBException | IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Executor flushExecutor() {
+        if (flushExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "contact-manager-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            flushExecutor = executor;
+        }
+        return flushExecutor;
+    }
+
+    /**
+     * Runs requested flush. From now on new requests are not coalesced into it,
+     * as it may have copied the data already.
+     *
+     * @param flush future of the request
+     */
+    private void runFlush(CompletableFuture<Void> flush) {
+        try {
+            synchronized (saveLock) {
+                synchronized (flushLock) {
+                    if (pendingFlush == flush) pendingFlush = null;
+                }
+                long start = System.nanoTime();
+                long bytes = read(this::copy).writeAtomically(storePath, storeFormat);
+                recordSnapshot(start, bytes);
+            }
+            flush.complete(null);
+        } catch (IOException | JAXBException | RuntimeException e) {
+            flush.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Returns detached manager holding copies of the contact set and meeting list, only to be written.
+     * Contacts and meetings themselves are shared. The caller holds the lock.
+     *
+     * @return copy to be written
+     */
+    private ContactManagerImpl copy() {
+        ContactManagerImpl copy = new ContactManagerImpl();
+        copy.allContacts = new HashSet<>(allContacts);
+        copy.meetings = new ArrayList<>(meetings);
+        return copy;
+    }
+
+    /**
+     * Writes all data to a temporary file next to the target, forces it to disk and moves it
+     * over the target, forcing the directory too. The caller holds the lock or owns the manager.
+     *
+     * @param path file to be replaced
+     * @param format of the file
+     * @return size of the written file in bytes
+     */
+    private long writeAtomically(Path path, StoreFormat format) throws IOException, JAXBException {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            writeTo(temp, format, true);
+            long bytes = Files.size(temp);
+            moveAtomically(temp, path);
+            return bytes;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void recordSnapshot(long startNanos, long bytes) {
+        metrics.snapshotWrites.record(System.nanoTime() - startNanos);
+        metrics.snapshotBytes.add(bytes);
+    }
+
+    /**
+     * Writes all data to the file in the given format. The caller holds the lock.
+     *
+     * @param path file to be written
+     * @param format of the file
+     * @param force true to force the file to disk before returning
+     */
+    private void writeTo(Path path, StoreFormat format, boolean force) throws IOException, JAXBException {
+        try (FileChannel channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), FLUSH_BUFFER_SIZE);
+            if (format == StoreFormat.BINARY) {
+                BinarySnapshot.write(allContacts, meetings, out);
+            } else {
+                marshaller.get().marshal(this, out);
+            }
+            out.flush();
+            if (force) channel.force(true);
+        }
+    }
+
+    /**
+     * Appends record to the write-ahead log, if one is open. The caller holds the write lock.
+     *
+     * @param append appends the record
+     * @return position to wait for, zero if there is no log
+     * @throws UncheckedIOException if the record cannot be written
+     */
+    private long log(LogAppend append) {
+        if (log == null) return 0;
+        try {
+            return append.to(log);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long logMeeting(Meeting meeting) {
+        int[] participants = participantIds(meeting);
+        String notes = notesOf(meeting);
+        return log(log -> log.appendMeeting(meeting.getId(), meeting.getEpochMillis(), participants, notes));
+    }
+
+    private static int[] participantIds(Meeting meeting) {
+        return meeting.getContacts().stream().mapToInt(Contact::getId).toArray();
+    }
+
+    /**
+     * Returns notes of a past meeting or null for a future meeting, as logged.
      */
-    private static void updateStatusForNow() {
-        Calendar now = new GregorianCalendar();
-        updateStatus(now);
+    private static String notesOf(Meeting meeting) {
+        return (meeting instanceof PastMeeting) ? ((PastMeeting) meeting).getNotes() : null;
     }
 
     /**
-     * Updates status of meetings in the list.
+     * Waits until the logged mutation is durable and has the log compacted on the flush executor
+     * if it grew too big, so the writer does not wait for the snapshot.
+     * Called after the write lock is released, so concurrent writers share forcing the log.
      *
-     * @param date according to which list will be updated
+     * @param position returned by {@link #log(LogAppend)}
+     * @throws UncheckedIOException if the log cannot be forced
      */
-    private static void updateStatus(Calendar date) {
-        List<Meeting> casted = (List<Meeting>)meetings;
-        List<? super Meeting> updated = casted.stream()
-                .map(meeting -> {
-                    if (meeting.getDate().before(date)) {
-                        toPastMeeting(meeting);
-                    }
-                    return meeting;
-                })
-                .collect(Collectors.toList());
-        meetings = updated;
+    private void commit(long position) {
+        WriteAheadLog current = log;
+        if (current == null || position == 0) return;
+        try {
+            current.awaitDurable(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (current.size() >= compactAfterBytes && compacting.compareAndSet(false, true)) {
+            Executor executor;
+            synchronized (flushLock) {
+                executor = flushExecutor();
+            }
+            try {
+                executor.execute(this::runCompaction);
+            } catch (RejectedExecutionException e) {
+                compacting.set(false);
+            }
+        }
     }
 
+    /**
+     * Runs compaction triggered by a writer. If it fails, the log is kept
+     * and compaction is retried after the next write.
+     */
+    private void runCompaction() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            compacting.set(false);
+        }
+    }
 
     /**
-     * Helper method. Returns value of optional.
+     * Logs and publishes notes added directly to one of the contacts.
      *
-     * @param matchedMeeting optional of a meeting
+     * @param contact with added notes
+     */
+    private void contactNotesAdded(Contact contact) {
+        ChangeFeed feed = changes;
+        if (log == null && (feed == null || !feed.hasListeners())) return;
+
+        long position;
+        long stamp = lock.writeLock();
+        try {
+            position = log(log -> log.appendContactNotes(contact.getId(), contact.getNotes()));
+            publish(ChangeEvent.notesAdded(contact));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        commit(position);
+    }
+
+    /**
+     * Queues event for the change listeners, if there are any. The caller holds the write lock.
+     */
+    private void publish(ChangeEvent event) {
+        ChangeFeed feed = changes;
+        if (feed != null) feed.publish(event);
+    }
+
+    /**
+     * Appends one record to the log.
+     */
+    private interface LogAppend {
+        long to(WriteAheadLog log) throws IOException;
+    }
+
+    /**
+     * Applies records of the write-ahead log. Records already contained in the state are skipped
+     * or overwrite it with the same values.
+     */
+    private class LogReplay implements WriteAheadLog.Replay {
+
+        @Override
+        public void contact(int id, String name, String notes) {
+            if (contactsById.containsKey(id)) return;
+
+            addContact(new ContactImpl(id, name, notes));
+            contactIds.observe(id);
+        }
+
+        @Override
+        public void contactNotes(int id, String notes) throws IOException {
+            Contact contact = contactsById.get(id);
+            if (!(contact instanceof ContactImpl)) throw new IOException("Unknown contact " + id);
+
+            ((ContactImpl) contact).restoreNotes(notes);
+        }
+
+        @Override
+        public void meeting(int id, long date, int[] participants, String notes) throws IOException {
+            if (meetingSlots.containsKey(id)) return;
+
+            Set<Contact> contacts = new HashSet<>(participants.length * 4 / 3 + 1);
+            for (int participant : participants) {
+                Contact contact = contactsById.get(participant);
+                if (contact == null) throw new IOException("Unknown participant " + participant);
+                contacts.add(contact);
+            }
+
+            addMeeting((notes == null) ? new FutureMeetingImpl(id, date, contacts) : new PastMeetingImpl(id, date, contacts, notes));
+            meetingIds.observe(id);
+        }
+
+        @Override
+        public void meetingNotes(int id, String notes) throws IOException {
+            Meeting meeting = findMeetingBy(id);
+            if (meeting == null) throw new IOException("Unknown meeting " + id);
+
+            meetings.set(meetingSlots.get(id), new PastMeetingImpl(id, meeting.getEpochMillis(), meeting.getContacts(), notes));
+        }
+    }
+
+    private ContactManagerMetrics createMetrics() {
+        ContactManagerMetrics metrics = new ContactManagerMetrics();
+        metrics.size("contacts", () -> contactsById.size());
+        metrics.size("meetings", () -> meetings.size());
+        metrics.size("upcomingMeetings", () -> upcomingMeetings.size());
+        metrics.size("index.meetingTimes", () -> meetingTimes.size());
+        metrics.size("index.contactMeetings", () -> contactMeetings.size());
+        metrics.size("index.contactNames", () -> contactNames.size());
+        metrics.size("index.contactPrefixes", () -> contactPrefixes.size());
+        metrics.size("log.bytes", () -> {
+            WriteAheadLog log = this.log;
+            return (log == null) ? 0 : log.size();
+        });
+        return metrics;
+    }
+
+    private static ScheduledThreadPoolExecutor createTransitionTimers() {
+        ScheduledThreadPoolExecutor timers = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "contact-manager-transitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //timers are moved often as meetings are added, cancelled ones must not pile up
+        timers.setRemoveOnCancelPolicy(true);
+        return timers;
+    }
+
+    /**
+     * Creates marshaller from the shared JAXB context.
+     *
+     * @return new marshaller
+     */
+    private static Marshaller createMarshaller() {
+        try {
+            return JaxbContextHolder.CONTEXT.createMarshaller();
+        } catch (JAXBException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates JAXB context once, on first flush. Building it introspects all mapped classes.
+     */
+    private static class JaxbContextHolder {
+        private static final JAXBContext CONTEXT;
+
+        static {
+            try {
+                CONTEXT = JAXBContext.newInstance(ContactManagerImpl.class);
+            } catch (JAXBException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
+    /**
+     * Runs a query holding the shared lock.
+     *
+     * @param query to be run
+     * @param <T> type of the result
+     * @return result of the query
+     */
+    private <T> T read(Supplier<T> query) {
+        long stamp = lock.readLock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Runs a short query without locking and validates that no write happened meanwhile.
+     * Otherwise the result, or any exception caused by seeing a write in progress, is discarded
+     * and the query is run again holding the shared lock.
+     *
+     * @param query to be run, must not have side effects
+     * @param <T> type of the result
+     * @return result of the query
+     */
+    private <T> T readOptimistically(Supplier<T> query) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = query.get();
+                if (lock.validate(stamp)) return result;
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) throw e;
+            }
+        }
+        return read(query);
+    }
+
+    /**
+     * Tests if the date is after the current time of the clock.
+     *
+     * @param date to be tested
+     * @return true if date is in the future
+     */
+    private boolean isFuture(Calendar date) {
+        return isFuture(date.getTimeInMillis());
+    }
+
+    private boolean isFuture(long date) {
+        return date > clock.millis();
+    }
+
+    /**
+     * Replaces upcoming meetings up to the time in place by past meetings and sets the timer
+     * to the next upcoming one. The caller holds the write lock.
+     *
+     * Queries do not depend on this, they derive past or future status from the date of a meeting.
+     *
+     * @param time inclusive, in epoch millis
+     * @return converted meetings, earliest first
+     */
+    private List<PastMeeting> transitionUpTo(long time) {
+        List<PastMeeting> converted = new ArrayList<>();
+        upcomingMeetings.pollUpTo(time, id -> {
+            Meeting meeting = findMeetingBy(id);
+            if (meeting == null || meeting instanceof PastMeeting) return;
+
+            PastMeeting past = toPastMeeting(meeting);
+            meetings.set(meetingSlots.get(id), past);
+            converted.add(past);
+            publish(ChangeEvent.meetingBecamePast(past));
+        });
+
+        cancelTransitionTimer();
+        scheduleTransition(upcomingMeetings.earliest());
+        return converted;
+    }
+
+    /**
+     * Sets the timer to the time unless it is set to an earlier one. The caller holds the write lock.
+     *
+     * @param time epoch millis of an upcoming meeting, Long.MAX_VALUE for none
+     */
+    private void scheduleTransition(long time) {
+        if (time >= nextTransition) return;
+
+        cancelTransitionTimer();
+        nextTransition = time;
+        long delay = Math.max(0, time - clock.millis());
+        //the timer must not keep a manager which is no longer used in memory
+        WeakReference<ContactManagerImpl> manager = new WeakReference<>(this);
+        transitionTimer = transitionTimers.schedule(() -> {
+            ContactManagerImpl cm = manager.get();
+            if (cm != null) cm.transitionDueMeetings();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tells the listeners about meetings converted because their time came. The caller does not hold the lock.
+     *
+     * @param converted meetings, earliest first
+     */
+    private void tellPastMeetingListeners(List<PastMeeting> converted) {
+        for (PastMeeting meeting : converted) {
+            for (Consumer<? super PastMeeting> listener : pastMeetingListeners) {
+                try {
+                    listener.accept(meeting);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void cancelTransitionTimer() {
+        if (transitionTimer != null) transitionTimer.cancel(false);
+        transitionTimer = null;
+        nextTransition = Long.MAX_VALUE;
+    }
+
+
+    /**
+     * Helper method. Returns meeting as a past meeting.
+     *
+     * @param meeting matched meeting or null
      * @return past meeting or null
-     * @throws IllegalArgumentException if date of meeting is in future
+     * @throws IllegalStateException if date of meeting is in future
      */
-    private PastMeeting returnPastOrThrow(Optional<Meeting> matchedMeeting) {
-        if (!matchedMeeting.isPresent()) {
+    private PastMeeting returnPastOrThrow(Meeting meeting) {
+        if (meeting == null) {
             return null;
         } else {
-            Meeting meeting = matchedMeeting.get();
-            if (isFuture(meeting.getDate()))throw new IllegalStateException();
+            if (isFuture(meeting.getEpochMillis()))throw new IllegalStateException();
             return toPastMeeting(meeting);
         }
     }
 
     /**
-     * Wrapper method. Returns meeting or null if optional is empty.
+     * Returns meeting as a past meeting if its time came but the timer has not converted it yet,
+     * otherwise as it is stored.
      *
-     * @param matchedMeeting optional of a meeting
-     * @return meeting or null
+     * @param meeting matched meeting or null
+     * @return meeting with the status given by the clock, or null
      */
-    private Meeting returnMeetingOrNull(Optional<Meeting> matchedMeeting) {
-       return (matchedMeeting.isPresent()) ? matchedMeeting.get() : null;
+    private Meeting withCurrentStatus(Meeting meeting) {
+        if (meeting == null || meeting instanceof PastMeeting || isFuture(meeting.getEpochMillis())) return meeting;
+        return toPastMeeting(meeting);
     }
 
     /**
-     * Wrapper method. Returns value of meeting or null. If meeting is in the past throws an exception.
+     * Wrapper method. Returns meeting as a future meeting or null. If meeting is in the past throws an exception.
      *
-     * @param matchedMeeting optional of a meeting
-     * @return past meeting or null
-     * @throws IllegalArgumentException if date of meeting is in future
+     * @param meeting matched meeting or null
+     * @return future meeting or null
+     * @throws IllegalArgumentException if date of meeting is in past
      */
-    private FutureMeeting returnFutureOrThrow(Optional<Meeting> matchedMeeting) {
-        if (!matchedMeeting.isPresent()) {
+    private FutureMeeting returnFutureOrThrow(Meeting meeting) {
+        if (meeting == null) {
             return null;
         } else {
-            Meeting meeting = matchedMeeting.get();
-            if (!isFuture(meeting.getDate()))throw new IllegalArgumentException("Invalid ID for future meeting.");
+            if (!isFuture(meeting.getEpochMillis()))throw new IllegalArgumentException("Invalid ID for future meeting.");
             return toFutureMeeting(meeting);
         }
     }
 
     /**
-     * Returns Optional<Meeting> by given id.
+     * Returns meeting by given id using the ID index.
      *
      * @param id of a meeting to be found
-     * @return Optional of a meeting
+     * @return meeting or null if there is none
+     */
+    private Meeting findMeetingBy(int id) {
+        Integer slot = meetingSlots.get(id);
+        return (slot == null) ? null : (Meeting) meetings.get(slot);
+    }
+
+    /**
+     * Returns meetings in the time range using the date index.
+     *
+     * @param from inclusive start in epoch millis
+     * @param to exclusive end in epoch millis
+     * @return list of meetings, latest first
+     */
+    private List<Meeting> findMeetingsBetween(long from, long to) {
+        List<Meeting> result = new ArrayList<>();
+        meetingTimes.forEachBetween(from, to, id -> result.add(withCurrentStatus(findMeetingBy(id))));
+        return result;
+    }
+
+    /**
+     * Creates contacts from validated names and notes, taking the lock, reserving IDs
+     * and appending to the log once.
+     *
+     * @param contacts names and notes of the contacts to be created
+     * @return created contacts, in the order of the list
+     */
+    private List<Contact> createContacts(List<NewContact> contacts) {
+        List<Contact> created = new ArrayList<>(contacts.size());
+        if (contacts.isEmpty()) return created;
+
+        long position;
+        long stamp = lock.writeLock();
+        try {
+            int firstId = contactIds.nextRange(contacts.size());
+            for (int i = 0; i < contacts.size(); i++) {
+                created.add(new ContactImpl(firstId + i, contacts.get(i).getName(), contacts.get(i).getNotes()));
+            }
+            position = log(log -> {
+                WriteAheadLog.Batch batch = new WriteAheadLog.Batch();
+                for (Contact contact : created) {
+                    batch.addContact(contact.getId(), contact.getName(), contact.getNotes());
+                }
+                return log.append(batch);
+            });
+            contactsById.ensureCapacity(contactsById.size() + created.size());
+            for (Contact contact : created) {
+                addContact(contact);
+                publish(ChangeEvent.contactAdded(contact));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        commit(position);
+        return created;
+    }
+
+    /**
+     * Adds meetings, taking the lock, validating participants against the index, reserving IDs
+     * and appending to the log once.
+     *
+     * @param meetings participants, dates and notes of the meetings to be added
+     * @param futureOnly true if meetings without notes must lie in the future
+     * @return the IDs for the new meetings, in the order of the list
+     * @throws IllegalArgumentException if any contact is unknown or a future meeting is not in the future
+     */
+    private int[] createMeetings(List<NewMeeting> meetings, boolean futureOnly) {
+        int[] ids = new int[meetings.size()];
+        if (ids.length == 0) return ids;
+
+        long position;
+        List<PastMeeting> converted;
+        long stamp = lock.writeLock();
+        try {
+            for (NewMeeting meeting : meetings) {
+                if ((futureOnly && !meeting.isPast() && !isFuture(meeting.getDate())) || !areKnown(meeting.getContacts())) {
+                    throw new IllegalArgumentException();
+                }
+            }
+
+            int firstId = meetingIds.nextRange(ids.length);
+            List<Meeting> created = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                NewMeeting meeting = meetings.get(i);
+                ids[i] = firstId + i;
+                created.add(meeting.isPast()
+                        ? new PastMeetingImpl(ids[i], meeting.getDate(), meeting.getContacts(), meeting.getNotes())
+                        : new FutureMeetingImpl(ids[i], meeting.getDate(), meeting.getContacts()));
+            }
+            position = log(log -> {
+                WriteAheadLog.Batch batch = new WriteAheadLog.Batch();
+                for (Meeting meeting : created) {
+                    batch.addMeeting(meeting.getId(), meeting.getEpochMillis(), participantIds(meeting), notesOf(meeting));
+                }
+                return log.append(batch);
+            });
+            meetingSlots.ensureCapacity(meetingSlots.size() + ids.length);
+            if (this.meetings instanceof ArrayList) ((ArrayList<?>) this.meetings).ensureCapacity(this.meetings.size() + ids.length);
+            for (Meeting meeting : created) {
+                addMeeting(meeting);
+                publish(ChangeEvent.meetingScheduled(meeting));
+            }
+            //imported future meetings may be due already
+            converted = futureOnly ? Collections.emptyList() : transitionUpTo(clock.millis());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        commit(position);
+        tellPastMeetingListeners(converted);
+        return ids;
+    }
+
+    /**
+     * Tests if all contacts are contacts of this manager, using the ID index.
+     *
+     * @param contacts to be tested
+     * @return false if any contact is null or unknown
+     * @throws NullPointerException if the set is null
      */
-    private Optional<Meeting> findMeetingBy(int id) {
-        return filterAnyMeetingsWithID(meetings, id).stream().findFirst();
+    private boolean areKnown(Set<Contact> contacts) {
+        for (Contact contact : contacts) {
+            if (contact == null) return false;
+
+            Contact known = contactsById.get(contact.getId());
+            if (known == null || !(known == contact || contact.equals(known))) return false;
+        }
+        return true;
     }
 
+    /**
+     * Adds contact to the set and indexes it by ID and name.
+     *
+     * @param contact to be added
+     */
+    private void addContact(Contact contact) {
+        listenToNotes(contact);
+        allContacts.add(contact);
+        contactsById.put(contact.getId(), contact);
+        contactNames.add(contact.getId(), contact.getName());
+        contactPrefixes.add(contact.getId(), contact.getName());
+    }
+
+    private void listenToNotes(Contact contact) {
+        if (contact instanceof ContactImpl) ((ContactImpl) contact).setNotesListener(this::contactNotesAdded);
+    }
 
     /**
-     * Generates unique id based on ids of elements in a collection.
+     * Rebuilds indexes from the current set of contacts and restores contact ID allocation.
+     */
+    private void reindexContacts() {
+        contactsById = new IntMap<>(allContacts.size());
+        contactNames = new TrigramIndex();
+        contactPrefixes = new PrefixIndex();
+        int maxId = 0;
+        for (Contact contact : allContacts) {
+            listenToNotes(contact);
+            contactsById.put(contact.getId(), contact);
+            contactNames.add(contact.getId(), contact.getName());
+            contactPrefixes.add(contact.getId(), contact.getName());
+            maxId = Math.max(maxId, contact.getId());
+        }
+        contactIds.restore(maxId);
+    }
+
+    /**
+     * Appends meeting to the list and indexes it by ID and date.
      *
-     * @param collection with existing elements
-     * @param <T> type of elements
-     * @return int ID unique for this collection
+     * @param meeting to be added
      */
-    private static <T> int generateUniqueId(Collection<T> collection) {
-        return generateNewNumber(getExistingIDsOf(collection));
+    private void addMeeting(Meeting meeting) {
+        meetings.add(meeting);
+        meetingSlots.put(meeting.getId(), meetings.size() - 1);
+        meetingTimes.add(meeting.getEpochMillis(), meeting.getId());
+        indexParticipants(meeting);
+        if (!(meeting instanceof PastMeeting)) {
+            upcomingMeetings.add(meeting.getEpochMillis(), meeting.getId());
+            scheduleTransition(meeting.getEpochMillis());
+        }
     }
 
     /**
-     * Returns all IDs of a given collection, where element have getId method.
+     * Adds meeting to the inverted index of every participant.
      *
-     * @param collection to collect with elements with IDs
-     * @param <T> type of elements
-     * @return Set of all unique IDs of elements of a collection
+     * @param meeting to be indexed
+     */
+    private void indexParticipants(Meeting meeting) {
+        long time = meeting.getEpochMillis();
+        for (Contact contact : meeting.getContacts()) {
+            TimeIndex contactTimes = contactMeetings.get(contact.getId());
+            if (contactTimes == null) {
+                contactTimes = new TimeIndex();
+                contactMeetings.put(contact.getId(), contactTimes);
+            }
+            contactTimes.add(time, meeting.getId());
+        }
+    }
+
+    /**
+     * Rebuilds indexes from the current list of meetings and restores meeting ID allocation.
      */
-    private static <T> Set<Integer> getExistingIDsOf(Collection<T> collection) {
-        return collection.stream()
-                .map(object -> {
-                    int id = 0;
-                    try {
-                        id = (int) object.getClass().getMethod("getId").invoke(object);
-                    } catch (NoSuchMethodException e) {
-                        e.printStackTrace();
-                    } catch (InvocationTargetException e) {
-                        e.printStackTrace();
-                    } catch (IllegalAccessException e) {
-                        e.printStackTrace();
-                    }
-                    return id;
-                })
-                .collect(Collectors.toSet());
+    private void reindexMeetings() {
+        meetingSlots = new IntMap<>(meetings.size());
+        meetingTimes = new TimeIndex();
+        upcomingMeetings = new TimeIndex();
+        contactMeetings = new IntMap<>();
+        int maxId = 0;
+        for (int i = 0; i < meetings.size(); i++) {
+            Meeting meeting = (Meeting) meetings.get(i);
+            meetingSlots.put(meeting.getId(), i);
+            meetingTimes.add(meeting.getEpochMillis(), meeting.getId());
+            indexParticipants(meeting);
+            if (!(meeting instanceof PastMeeting)) upcomingMeetings.add(meeting.getEpochMillis(), meeting.getId());
+            maxId = Math.max(maxId, meeting.getId());
+        }
+        meetingIds.restore(maxId);
+        cancelTransitionTimer();
+        scheduleTransition(upcomingMeetings.earliest());
     }
 
+
     /**
      * Helper method to convert meeting to PastMeeting.
      *
@@ -482,7 +1857,7 @@ public class ContactManagerImpl implements ContactManager {
 
         String fullNotes = stringBuilder.append(" " + notes).toString().trim();
 
-        return new PastMeetingImpl(meeting.getId(), meeting.getDate(), meeting.getContacts(), fullNotes);
+        return new PastMeetingImpl(meeting.getId(), meeting.getEpochMillis(), meeting.getContacts(), fullNotes);
     }
 
     /**
@@ -492,14 +1867,21 @@ public class ContactManagerImpl implements ContactManager {
      * @return copy of a meeting with FutureMeeting type
      */
     private static FutureMeeting toFutureMeeting(Meeting meeting) {
-        return new FutureMeetingImpl(meeting.getId(), meeting.getDate(), meeting.getContacts());
+        return new FutureMeetingImpl(meeting.getId(), meeting.getEpochMillis(), meeting.getContacts());
     }
 
     /**
      * Wrapper method for testing purposes;
      * @param date
+     * @deprecated status follows the clock, set a {@link utils.ManualClock} instead
      */
-    public static void testUpdateStatus(Calendar date) {
-        updateStatus(date);
+    @Deprecated
+    public void testUpdateStatus(Calendar date) {
+        long stamp = lock.writeLock();
+        try {
+            transitionUpTo(date.getTimeInMillis() - 1);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 }
@@ -0,0 +1,132 @@
+import utils.LatencyHistogram;
+import utils.MetricsRegistry;
+import utils.OperationMetrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Built-in instrumentation of one contact manager: calls, errors and latency of every
+ * {@link interfaces.ContactManager} method, sizes of the data and the indexes, and
+ * duration and size of snapshots written by flush and compaction.
+ *
+ * Operations are named after the methods, getContacts is split into getContactsByName
+ * and getContactsById. Sizes are read without locking and may be slightly out of date.
+ */
+public class ContactManagerMetrics {
+    final OperationMetrics addFutureMeeting = new OperationMetrics();
+    final OperationMetrics getPastMeeting = new OperationMetrics();
+    final OperationMetrics getFutureMeeting = new OperationMetrics();
+    final OperationMetrics getMeeting = new OperationMetrics();
+    final OperationMetrics getFutureMeetingList = new OperationMetrics();
+    final OperationMetrics getMeetingListOn = new OperationMetrics();
+    final OperationMetrics getMeetingsBetween = new OperationMetrics();
+    final OperationMetrics getPastMeetingListFor = new OperationMetrics();
+    final OperationMetrics addNewPastMeeting = new OperationMetrics();
+    final OperationMetrics addMeetingNotes = new OperationMetrics();
+    final OperationMetrics addNewContact = new OperationMetrics();
+    final OperationMetrics addNewContacts = new OperationMetrics();
+    final OperationMetrics addMeetings = new OperationMetrics();
+    final OperationMetrics getContactsByName = new OperationMetrics();
+    final OperationMetrics suggestContacts = new OperationMetrics();
+    final OperationMetrics getContactsById = new OperationMetrics();
+    final OperationMetrics flush = new OperationMetrics();
+
+    //time spent writing snapshots, without waiting for a flush to start
+    final LatencyHistogram snapshotWrites = new LatencyHistogram();
+    final LongAdder snapshotBytes = new LongAdder();
+
+    private final Map<String, OperationMetrics> operations = new LinkedHashMap<>();
+    private final Map<String, LongSupplier> sizes = new LinkedHashMap<>();
+
+    ContactManagerMetrics() {
+        operations.put("addFutureMeeting", addFutureMeeting);
+        operations.put("getPastMeeting", getPastMeeting);
+        operations.put("getFutureMeeting", getFutureMeeting);
+        operations.put("getMeeting", getMeeting);
+        operations.put("getFutureMeetingList", getFutureMeetingList);
+        operations.put("getMeetingListOn", getMeetingListOn);
+        operations.put("getMeetingsBetween", getMeetingsBetween);
+        operations.put("getPastMeetingListFor", getPastMeetingListFor);
+        operations.put("addNewPastMeeting", addNewPastMeeting);
+        operations.put("addMeetingNotes", addMeetingNotes);
+        operations.put("addNewContact", addNewContact);
+        operations.put("addNewContacts", addNewContacts);
+        operations.put("addMeetings", addMeetings);
+        operations.put("getContactsByName", getContactsByName);
+        operations.put("suggestContacts", suggestContacts);
+        operations.put("getContactsById", getContactsById);
+        operations.put("flush", flush);
+    }
+
+    /**
+     * Adds size reported as a gauge. Called by the manager when it is created.
+     */
+    void size(String name, LongSupplier size) {
+        sizes.put(name, size);
+    }
+
+    /**
+     * Returns metrics of the operation.
+     *
+     * @param name of the operation, e.g. "addNewContact"
+     * @return metrics of the operation, or null if there is no such operation
+     */
+    public OperationMetrics getOperation(String name) {
+        return operations.get(name);
+    }
+
+    public Map<String, OperationMetrics> getOperations() {
+        return Collections.unmodifiableMap(operations);
+    }
+
+    /**
+     * Sets latency sampling of all operations, see {@link OperationMetrics#setLatencySampling(int)}.
+     *
+     * @param oneIn 1 to time every call, otherwise a power of two
+     * @throws IllegalArgumentException if the value is not a positive power of two
+     */
+    public void setLatencySampling(int oneIn) {
+        for (OperationMetrics operation : operations.values()) {
+            operation.setLatencySampling(oneIn);
+        }
+    }
+
+    /**
+     * Returns current size.
+     *
+     * @param name e.g. "contacts", "meetings" or "index.contactNames"
+     * @return the size, or -1 if there is no such size
+     */
+    public long getSize(String name) {
+        LongSupplier size = sizes.get(name);
+        return (size == null) ? -1 : size.getAsLong();
+    }
+
+    public LatencyHistogram getSnapshotWrites() {
+        return snapshotWrites;
+    }
+
+    public long getSnapshotBytes() {
+        return snapshotBytes.sum();
+    }
+
+    /**
+     * Registers all metrics with the registry: operations under their names, sizes
+     * as gauges under "size." and their names, and snapshot writes as "snapshot.writes"
+     * and "snapshot.bytes".
+     *
+     * @param registry to register with
+     */
+    public void bindTo(MetricsRegistry registry) {
+        if (registry == null) throw new NullPointerException();
+
+        operations.forEach((name, operation) -> operation.bindTo(registry, name));
+        sizes.forEach((name, size) -> registry.gauge("size." + name, size));
+        registry.histogram("snapshot.writes", snapshotWrites);
+        registry.counter("snapshot.bytes", snapshotBytes::sum);
+    }
+}
@@ -0,0 +1,267 @@
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Holds independent contact managers, one per tenant.
+ *
+ * A tenant's manager is loaded lazily on first access. When more than the configured
+ * number of tenants are active, the least recently used ones are evicted, so memory
+ * grows with the number of active tenants rather than with all of them.
+ * Tenants idle for too long can be evicted explicitly with {@link #evictIdle(long)}.
+ *
+ * Evicted managers are handed to the unloader, which is the place to persist them. Unloading
+ * after an access went over the limit runs on the unload executor, so the accessing caller does
+ * not pay for persisting another tenant. A tenant accessed while it is being unloaded is loaded
+ * again only once the unloader has finished, so the loader sees what the unloader persisted.
+ * Loading runs on the first caller asking for the tenant, other callers for the same tenant wait for it.
+ *
+ * Callers should look a manager up for every unit of work instead of holding on to it,
+ * otherwise their changes may land in a manager which was already evicted.
+ */
+public class ContactManagerRegistry {
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+    //tenant ID -> completed once the unloader of the evicted manager has finished
+    private final Map<String, CompletableFuture<Void>> unloading = new ConcurrentHashMap<>();
+    //guards adding and removing tenants together with the unloading map, never held for loading or unloading
+    private final Object transitions = new Object();
+    private final int maxActive;
+    private final Function<String, ContactManagerImpl> loader;
+    private final BiConsumer<String, ContactManagerImpl> unloader;
+    private final Executor unloadExecutor;
+
+    /**
+     * Creates registry of empty, in-memory contact managers.
+     *
+     * @param maxActive maximum number of tenants kept in memory
+     */
+    public ContactManagerRegistry(int maxActive) {
+        this(maxActive, tenantId -> new ContactManagerImpl(), (tenantId, manager) -> {});
+    }
+
+    /**
+     * Creates registry unloading evicted tenants on a background thread.
+     *
+     * @param maxActive maximum number of tenants kept in memory
+     * @param loader creates or restores the manager of a tenant
+     * @param unloader called with every evicted manager
+     * @throws IllegalArgumentException if maxActive is not positive
+     * @throws NullPointerException if loader or unloader are null
+     */
+    public ContactManagerRegistry(int maxActive, Function<String, ContactManagerImpl> loader,
+                                  BiConsumer<String, ContactManagerImpl> unloader) {
+        this(maxActive, loader, unloader, createUnloadExecutor());
+    }
+
+    /**
+     * Creates registry.
+     *
+     * @param maxActive maximum number of tenants kept in memory
+     * @param loader creates or restores the manager of a tenant
+     * @param unloader called with every evicted manager
+     * @param unloadExecutor runs the unloader of tenants evicted because the limit was exceeded
+     * @throws IllegalArgumentException if maxActive is not positive
+     * @throws NullPointerException if loader, unloader or executor are null
+     */
+    public ContactManagerRegistry(int maxActive, Function<String, ContactManagerImpl> loader,
+                                  BiConsumer<String, ContactManagerImpl> unloader, Executor unloadExecutor) {
+        if (loader == null || unloader == null || unloadExecutor == null) {
+            throw new NullPointerException();
+        } else if (maxActive < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.maxActive = maxActive;
+        this.loader = loader;
+        this.unloader = unloader;
+        this.unloadExecutor = unloadExecutor;
+    }
+
+    /**
+     * Returns the manager of the tenant, loading it if it is not active.
+     * Waits if the tenant is being loaded by another caller or is still being unloaded.
+     *
+     * @param tenantId ID of the tenant
+     * @return contact manager of the tenant
+     * @throws NullPointerException if tenantId is null
+     * @throws RuntimeException thrown by the loader
+     */
+    public ContactManagerImpl get(String tenantId) {
+        if (tenantId == null) throw new NullPointerException();
+
+        Tenant tenant = tenants.get(tenantId);
+        if (tenant == null) {
+            Tenant created = null;
+            CompletableFuture<Void> unload = null;
+            synchronized (transitions) {
+                tenant = tenants.get(tenantId);
+                if (tenant == null) {
+                    tenant = created = new Tenant();
+                    tenants.put(tenantId, created);
+                    unload = unloading.get(tenantId);
+                }
+            }
+            if (created != null) load(tenantId, created, unload);
+        }
+        ContactManagerImpl manager = tenant.await();
+        tenant.touch();
+        while (tenants.size() > maxActive) {
+            if (!evictLeastRecentlyUsed(tenantId)) break;
+        }
+        return manager;
+    }
+
+    /**
+     * Evicts the tenant if it is active, running the unloader on the calling thread.
+     * A tenant which is still being loaded is not evicted.
+     *
+     * @param tenantId ID of the tenant
+     * @return true if the tenant was evicted
+     */
+    public boolean evict(String tenantId) {
+        Tenant tenant = tenants.get(tenantId);
+        return tenant != null && evict(tenantId, tenant, Runnable::run);
+    }
+
+    /**
+     * Evicts all tenants not accessed for the given time, running the unloader on the calling thread.
+     *
+     * @param idleMillis idle time in milliseconds
+     * @return number of evicted tenants
+     */
+    public int evictIdle(long idleMillis) {
+        long threshold = System.nanoTime() - idleMillis * 1_000_000;
+        int evicted = 0;
+        for (Map.Entry<String, Tenant> entry : tenants.entrySet()) {
+            if (entry.getValue().lastAccess - threshold <= 0 && evict(entry.getKey(), entry.getValue(), Runnable::run)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns true if the manager of the tenant is in memory.
+     *
+     * @param tenantId ID of the tenant
+     * @return true if active
+     */
+    public boolean isActive(String tenantId) {
+        return tenants.containsKey(tenantId);
+    }
+
+    /**
+     * Returns number of tenants in memory.
+     *
+     * @return number of active tenants
+     */
+    public int size() {
+        return tenants.size();
+    }
+
+    //HELPER METHODS
+
+    /**
+     * Loads the manager into the placeholder, after the running unload of the tenant has finished.
+     *
+     * @param unload running unload, or null
+     */
+    private void load(String tenantId, Tenant tenant, CompletableFuture<Void> unload) {
+        try {
+            if (unload != null) unload.join();
+            tenant.manager.complete(loader.apply(tenantId));
+        } catch (RuntimeException e) {
+            synchronized (transitions) {
+                tenants.remove(tenantId, tenant);
+            }
+            tenant.manager.completeExceptionally(e);
+        }
+    }
+
+    private boolean evictLeastRecentlyUsed(String keep) {
+        String oldestId = null;
+        Tenant oldest = null;
+        for (Map.Entry<String, Tenant> entry : tenants.entrySet()) {
+            Tenant tenant = entry.getValue();
+            if (!entry.getKey().equals(keep) && tenant.isLoaded() && (oldest == null || tenant.lastAccess - oldest.lastAccess < 0)) {
+                oldestId = entry.getKey();
+                oldest = tenant;
+            }
+        }
+        return oldest != null && evict(oldestId, oldest, unloadExecutor);
+    }
+
+    /**
+     * Removes the loaded tenant and runs its unloader on the executor. Until the unloader has
+     * finished, the tenant is registered as unloading, so it is not loaded again meanwhile.
+     */
+    private boolean evict(String tenantId, Tenant tenant, Executor executor) {
+        CompletableFuture<Void> unloaded = new CompletableFuture<>();
+        synchronized (transitions) {
+            if (!tenant.isLoaded() || !tenants.remove(tenantId, tenant)) return false;
+            //a previous unload of the tenant has finished, as the tenant was loaded after it
+            unloading.put(tenantId, unloaded);
+        }
+
+        Runnable unload = () -> {
+            try {
+                unloader.accept(tenantId, tenant.manager.join());
+            } finally {
+                synchronized (transitions) {
+                    unloading.remove(tenantId, unloaded);
+                }
+                unloaded.complete(null);
+            }
+        };
+        try {
+            executor.execute(unload);
+        } catch (RejectedExecutionException e) {
+            unload.run();
+        }
+        return true;
+    }
+
+    private static Executor createUnloadExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "contact-manager-unload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Tenant with its manager, which is being loaded until the future completes, and the time of its last access.
+     */
+    private static class Tenant {
+        private final CompletableFuture<ContactManagerImpl> manager = new CompletableFuture<>();
+        private volatile long lastAccess;
+
+        private Tenant() {
+            touch();
+        }
+
+        private boolean isLoaded() {
+            return manager.isDone() && !manager.isCompletedExceptionally();
+        }
+
+        /**
+         * Waits until the manager is loaded.
+         *
+         * @throws RuntimeException thrown by the loader
+         */
+        private ContactManagerImpl await() {
+            try {
+                return manager.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw e;
+            }
+        }
+
+        private void touch() {
+            lastAccess = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,456 @@
+import interfaces.Contact;
+import interfaces.Meeting;
+import interfaces.PastMeeting;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Line oriented formats for exchanging contacts and meetings with other tools,
+ * written by {@link ExchangeWriter} and read by {@link ExchangeReader}.
+ *
+ * Contacts and meetings are written to separate streams, one record per contact or meeting.
+ * Participants of a meeting are given by the contact IDs of the same export. Dates are
+ * ISO-8601 instants in UTC, e.g. 2030-01-01T09:30:00Z. The type of a meeting is "future"
+ * or "past" as it was when exported, only past meetings have notes.
+ */
+public enum ExchangeFormat {
+    /**
+     * Comma separated values as of RFC 4180 with a header line. Contacts have the columns
+     * id,name,notes and meetings id,type,date,participants,notes with participant IDs
+     * separated by spaces. Fields containing commas, quotes or line breaks are quoted.
+     */
+    CSV {
+        @Override
+        String contactHeader() {
+            return "id,name,notes";
+        }
+
+        @Override
+        String meetingHeader() {
+            return "id,type,date,participants,notes";
+        }
+
+        @Override
+        void appendContact(StringBuilder out, Contact contact) {
+            out.append(contact.getId()).append(',');
+            appendCsvField(out, contact.getName());
+            out.append(',');
+            appendCsvField(out, contact.getNotes());
+            out.append('\n');
+        }
+
+        @Override
+        void appendMeeting(StringBuilder out, Meeting meeting) {
+            out.append(meeting.getId()).append(',').append(typeOf(meeting)).append(',')
+                    .append(Instant.ofEpochMilli(meeting.getEpochMillis())).append(',');
+            int[] participants = participantIds(meeting);
+            for (int i = 0; i < participants.length; i++) {
+                if (i > 0) out.append(' ');
+                out.append(participants[i]);
+            }
+            out.append(',');
+            if (meeting instanceof PastMeeting) appendCsvField(out, ((PastMeeting) meeting).getNotes());
+            out.append('\n');
+        }
+
+        @Override
+        ContactImpl parseContact(String record) {
+            List<String> fields = splitCsv(record, 3);
+            return new ContactImpl(Integer.parseInt(fields.get(0)), fields.get(1), fields.get(2));
+        }
+
+        @Override
+        MeetingImpl parseMeeting(String record) {
+            List<String> fields = splitCsv(record, 5);
+            Set<Contact> participants = new HashSet<>();
+            for (String participant : fields.get(3).split(" ")) {
+                if (!participant.isEmpty()) participants.add(stub(Integer.parseInt(participant)));
+            }
+            return meeting(Integer.parseInt(fields.get(0)), fields.get(1), fields.get(2), participants, fields.get(4));
+        }
+    },
+
+    /**
+     * One JSON object per line, {"id":1,"name":"Ann","notes":"likes tea"} for a contact and
+     * {"id":1,"type":"past","date":"2030-01-01T09:30:00Z","participants":[1,2],"notes":"went well"}
+     * for a meeting. Unknown fields are ignored when reading.
+     */
+    JSON_LINES {
+        @Override
+        String contactHeader() {
+            return null;
+        }
+
+        @Override
+        String meetingHeader() {
+            return null;
+        }
+
+        @Override
+        void appendContact(StringBuilder out, Contact contact) {
+            out.append("{\"id\":").append(contact.getId()).append(",\"name\":");
+            appendJsonString(out, contact.getName());
+            out.append(",\"notes\":");
+            appendJsonString(out, contact.getNotes());
+            out.append("}\n");
+        }
+
+        @Override
+        void appendMeeting(StringBuilder out, Meeting meeting) {
+            out.append("{\"id\":").append(meeting.getId())
+                    .append(",\"type\":\"").append(typeOf(meeting))
+                    .append("\",\"date\":\"").append(Instant.ofEpochMilli(meeting.getEpochMillis()))
+                    .append("\",\"participants\":[");
+            int[] participants = participantIds(meeting);
+            for (int i = 0; i < participants.length; i++) {
+                if (i > 0) out.append(',');
+                out.append(participants[i]);
+            }
+            out.append(']');
+            if (meeting instanceof PastMeeting) {
+                out.append(",\"notes\":");
+                appendJsonString(out, ((PastMeeting) meeting).getNotes());
+            }
+            out.append("}\n");
+        }
+
+        @Override
+        ContactImpl parseContact(String record) {
+            Map<String, Object> object = new JsonParser(record).parseObject();
+            String notes = (String) object.get("notes");
+            return new ContactImpl(intField(object, "id"), stringField(object, "name"), (notes == null) ? "" : notes);
+        }
+
+        @Override
+        MeetingImpl parseMeeting(String record) {
+            Map<String, Object> object = new JsonParser(record).parseObject();
+            Object ids = object.get("participants");
+            if (!(ids instanceof List)) throw new IllegalArgumentException("Expected array of participants");
+
+            Set<Contact> participants = new HashSet<>();
+            for (Object id : (List<?>) ids) {
+                if (!(id instanceof Long)) throw new IllegalArgumentException("Expected participant ID");
+                participants.add(stub(toInt((Long) id)));
+            }
+            return meeting(intField(object, "id"), stringField(object, "type"), stringField(object, "date"),
+                    participants, (String) object.get("notes"));
+        }
+    };
+
+    /**
+     * Returns first record of a contact stream.
+     *
+     * @return header, or null if the format has none
+     */
+    abstract String contactHeader();
+
+    /**
+     * Returns first record of a meeting stream.
+     *
+     * @return header, or null if the format has none
+     */
+    abstract String meetingHeader();
+
+    /**
+     * Appends record of the contact, including the line break.
+     */
+    abstract void appendContact(StringBuilder out, Contact contact);
+
+    /**
+     * Appends record of the meeting, including the line break.
+     */
+    abstract void appendMeeting(StringBuilder out, Meeting meeting);
+
+    /**
+     * Parses record of a contact.
+     *
+     * @param record without the line break
+     * @return contact with the ID of the export
+     * @throws RuntimeException if the record is malformed
+     */
+    abstract ContactImpl parseContact(String record);
+
+    /**
+     * Parses record of a meeting. Participants are contacts which hold only the ID of the export.
+     *
+     * @param record without the line break
+     * @return past or future meeting with the ID of the export
+     * @throws RuntimeException if the record is malformed
+     */
+    abstract MeetingImpl parseMeeting(String record);
+
+    //HELPER METHODS
+
+    private static String typeOf(Meeting meeting) {
+        return (meeting instanceof PastMeeting) ? "past" : "future";
+    }
+
+    private static int[] participantIds(Meeting meeting) {
+        int[] ids = meeting.getContacts().stream().mapToInt(Contact::getId).toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static Contact stub(int id) {
+        return new ContactImpl(id, null, null);
+    }
+
+    private static MeetingImpl meeting(int id, String type, String date, Set<Contact> participants, String notes) {
+        long millis = Instant.parse(date).toEpochMilli();
+        switch (type) {
+            case "past":
+                return new PastMeetingImpl(id, millis, participants, (notes == null) ? "" : notes);
+            case "future":
+                return new FutureMeetingImpl(id, millis, participants);
+            default:
+                throw new IllegalArgumentException("Unknown meeting type " + type);
+        }
+    }
+
+    private static void appendCsvField(StringBuilder out, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') out.append('"');
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    /**
+     * Splits CSV record into the expected number of fields, unquoting them.
+     */
+    private static List<String> splitCsv(String record, int expectedFields) {
+        List<String> fields = new ArrayList<>(expectedFields);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            if (i < record.length() && record.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= record.length()) throw new IllegalArgumentException("Quote is not closed");
+                    char c = record.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < record.length() && record.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < record.length() && record.charAt(i) != ',') throw new IllegalArgumentException("Expected comma after quote");
+            } else {
+                while (i < record.length() && record.charAt(i) != ',') {
+                    char c = record.charAt(i++);
+                    if (c == '"') throw new IllegalArgumentException("Quote inside unquoted field");
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            field.setLength(0);
+            if (i >= record.length()) break;
+            i++;
+        }
+        if (fields.size() != expectedFields) {
+            throw new IllegalArgumentException("Expected " + expectedFields + " fields but found " + fields.size());
+        }
+        return fields;
+    }
+
+    private static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private static int intField(Map<String, Object> object, String name) {
+        Object value = object.get(name);
+        if (!(value instanceof Long)) throw new IllegalArgumentException("Expected number " + name);
+        return toInt((Long) value);
+    }
+
+    private static String stringField(Map<String, Object> object, String name) {
+        Object value = object.get(name);
+        if (!(value instanceof String)) throw new IllegalArgumentException("Expected string " + name);
+        return (String) value;
+    }
+
+    private static int toInt(long value) {
+        if (value != (int) value) throw new IllegalArgumentException("Number out of range " + value);
+        return (int) value;
+    }
+
+    /**
+     * Parser of one flat JSON object, whose values are strings, integers, booleans, null
+     * or arrays of integers, which is all the records need.
+     */
+    private static class JsonParser {
+        private final String text;
+        private int position;
+
+        private JsonParser(String text) {
+            this.text = text;
+        }
+
+        private Map<String, Object> parseObject() {
+            Map<String, Object> object = new HashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                position++;
+            } else {
+                do {
+                    String name = parseString();
+                    expect(':');
+                    object.put(name, parseValue());
+                } while (next() == ',');
+                position--;
+                expect('}');
+            }
+            if (peek() != 0) throw error("Unexpected text after object");
+            return object;
+        }
+
+        private Object parseValue() {
+            char c = peek();
+            if (c == '"') {
+                return parseString();
+            } else if (c == '[') {
+                position++;
+                List<Long> values = new ArrayList<>();
+                if (peek() == ']') {
+                    position++;
+                    return values;
+                }
+                do {
+                    values.add(parseNumber());
+                } while (next() == ',');
+                position--;
+                expect(']');
+                return values;
+            } else if (c == '-' || (c >= '0' && c <= '9')) {
+                return parseNumber();
+            } else if (text.startsWith("null", position)) {
+                position += 4;
+                return null;
+            } else if (text.startsWith("true", position)) {
+                position += 4;
+                return Boolean.TRUE;
+            } else if (text.startsWith("false", position)) {
+                position += 5;
+                return Boolean.FALSE;
+            }
+            throw error("Unexpected value");
+        }
+
+        private long parseNumber() {
+            peek();
+            int start = position;
+            if (position < text.length() && text.charAt(position) == '-') position++;
+            while (position < text.length() && Character.isDigit(text.charAt(position))) {
+                position++;
+            }
+            if (position == start) throw error("Expected number");
+            return Long.parseLong(text.substring(start, position));
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) throw error("String is not closed");
+                char c = text.charAt(position++);
+                if (c == '"') return value.toString();
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) throw error("String is not closed");
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) throw error("Incomplete escape");
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            }
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) throw error("Expected " + expected);
+        }
+
+        /**
+         * Skips white space and returns the next character without consuming it, 0 at the end.
+         */
+        private char peek() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            return (position < text.length()) ? text.charAt(position) : 0;
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (position + 1));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+import interfaces.Contact;
+import interfaces.NewContact;
+import interfaces.NewMeeting;
+import interfaces.PastMeeting;
+import utils.IntMap;
+import utils.RecordReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Imports contacts and meetings in an {@link ExchangeFormat} into a contact manager,
+ * e.g. written by {@link ExchangeWriter} or exported from another tool.
+ *
+ * The input is read through buffers of fixed size and cut into chunks of records. Chunks are
+ * parsed in parallel on the parse executor while the calling thread applies the parsed chunks
+ * in their order, each as one batch of the manager, see {@link ContactManagerImpl#addNewContacts(List)}.
+ * Only a few chunks are in flight at any time, so memory does not grow with the input. The reader
+ * remembers which contact every read contact became, to resolve participants of meetings read later.
+ *
+ * Imported contacts and meetings get new IDs. Meetings keep the type they were exported with,
+ * a future meeting whose time has come meanwhile is converted by the manager as usual.
+ *
+ * If a record is malformed, the chunks before it are imported and the rest of the input is not.
+ */
+public class ExchangeReader {
+    static final int DEFAULT_CHUNK_SIZE = 1024;
+    private static final int MAX_CHUNKS_IN_FLIGHT = Math.max(2, 2 * Runtime.getRuntime().availableProcessors());
+
+    private final ContactManagerImpl cm;
+    private final ExchangeFormat format;
+    //contact ID of the input -> contact created for it
+    private final IntMap<Contact> contacts = new IntMap<>();
+    private Executor parseExecutor = ForkJoinPool.commonPool();
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Creates reader into the manager.
+     *
+     * @param cm manager to import into
+     * @param format of the read records
+     */
+    public ExchangeReader(ContactManagerImpl cm, ExchangeFormat format) {
+        if (cm == null || format == null) throw new NullPointerException();
+        this.cm = cm;
+        this.format = format;
+    }
+
+    /**
+     * Sets executor parsing chunks, the common fork join pool by default.
+     *
+     * @param parseExecutor executor of parsing
+     */
+    public void setParseExecutor(Executor parseExecutor) {
+        if (parseExecutor == null) throw new NullPointerException();
+        this.parseExecutor = parseExecutor;
+    }
+
+    /**
+     * Sets number of records parsed and applied together.
+     *
+     * @param chunkSize number of records
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) throw new IllegalArgumentException();
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads contacts from the channel, which is not closed, and creates them in the manager.
+     *
+     * @param in channel to read from
+     * @return number of created contacts
+     * @throws IOException if the channel cannot be read, a record is malformed
+     * or a contact ID was read before
+     */
+    public long readContacts(ReadableByteChannel in) throws IOException {
+        return read(in, format.contactHeader(), record -> {
+            ContactImpl contact = format.parseContact(record);
+            if (contact.getName() == null || contact.getName().isEmpty()) throw new IllegalArgumentException("Empty name");
+            return contact;
+        }, parsed -> {
+            List<NewContact> batch = new ArrayList<>(parsed.size());
+            Set<Integer> ids = new HashSet<>(parsed.size() * 4 / 3 + 1);
+            for (ContactImpl contact : parsed) {
+                if (contacts.containsKey(contact.getId()) || !ids.add(contact.getId())) {
+                    throw new IOException("Duplicate contact " + contact.getId());
+                }
+                batch.add(new NewContact(contact.getName(), contact.getNotes()));
+            }
+            List<Contact> created = cm.importContacts(batch);
+            for (int i = 0; i < created.size(); i++) {
+                contacts.put(parsed.get(i).getId(), created.get(i));
+            }
+        });
+    }
+
+    /**
+     * Reads meetings from the channel, which is not closed, and adds them to the manager.
+     * Participants must have been read by {@link #readContacts(ReadableByteChannel)} before.
+     *
+     * @param in channel to read from
+     * @return number of added meetings
+     * @throws IOException if the channel cannot be read, a record is malformed
+     * or a participant was not read before
+     */
+    public long readMeetings(ReadableByteChannel in) throws IOException {
+        return read(in, format.meetingHeader(), format::parseMeeting, parsed -> {
+            List<NewMeeting> batch = new ArrayList<>(parsed.size());
+            for (MeetingImpl meeting : parsed) {
+                Set<Contact> participants = new HashSet<>(meeting.getContacts().size() * 4 / 3 + 1);
+                for (Contact participant : meeting.getContacts()) {
+                    Contact contact = contacts.get(participant.getId());
+                    if (contact == null) {
+                        throw new IOException("Unknown participant " + participant.getId() + " of meeting " + meeting.getId());
+                    }
+                    participants.add(contact);
+                }
+                batch.add((meeting instanceof PastMeeting)
+                        ? NewMeeting.past(participants, meeting.getDate(), ((PastMeeting) meeting).getNotes())
+                        : NewMeeting.future(participants, meeting.getDate()));
+            }
+            cm.importMeetings(batch);
+        });
+    }
+
+    //HELPER METHODS
+
+    /**
+     * Runs the pipeline: this thread reads chunks and applies them in order, the executor parses them.
+     */
+    private <T> long read(ReadableByteChannel in, String header, Function<String, T> parser, Apply<T> apply) throws IOException {
+        if (in == null) throw new NullPointerException();
+
+        RecordReader records = new RecordReader(in, format == ExchangeFormat.CSV);
+        long number = 1;
+        String record = records.next();
+        //byte order mark written by some spreadsheets
+        if (record != null && record.startsWith("\uFEFF")) record = record.substring(1);
+        if (header != null && record != null) {
+            if (!record.equals(header)) throw new IOException("Expected header " + header);
+            record = records.next();
+            number++;
+        }
+
+        Deque<CompletableFuture<List<T>>> inFlight = new ArrayDeque<>();
+        long count = 0;
+        try {
+            List<String> chunk = new ArrayList<>(chunkSize);
+            long firstNumber = number;
+            while (record != null) {
+                chunk.add(record);
+                record = records.next();
+                number++;
+                if (chunk.size() == chunkSize || record == null) {
+                    inFlight.add(parse(chunk, firstNumber, parser));
+                    chunk = new ArrayList<>(chunkSize);
+                    firstNumber = number;
+                    if (inFlight.size() >= MAX_CHUNKS_IN_FLIGHT) count += applyNext(inFlight, apply);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                count += applyNext(inFlight, apply);
+            }
+            return count;
+        } finally {
+            for (CompletableFuture<List<T>> abandoned : inFlight) {
+                abandoned.cancel(false);
+            }
+        }
+    }
+
+    private <T> CompletableFuture<List<T>> parse(List<String> chunk, long firstNumber, Function<String, T> parser) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<T> parsed = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    parsed.add(parser.apply(chunk.get(i)));
+                } catch (RuntimeException e) {
+                    throw new UncheckedIOException(new IOException("Malformed record " + (firstNumber + i) + ": " + e.getMessage(), e));
+                }
+            }
+            return parsed;
+        }, parseExecutor);
+    }
+
+    private <T> int applyNext(Deque<CompletableFuture<List<T>>> inFlight, Apply<T> apply) throws IOException {
+        List<T> parsed;
+        try {
+            parsed = inFlight.peek().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+            throw e;
+        }
+        inFlight.poll();
+        apply.to(parsed);
+        return parsed.size();
+    }
+
+    /**
+     * Applies one parsed chunk to the manager.
+     */
+    private interface Apply<T> {
+        void to(List<T> parsed) throws IOException;
+    }
+}
@@ -0,0 +1,102 @@
+import interfaces.Contact;
+import interfaces.Meeting;
+import utils.ChannelWriter;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exports contacts and meetings of a contact manager in an {@link ExchangeFormat},
+ * e.g. for analytics jobs which consume them record by record.
+ *
+ * Records are written in order of ID through a buffer of fixed size. The manager is read in chunks,
+ * each under the shared lock for a moment only, so memory does not grow with the book and writers
+ * are not held up by a long export. The export is therefore not a snapshot: contacts and meetings
+ * added meanwhile may or may not be included, but every record is consistent.
+ */
+public class ExchangeWriter {
+    static final int CHUNK_SIZE = 1024;
+    private static final int WRITE_THRESHOLD = 32 * 1024;
+
+    private final ContactManagerImpl cm;
+    private final ExchangeFormat format;
+
+    /**
+     * Creates writer of the manager.
+     *
+     * @param cm manager to be exported
+     * @param format of the written records
+     */
+    public ExchangeWriter(ContactManagerImpl cm, ExchangeFormat format) {
+        if (cm == null || format == null) throw new NullPointerException();
+        this.cm = cm;
+        this.format = format;
+    }
+
+    /**
+     * Writes all contacts to the channel, which is not closed.
+     *
+     * @param out channel to write to
+     * @return number of written contacts
+     * @throws IOException if the channel cannot be written
+     */
+    public long writeContacts(WritableByteChannel out) throws IOException {
+        return this.<Contact>write(out, format.contactHeader(), cm::copyContacts, format::appendContact);
+    }
+
+    /**
+     * Writes all meetings to the channel, which is not closed.
+     *
+     * @param out channel to write to
+     * @return number of written meetings
+     * @throws IOException if the channel cannot be written
+     */
+    public long writeMeetings(WritableByteChannel out) throws IOException {
+        return this.<Meeting>write(out, format.meetingHeader(), cm::copyMeetings, format::appendMeeting);
+    }
+
+    //HELPER METHODS
+
+    private <T> long write(WritableByteChannel out, String header, Chunks<T> chunks, Append<T> append) throws IOException {
+        if (out == null) throw new NullPointerException();
+
+        ChannelWriter writer = new ChannelWriter(out);
+        StringBuilder text = new StringBuilder(2 * WRITE_THRESHOLD);
+        if (header != null) text.append(header).append('\n');
+
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        long count = 0;
+        int next = 1;
+        while (next != 0) {
+            chunk.clear();
+            next = chunks.copy(next, CHUNK_SIZE, chunk);
+            for (T record : chunk) {
+                append.to(text, record);
+                if (text.length() >= WRITE_THRESHOLD) {
+                    writer.write(text);
+                    text.setLength(0);
+                }
+            }
+            count += chunk.size();
+        }
+        writer.write(text);
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Copies records from the manager, see {@link ContactManagerImpl#copyContacts(int, int, List)}.
+     */
+    private interface Chunks<T> {
+        int copy(int fromId, int max, List<? super T> into);
+    }
+
+    /**
+     * Appends one record in the format.
+     */
+    private interface Append<T> {
+        void to(StringBuilder out, T record);
+    }
+}
@@ -1,6 +1,7 @@
 import interfaces.Contact;
 import interfaces.FutureMeeting;
 
+import javax.xml.bind.annotation.XmlRootElement;
 import java.util.Calendar;
 import java.util.Set;
 
@@ -9,9 +10,17 @@ import java.util.Set;
  *
  * Created by Vladimirs Ivanovs on 19/01/16.
  */
+@XmlRootElement(name = "futureMeeting")
 public class FutureMeetingImpl extends MeetingImpl implements FutureMeeting {
 
+    //for XML marshalling purpose
+    private FutureMeetingImpl() {}
+
     public FutureMeetingImpl(int id, Calendar date, Set<Contact> contacts) {
         super(id, date, contacts);
     }
+
+    public FutureMeetingImpl(int id, long date, Set<Contact> contacts) {
+        super(id, date, contacts);
+    }
 }
@@ -0,0 +1,247 @@
+import interfaces.Contact;
+import interfaces.Meeting;
+import utils.Varint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Read-only view of a {@link BinarySnapshot} file mapped into memory.
+ *
+ * Opening reads only the footer, so it takes the same time whatever the size of the book.
+ * Contacts and meetings are found by binary search in the ID index stored in the file and
+ * decoded on every access, nothing is cached on heap. Participants of a decoded meeting
+ * are decoded as well. Returned objects are copies, changing them does not change the file.
+ *
+ * The view does not support searching by name or date, which needs indexes over all records.
+ * Load the snapshot with {@link ContactManagerImpl#load(Path)} for that and for changes.
+ *
+ * Files up to 2 GB can be mapped. The mapping is released once the view is no longer reachable.
+ * The view is safe for use by concurrent threads.
+ */
+public class MappedSnapshot {
+    private static final int ENTRY_LENGTH = 8;
+
+    private final MappedByteBuffer buffer;
+    private final int stringCount;
+    private final int contactCount;
+    private final int meetingCount;
+    private final int stringIndex;
+    private final int contactIndex;
+    private final int meetingIndex;
+
+    private MappedSnapshot(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        int size = buffer.limit();
+
+        byte[] magic = new byte[BinarySnapshot.MAGIC.length];
+        ByteBuffer header = buffer.duplicate();
+        header.get(magic);
+        if (!Arrays.equals(magic, BinarySnapshot.MAGIC)) throw new IOException("Not a contact manager snapshot");
+        int version = Varint.readInt(header);
+        if (version != BinarySnapshot.VERSION) throw new IOException("Snapshot version " + version + " has no index, save it again");
+
+        ByteBuffer footer = buffer.duplicate();
+        footer.position(size - BinarySnapshot.FOOTER_LENGTH);
+        stringCount = footer.getInt();
+        contactCount = footer.getInt();
+        meetingCount = footer.getInt();
+        long indexOffset = footer.getLong();
+        footer.get(magic);
+
+        long expectedEnd = indexOffset + 4L * stringCount + (long) ENTRY_LENGTH * (contactCount + meetingCount);
+        if (!Arrays.equals(magic, BinarySnapshot.MAGIC) || stringCount < 0 || contactCount < 0 || meetingCount < 0
+                || expectedEnd != size - BinarySnapshot.FOOTER_LENGTH) {
+            throw new IOException("Invalid snapshot index");
+        }
+        stringIndex = (int) indexOffset;
+        contactIndex = stringIndex + 4 * stringCount;
+        meetingIndex = contactIndex + ENTRY_LENGTH * contactCount;
+    }
+
+    /**
+     * Maps the snapshot file.
+     *
+     * @param path of the snapshot
+     * @return view of the snapshot
+     * @throws IOException if the file cannot be mapped or is not an indexed snapshot
+     */
+    public static MappedSnapshot open(Path path) throws IOException {
+        if (path == null) throw new NullPointerException();
+
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to be mapped");
+            } else if (size < BinarySnapshot.MAGIC.length + 1 + BinarySnapshot.FOOTER_LENGTH) {
+                throw new IOException("Not a contact manager snapshot");
+            }
+            //the mapping stays valid after the channel is closed
+            return new MappedSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public int getContactCount() {
+        return contactCount;
+    }
+
+    public int getMeetingCount() {
+        return meetingCount;
+    }
+
+    /**
+     * Returns the contact with the requested ID, or null if there is none.
+     *
+     * @param id the ID of the contact
+     * @return decoded contact or null
+     */
+    public Contact getContact(int id) {
+        int offset = find(contactIndex, contactCount, id);
+        return (offset < 0) ? null : decodeContact(offset);
+    }
+
+    /**
+     * Returns the contacts that correspond to the IDs.
+     *
+     * @param ids an arbitrary number of contact IDs
+     * @return set of decoded contacts
+     * @throws IllegalArgumentException if no IDs are provided or if
+     * any of the provided IDs does not correspond to a contact
+     */
+    public Set<Contact> getContacts(int... ids) {
+        if (ids == null || ids.length == 0) throw new IllegalArgumentException();
+
+        Set<Contact> contacts = new HashSet<>(ids.length * 4 / 3 + 1);
+        for (int id : ids) {
+            Contact contact = getContact(id);
+            if (contact == null) throw new IllegalArgumentException();
+            contacts.add(contact);
+        }
+        return contacts;
+    }
+
+    /**
+     * Returns the meeting with the requested ID, or null if there is none.
+     * Past and future meetings are returned as saved, regardless of the current date.
+     *
+     * @param id the ID of the meeting
+     * @return decoded meeting or null
+     */
+    public Meeting getMeeting(int id) {
+        int offset = find(meetingIndex, meetingCount, id);
+        return (offset < 0) ? null : decodeMeeting(offset);
+    }
+
+    /**
+     * Decodes contacts one by one in ascending order of IDs.
+     *
+     * @param action called with every contact
+     */
+    public void forEachContact(Consumer<? super Contact> action) {
+        for (int i = 0; i < contactCount; i++) {
+            action.accept(decodeContact(buffer.getInt(contactIndex + i * ENTRY_LENGTH + 4)));
+        }
+    }
+
+    /**
+     * Decodes meetings one by one in ascending order of IDs.
+     *
+     * @param action called with every meeting
+     */
+    public void forEachMeeting(Consumer<? super Meeting> action) {
+        for (int i = 0; i < meetingCount; i++) {
+            action.accept(decodeMeeting(buffer.getInt(meetingIndex + i * ENTRY_LENGTH + 4)));
+        }
+    }
+
+    //HELPER METHODS
+
+    /**
+     * Binary search of the ID in the index.
+     *
+     * @return file offset of the record, or -1 if there is none
+     */
+    private int find(int index, int count, int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = buffer.getInt(index + middle * ENTRY_LENGTH);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return buffer.getInt(index + middle * ENTRY_LENGTH + 4);
+            }
+        }
+        return -1;
+    }
+
+    private Contact decodeContact(int offset) {
+        try {
+            ByteBuffer record = at(offset);
+            int id = Varint.readInt(record);
+            String name = string(Varint.readInt(record));
+            return new ContactImpl(id, name, string(Varint.readInt(record)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Meeting decodeMeeting(int offset) {
+        try {
+            ByteBuffer record = at(offset);
+            int type = Varint.readInt(record);
+            int id = Varint.readInt(record);
+            long date = Varint.readLong(record);
+
+            int participantCount = Varint.readInt(record);
+            Set<Contact> participants = new HashSet<>(participantCount * 4 / 3 + 1);
+            int participantId = 0;
+            for (int i = 0; i < participantCount; i++) {
+                participantId += Varint.readInt(record);
+                Contact contact = getContact(participantId);
+                if (contact == null) throw new IOException("Unknown participant " + participantId);
+                participants.add(contact);
+            }
+
+            if (type == BinarySnapshot.PAST_MEETING) {
+                return new PastMeetingImpl(id, date, participants, string(Varint.readInt(record)));
+            } else if (type == BinarySnapshot.FUTURE_MEETING) {
+                return new FutureMeetingImpl(id, date, participants);
+            }
+            return new MeetingImpl(id, date, participants);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String string(int ref) throws IOException {
+        if (ref == 0) return null;
+        if (ref > stringCount) throw new IOException("Invalid string reference " + ref);
+
+        ByteBuffer string = at(buffer.getInt(stringIndex + 4 * (ref - 1)));
+        byte[] bytes = new byte[Varint.readInt(string)];
+        string.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns buffer of its own positioned at the offset, so threads do not share positions.
+     */
+    private ByteBuffer at(int offset) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset);
+        return record;
+    }
+}
@@ -3,12 +3,17 @@ import interfaces.Meeting;
 
 import javax.xml.bind.annotation.*;
 import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.Objects;
 import java.util.Set;
 
 /**
  * Concrete class representing meeting.
  *
+ * The date is held as epoch millis and turned into a Calendar only when asked for,
+ * so a meeting is immutable apart from its contacts and comparing dates does not allocate.
+ *
  * Created by Vladimirs Ivanovs on 19/01/16.
  */
 
@@ -20,17 +25,21 @@ public class MeetingImpl implements Meeting {
     @XmlAttribute
     private int id;
 
-    private Calendar date;
+    @XmlTransient
+    private long date;
 
     @XmlElementWrapper(name = "participants")
     @XmlAnyElement
     private Set<Contact> contacts;
 
     //for XML marshalling purpose
-    private MeetingImpl(){}
+    protected MeetingImpl(){}
 
     public MeetingImpl(int id, Calendar date, Set<Contact> contacts) {
+        this(id, date.getTimeInMillis(), contacts);
+    }
 
+    public MeetingImpl(int id, long date, Set<Contact> contacts) {
         this.id = id;
         this.date = date;
         this.contacts = contacts;
@@ -49,13 +58,35 @@ public class MeetingImpl implements Meeting {
     /**
      * Return the date of the meeting.
      *
-     * @return the date of the meeting.
+     * @return new calendar in the default time zone set to the date of the meeting.
      */
     @Override
     public Calendar getDate() {
+        Calendar calendar = new GregorianCalendar();
+        calendar.setTimeInMillis(date);
+        return calendar;
+    }
+
+    /**
+     * Return the date of the meeting as milliseconds since the epoch.
+     *
+     * @return the date of the meeting in epoch millis.
+     */
+    @Override
+    public long getEpochMillis() {
         return date;
     }
 
+    //date element of the XML, same as the marshalled Calendar used to be
+    @XmlElement(name = "date")
+    private Calendar getXmlDate() {
+        return getDate();
+    }
+
+    private void setXmlDate(Calendar date) {
+        this.date = date.getTimeInMillis();
+    }
+
     /**
      * Return the details of people that attended the meeting.
      * <p>
@@ -88,7 +119,7 @@ public class MeetingImpl implements Meeting {
     @Override
     public String toString() {
         return "MeetingImpl{" +
-                "date=" + date.getTime() +
+                "date=" + new Date(date) +
                 ", id=" + id +
                 '}';
     }
@@ -1,6 +1,7 @@
 import interfaces.Contact;
 import interfaces.PastMeeting;
 
+import javax.xml.bind.annotation.XmlRootElement;
 import java.util.Calendar;
 import java.util.Set;
 
@@ -9,14 +10,23 @@ import java.util.Set;
  *
  * Created by Vladimirs Ivanovs on 19/01/16.
  */
+@XmlRootElement(name = "pastMeeting")
 public class PastMeetingImpl extends MeetingImpl implements PastMeeting {
     private String notes = "";
 
+    //for XML marshalling purpose
+    private PastMeetingImpl() {}
+
     public PastMeetingImpl(int id, Calendar date, Set<Contact> contacts, String notes) {
         super(id, date, contacts);
         this.notes = notes;
     }
 
+    public PastMeetingImpl(int id, long date, Set<Contact> contacts, String notes) {
+        super(id, date, contacts);
+        this.notes = notes;
+    }
+
     /**
      * Returns the notes from the meeting.
      * <p>
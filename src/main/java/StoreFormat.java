@@ -0,0 +1,14 @@
+/**
+ * Formats in which a contact manager can be saved to disk.
+ */
+public enum StoreFormat {
+    /**
+     * JAXB marshalled XML, readable by other tools. Used for export.
+     */
+    XML,
+
+    /**
+     * Compact {@link BinarySnapshot}, faster to save and load and much smaller.
+     */
+    BINARY
+}
@@ -0,0 +1,544 @@
+import utils.Utils;
+import utils.Varint;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Append-only log of contact manager mutations, written between snapshots.
+ *
+ * Layout of version 1:
+ * <pre>
+ * magic "CMWL", version
+ * records: payload length, CRC32 of the payload, payload
+ * payload: type, then the fields of the record as varints and strings
+ * batch payload: type, then payloads of the records in it until the end
+ * </pre>
+ * Length and CRC are fixed four byte ints, so a record cut short by a crash is detected
+ * and dropped on the next open. Strings are written as UTF-8 length plus one and bytes,
+ * zero stands for null.
+ *
+ * Records carry the resulting state rather than the change, e.g. all notes of a contact
+ * after notes were added, so replaying a record already contained in the snapshot is harmless.
+ *
+ * Records appended as a {@link Batch} share one frame and one checksum, so a crash leaves
+ * either all of them or none, and a batch of any size costs one write and one force.
+ *
+ * With a sync interval of zero every writer waits until its record is forced to disk.
+ * Writers waiting at the same time share one force (group commit). With a positive interval
+ * writers do not wait and the log is forced in the background, so the records of up to one
+ * interval can be lost if the machine crashes.
+ */
+public class WriteAheadLog implements Closeable {
+    public static final int VERSION = 1;
+    private static final byte[] MAGIC = {'C', 'M', 'W', 'L'};
+    private static final int HEADER_LENGTH = MAGIC.length + 1;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final int CONTACT = 1;
+    private static final int CONTACT_NOTES = 2;
+    private static final int FUTURE_MEETING = 3;
+    private static final int PAST_MEETING = 4;
+    private static final int MEETING_NOTES = 5;
+    private static final int BATCH = 6;
+
+    private final Path path;
+    private final ScheduledExecutorService syncer;
+    private final Object syncLock = new Object();
+    private final AtomicLong syncCount = new AtomicLong();
+
+    //replaced under syncLock and this
+    private FileChannel channel;
+    //guarded by this
+    private long written;
+    //write whose torn frame could not be cut off, guarded by this
+    private IOException failure;
+    private volatile long durable;
+
+    /**
+     * Receives records of the log when it is opened.
+     */
+    public interface Replay {
+        void contact(int id, String name, String notes) throws IOException;
+
+        void contactNotes(int id, String notes) throws IOException;
+
+        /**
+         * @param notes of a past meeting, null for a future meeting
+         */
+        void meeting(int id, long date, int[] participants, String notes) throws IOException;
+
+        void meetingNotes(int id, String notes) throws IOException;
+    }
+
+    private WriteAheadLog(Path path, FileChannel channel, long syncIntervalMillis) {
+        this.path = path;
+        this.channel = channel;
+        if (syncIntervalMillis > 0) {
+            syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "contact-manager-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    /**
+     * Opens the log for appending, creating it if needed. Records of an existing log are
+     * handed to the replay first. An incomplete or corrupt record and anything after it is cut off.
+     *
+     * @param path of the log file
+     * @param syncIntervalMillis zero to force every write before it returns, otherwise
+     *                           the interval of background forcing
+     * @param replay receives existing records
+     * @return open log
+     * @throws IOException if the log cannot be opened, is not a log or replay fails
+     * @throws IllegalArgumentException if the interval is negative
+     */
+    public static WriteAheadLog open(Path path, long syncIntervalMillis, Replay replay) throws IOException {
+        if (path == null || replay == null) {
+            throw new NullPointerException();
+        } else if (syncIntervalMillis < 0) {
+            throw new IllegalArgumentException();
+        }
+        return open(path, FileChannel.open(path, CREATE, READ, WRITE), syncIntervalMillis, replay);
+    }
+
+    /**
+     * Opens the log on the given channel of the path, which is closed if opening fails.
+     */
+    static WriteAheadLog open(Path path, FileChannel channel, long syncIntervalMillis, Replay replay) throws IOException {
+        try {
+            long end;
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).put(MAGIC).put((byte) VERSION);
+                header.flip();
+                writeFully(channel, header);
+                channel.force(true);
+                end = HEADER_LENGTH;
+            } else {
+                end = replay(channel, replay);
+                channel.truncate(end);
+            }
+            channel.position(end);
+
+            WriteAheadLog log = new WriteAheadLog(path, channel, syncIntervalMillis);
+            log.written = end;
+            log.durable = end;
+            return log;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long appendContact(int id, String name, String notes) throws IOException {
+        Record record = new Record(64);
+        writeContact(record.data, id, name, notes);
+        return append(record);
+    }
+
+    public long appendContactNotes(int id, String notes) throws IOException {
+        Record record = new Record(64);
+        Varint.writeInt(record.data, CONTACT_NOTES);
+        Varint.writeInt(record.data, id);
+        writeString(record.data, notes);
+        return append(record);
+    }
+
+    /**
+     * Appends meeting.
+     *
+     * @param id of the meeting
+     * @param date of the meeting in epoch millis
+     * @param participants IDs of the participants
+     * @param notes of a past meeting, null for a future meeting
+     * @return position to be passed to {@link #awaitDurable(long)}
+     * @throws IOException if writing fails
+     */
+    public long appendMeeting(int id, long date, int[] participants, String notes) throws IOException {
+        Record record = new Record(64);
+        writeMeeting(record.data, id, date, participants, notes);
+        return append(record);
+    }
+
+    public long appendMeetingNotes(int id, String notes) throws IOException {
+        Record record = new Record(64);
+        Varint.writeInt(record.data, MEETING_NOTES);
+        Varint.writeInt(record.data, id);
+        writeString(record.data, notes);
+        return append(record);
+    }
+
+    /**
+     * Appends all records of the batch as one record.
+     *
+     * @param batch records to be appended
+     * @return position to be passed to {@link #awaitDurable(long)}
+     * @throws IOException if writing fails
+     */
+    public long append(Batch batch) throws IOException {
+        if (batch == null) throw new NullPointerException();
+        return append(batch.record);
+    }
+
+    /**
+     * Waits until the log is forced to disk up to the position. Does not wait if the log
+     * is forced in the background.
+     *
+     * @param position returned by an append
+     * @throws IOException if forcing fails
+     */
+    public void awaitDurable(long position) throws IOException {
+        if (syncer == null && durable < position) force(position);
+    }
+
+    /**
+     * Forces everything appended so far to disk.
+     *
+     * @throws IOException if forcing fails
+     */
+    public void sync() throws IOException {
+        force(size());
+    }
+
+    /**
+     * Drops all records, once they are contained in a snapshot.
+     *
+     * @throws IOException if the log cannot be truncated
+     */
+    public void reset() throws IOException {
+        //a force running meanwhile would mark a position of the old log durable afterwards
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.truncate(HEADER_LENGTH);
+                channel.position(HEADER_LENGTH);
+                channel.force(true);
+                written = HEADER_LENGTH;
+                durable = HEADER_LENGTH;
+                failure = null;
+            }
+        }
+    }
+
+    /**
+     * Drops records up to the position, once they are contained in a snapshot. Records appended
+     * after the position are copied to a fresh log, which is forced and moved over this one,
+     * so a crash leaves either the full old log or the fresh one. The snapshot must have been
+     * moved into place durably, directory included, before.
+     *
+     * @param position returned by {@link #size()} when the snapshot was taken
+     * @throws IOException if the fresh log cannot be written
+     * @throws IllegalArgumentException if the position lies beyond the end of the log
+     */
+    public void dropUpTo(long position) throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (position > written) throw new IllegalArgumentException();
+                if (position <= HEADER_LENGTH) return;
+                if (position == written) {
+                    reset();
+                    return;
+                }
+
+                long tail = written - position;
+                Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+                try {
+                    try (FileChannel fresh = FileChannel.open(temp, WRITE)) {
+                        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).put(MAGIC).put((byte) VERSION);
+                        header.flip();
+                        writeFully(fresh, header);
+                        for (long copied = 0; copied < tail; ) {
+                            copied += channel.transferTo(position + copied, tail - copied, fresh);
+                        }
+                        fresh.force(true);
+                    }
+                    Utils.moveAtomically(temp, path);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+
+                FileChannel old = channel;
+                channel = FileChannel.open(path, READ, WRITE);
+                old.close();
+                written = HEADER_LENGTH + tail;
+                channel.position(written);
+                durable = written;
+                failure = null;
+            }
+        }
+    }
+
+    /**
+     * Returns length of the log in bytes, including records not yet forced to disk.
+     *
+     * @return length of the log
+     */
+    public synchronized long size() {
+        return written;
+    }
+
+    /**
+     * Returns how many times the log was forced to disk, useful to see how well writes are grouped.
+     *
+     * @return number of forces
+     */
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+
+    /**
+     * Forces outstanding records to disk and closes the log.
+     *
+     * @throws IOException if forcing or closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) syncer.shutdownNow();
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    //HELPER METHODS
+
+    /**
+     * Appends the record as one frame. If the write fails, the part of the frame already written
+     * is cut off, otherwise records appended later would follow bytes at which replay stops.
+     * If even that fails, the log refuses further appends until it is reset.
+     */
+    private synchronized long append(Record record) throws IOException {
+        if (failure != null) throw new IOException("Log failed at position " + written, failure);
+
+        byte[] payload = record.bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        frame.flip();
+        try {
+            writeFully(channel, frame);
+        } catch (IOException e) {
+            try {
+                channel.truncate(written);
+                channel.position(written);
+            } catch (IOException | RuntimeException rollback) {
+                e.addSuppressed(rollback);
+                failure = e;
+            }
+            throw e;
+        }
+        written += frame.limit();
+        return written;
+    }
+
+    /**
+     * Forces the log if it is not yet durable up to the position. Writers queue on the lock,
+     * the first one forces everything written so far and the others usually find their
+     * records already durable.
+     */
+    private void force(long position) throws IOException {
+        synchronized (syncLock) {
+            if (durable >= position) return;
+
+            long target = size();
+            channel.force(false);
+            durable = target;
+            syncCount.incrementAndGet();
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads records from the start of the channel.
+     *
+     * @return position after the last valid record
+     */
+    private static long replay(FileChannel channel, Replay replay) throws IOException {
+        channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), READ_BUFFER_SIZE));
+
+        byte[] magic = new byte[MAGIC.length];
+        try {
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a contact manager log");
+            int version = in.readUnsignedByte();
+            if (version != VERSION) throw new IOException("Unsupported log version " + version);
+        } catch (EOFException e) {
+            throw new IOException("Not a contact manager log", e);
+        }
+
+        long end = HEADER_LENGTH;
+        long size = channel.size();
+        while (end + 8 <= size) {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < 0 || end + 8 + length > size) break;
+
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) break;
+
+            apply(new DataInputStream(new ByteArrayInputStream(payload)), replay);
+            end += 8 + length;
+        }
+        return end;
+    }
+
+    private static void apply(DataInputStream record, Replay replay) throws IOException {
+        int type = Varint.readInt(record);
+        if (type != BATCH) {
+            apply(type, record, replay);
+            return;
+        }
+        while (record.available() > 0) {
+            apply(Varint.readInt(record), record, replay);
+        }
+    }
+
+    private static void apply(int type, DataInputStream record, Replay replay) throws IOException {
+        int id = Varint.readInt(record);
+        switch (type) {
+            case CONTACT:
+                replay.contact(id, readString(record), readString(record));
+                break;
+            case CONTACT_NOTES:
+                replay.contactNotes(id, readString(record));
+                break;
+            case FUTURE_MEETING:
+            case PAST_MEETING:
+                long date = Varint.readLong(record);
+                int[] participants = new int[Varint.readInt(record)];
+                for (int i = 0; i < participants.length; i++) {
+                    participants[i] = Varint.readInt(record);
+                }
+                replay.meeting(id, date, participants, (type == PAST_MEETING) ? readString(record) : null);
+                break;
+            case MEETING_NOTES:
+                replay.meetingNotes(id, readString(record));
+                break;
+            default:
+                throw new IOException("Unknown log record type " + type);
+        }
+    }
+
+    private static void writeContact(DataOutput out, int id, String name, String notes) throws IOException {
+        Varint.writeInt(out, CONTACT);
+        Varint.writeInt(out, id);
+        writeString(out, name);
+        writeString(out, notes);
+    }
+
+    private static void writeMeeting(DataOutput out, int id, long date, int[] participants, String notes) throws IOException {
+        Varint.writeInt(out, (notes == null) ? FUTURE_MEETING : PAST_MEETING);
+        Varint.writeInt(out, id);
+        Varint.writeLong(out, date);
+        Varint.writeInt(out, participants.length);
+        for (int participant : participants) {
+            Varint.writeInt(out, participant);
+        }
+        if (notes != null) writeString(out, notes);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeString(DataOutput out, String string) throws IOException {
+        if (string == null) {
+            Varint.writeInt(out, 0);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        Varint.writeInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = Varint.readInt(in);
+        if (length == 0) return null;
+
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Records collected to be appended together, see {@link #append(Batch)}.
+     * A batch is held in memory until appended, so huge imports should be split into several.
+     */
+    public static class Batch {
+        private final Record record = new Record(4096);
+        private int size;
+
+        public Batch() throws IOException {
+            Varint.writeInt(record.data, BATCH);
+        }
+
+        public void addContact(int id, String name, String notes) throws IOException {
+            writeContact(record.data, id, name, notes);
+            size++;
+        }
+
+        /**
+         * Adds meeting.
+         *
+         * @param id of the meeting
+         * @param date of the meeting in epoch millis
+         * @param participants IDs of the participants
+         * @param notes of a past meeting, null for a future meeting
+         * @throws IOException if writing fails
+         */
+        public void addMeeting(int id, long date, int[] participants, String notes) throws IOException {
+            writeMeeting(record.data, id, date, participants, notes);
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Payload of a record being built.
+     */
+    private static class Record {
+        private final ByteArrayOutputStream bytes;
+        private final DataOutputStream data;
+
+        private Record(int initialSize) {
+            bytes = new ByteArrayOutputStream(initialSize);
+            data = new DataOutputStream(bytes);
+        }
+    }
+}
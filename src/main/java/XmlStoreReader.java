@@ -0,0 +1,269 @@
+import interfaces.Contact;
+import interfaces.Meeting;
+import utils.IntMap;
+
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Restores a contact manager from the XML written by {@link ContactManagerImpl#flush()}.
+ *
+ * The file is read with a streaming StAX parser, so apart from the restored contacts and
+ * meetings no document tree is held in memory. Participants of meetings are resolved to the
+ * already read contacts by ID instead of being materialized again.
+ *
+ * After reading, the time spent and the highest heap usage seen while reading are available
+ * through {@link #report()}.
+ */
+public class XmlStoreReader {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int HEAP_SAMPLE_INTERVAL = 4096;
+    private static final XMLInputFactory factory = newFactory();
+
+    private final Path path;
+
+    private int contactCount;
+    private int meetingCount;
+    private long elapsedNanos;
+    private long peakHeapBytes;
+
+    /**
+     * Creates reader of the file.
+     *
+     * @param path of the XML file
+     */
+    public XmlStoreReader(Path path) {
+        if (path == null) throw new NullPointerException();
+        this.path = path;
+    }
+
+    /**
+     * Reads the file and replaces contacts and meetings of the manager, rebuilding its indexes.
+     *
+     * @param cm contact manager to restore
+     * @throws IOException if the file cannot be read or is not a valid contact manager file
+     */
+    public void readInto(ContactManagerImpl cm) throws IOException {
+        long start = System.nanoTime();
+        peakHeapBytes = usedHeap();
+
+        IntMap<Contact> contactsById = new IntMap<>();
+        Set<Contact> contacts = new HashSet<>();
+        List<Meeting> meetings = new ArrayList<>();
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), READ_BUFFER_SIZE)) {
+            XMLStreamReader xml = factory.createXMLStreamReader(in);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() != XMLStreamConstants.START_ELEMENT) continue;
+
+                    if (xml.getLocalName().equals("contacts")) {
+                        readContacts(xml, contacts, contactsById);
+                    } else if (xml.getLocalName().equals("meetings")) {
+                        readMeetings(xml, meetings, contactsById);
+                    }
+                }
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            throw new IOException("Invalid contact manager file " + path, e);
+        }
+
+        cm.setContacts(contacts);
+        cm.setMeetings(meetings);
+
+        contactCount = contacts.size();
+        meetingCount = meetings.size();
+        sampleHeap();
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    public int getContactCount() {
+        return contactCount;
+    }
+
+    public int getMeetingCount() {
+        return meetingCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    /**
+     * Returns summary of the last read.
+     *
+     * @return one line report with counts, time and peak heap usage
+     */
+    public String report() {
+        return String.format("Loaded %d contacts and %d meetings from %s in %d ms, peak heap %d MB",
+                contactCount, meetingCount, path, getElapsedMillis(), peakHeapBytes / (1024 * 1024));
+    }
+
+    /**
+     * Loads the given file and prints the report, to measure startup of a persisted book.
+     *
+     * @param args path of the file, contacts.txt by default
+     * @throws IOException if the file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        XmlStoreReader reader = new XmlStoreReader(Paths.get((args.length > 0) ? args[0] : ContactManagerImpl.DEFAULT_STORE));
+        reader.readInto(new ContactManagerImpl());
+        System.out.println(reader.report());
+    }
+
+    //HELPER METHODS
+
+    private void readContacts(XMLStreamReader xml, Set<Contact> contacts, IntMap<Contact> contactsById) throws XMLStreamException {
+        while (nextChild(xml)) {
+            if (xml.getLocalName().equals("contact")) {
+                Contact contact = readContact(xml);
+                contacts.add(contact);
+                contactsById.put(contact.getId(), contact);
+                if (contacts.size() % HEAP_SAMPLE_INTERVAL == 0) sampleHeap();
+            } else {
+                skipElement(xml);
+            }
+        }
+    }
+
+    private Contact readContact(XMLStreamReader xml) throws XMLStreamException {
+        int id = readId(xml);
+        String name = null;
+        String notes = "";
+        while (nextChild(xml)) {
+            if (xml.getLocalName().equals("name")) {
+                name = xml.getElementText();
+            } else if (xml.getLocalName().equals("notes")) {
+                notes = xml.getElementText();
+            } else {
+                skipElement(xml);
+            }
+        }
+        if (name == null || name.isEmpty()) throw new XMLStreamException("Contact " + id + " has no name", xml.getLocation());
+        return new ContactImpl(id, name, notes);
+    }
+
+    private void readMeetings(XMLStreamReader xml, List<Meeting> meetings, IntMap<Contact> contactsById) throws XMLStreamException {
+        while (nextChild(xml)) {
+            meetings.add(readMeeting(xml, contactsById));
+            if (meetings.size() % HEAP_SAMPLE_INTERVAL == 0) sampleHeap();
+        }
+    }
+
+    private Meeting readMeeting(XMLStreamReader xml, IntMap<Contact> contactsById) throws XMLStreamException {
+        String type = xml.getLocalName();
+        int id = readId(xml);
+        Calendar date = null;
+        Set<Contact> participants = new HashSet<>();
+        String notes = "";
+        while (nextChild(xml)) {
+            if (xml.getLocalName().equals("date")) {
+                date = readDate(xml, id);
+            } else if (xml.getLocalName().equals("participants")) {
+                readParticipants(xml, participants, contactsById);
+            } else if (xml.getLocalName().equals("notes")) {
+                notes = xml.getElementText();
+            } else {
+                skipElement(xml);
+            }
+        }
+        if (date == null) throw new XMLStreamException("Meeting " + id + " has no date");
+
+        if (type.equals("pastMeeting")) {
+            return new PastMeetingImpl(id, date, participants, notes);
+        } else if (type.equals("futureMeeting")) {
+            return new FutureMeetingImpl(id, date, participants);
+        }
+        return new MeetingImpl(id, date, participants);
+    }
+
+    private void readParticipants(XMLStreamReader xml, Set<Contact> participants, IntMap<Contact> contactsById) throws XMLStreamException {
+        while (nextChild(xml)) {
+            int id = readId(xml);
+            Contact contact = contactsById.get(id);
+            if (contact == null) throw new XMLStreamException("Unknown participant " + id);
+            participants.add(contact);
+            skipElement(xml);
+        }
+    }
+
+    private static int readId(XMLStreamReader xml) throws XMLStreamException {
+        String id = xml.getAttributeValue(null, "id");
+        if (id == null) throw new XMLStreamException("Missing id of " + xml.getLocalName(), xml.getLocation());
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            throw new XMLStreamException("Invalid id " + id + " of " + xml.getLocalName(), xml.getLocation(), e);
+        }
+    }
+
+    private static Calendar readDate(XMLStreamReader xml, int meetingId) throws XMLStreamException {
+        String date = xml.getElementText();
+        try {
+            return DatatypeConverter.parseDateTime(date);
+        } catch (IllegalArgumentException e) {
+            throw new XMLStreamException("Invalid date " + date + " of meeting " + meetingId, xml.getLocation(), e);
+        }
+    }
+
+    /**
+     * Moves to the next child element of the current element.
+     *
+     * @return true if positioned at the start of a child, false if the current element ended
+     */
+    private static boolean nextChild(XMLStreamReader xml) throws XMLStreamException {
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) return true;
+            if (event == XMLStreamConstants.END_ELEMENT) return false;
+        }
+        return false;
+    }
+
+    /**
+     * Skips the current element with all its content.
+     */
+    private static void skipElement(XMLStreamReader xml) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) depth++;
+            if (event == XMLStreamConstants.END_ELEMENT) depth--;
+        }
+    }
+
+    private void sampleHeap() {
+        peakHeapBytes = Math.max(peakHeapBytes, usedHeap());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Creates factory which ignores DTDs, so a file cannot pull in external entities.
+     */
+    private static XMLInputFactory newFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
@@ -0,0 +1,115 @@
+package interfaces;
+
+/**
+ * A change of a contact manager, delivered to its change listeners.
+ *
+ * Events carry the contact or meeting as it is right after the change. Contacts are
+ * shared with the manager, meetings are replaced on conversion, so a later event about
+ * the same meeting carries a new object.
+ */
+public final class ChangeEvent {
+
+    /**
+     * Kinds of changes.
+     */
+    public enum Type {
+        /**
+         * A new contact was created, see {@link #getContact()}.
+         */
+        CONTACT_ADDED,
+
+        /**
+         * A new future or past meeting was recorded, see {@link #getMeeting()}.
+         */
+        MEETING_SCHEDULED,
+
+        /**
+         * A future meeting was converted to a past meeting, see {@link #getMeeting()}.
+         */
+        MEETING_BECAME_PAST,
+
+        /**
+         * Notes were added to the contact or to the past meeting which is not null.
+         */
+        NOTES_ADDED,
+
+        /**
+         * The listeners did not keep up and events were dropped, see {@link #getLostCount()}.
+         * Anything built from the events should be rebuilt from the manager.
+         */
+        EVENTS_LOST
+    }
+
+    private final Type type;
+    private final Contact contact;
+    private final Meeting meeting;
+    private final long lostCount;
+
+    private ChangeEvent(Type type, Contact contact, Meeting meeting, long lostCount) {
+        this.type = type;
+        this.contact = contact;
+        this.meeting = meeting;
+        this.lostCount = lostCount;
+    }
+
+    public static ChangeEvent contactAdded(Contact contact) {
+        return new ChangeEvent(Type.CONTACT_ADDED, contact, null, 0);
+    }
+
+    public static ChangeEvent meetingScheduled(Meeting meeting) {
+        return new ChangeEvent(Type.MEETING_SCHEDULED, null, meeting, 0);
+    }
+
+    public static ChangeEvent meetingBecamePast(PastMeeting meeting) {
+        return new ChangeEvent(Type.MEETING_BECAME_PAST, null, meeting, 0);
+    }
+
+    public static ChangeEvent notesAdded(Contact contact) {
+        return new ChangeEvent(Type.NOTES_ADDED, contact, null, 0);
+    }
+
+    public static ChangeEvent notesAdded(PastMeeting meeting) {
+        return new ChangeEvent(Type.NOTES_ADDED, null, meeting, 0);
+    }
+
+    public static ChangeEvent eventsLost(long count) {
+        return new ChangeEvent(Type.EVENTS_LOST, null, null, count);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the changed contact.
+     *
+     * @return contact, or null if the event is about a meeting
+     */
+    public Contact getContact() {
+        return contact;
+    }
+
+    /**
+     * Returns the changed meeting.
+     *
+     * @return meeting, or null if the event is about a contact
+     */
+    public Meeting getMeeting() {
+        return meeting;
+    }
+
+    /**
+     * Returns how many events were dropped.
+     *
+     * @return number of dropped events, zero unless the type is EVENTS_LOST
+     */
+    public long getLostCount() {
+        return lostCount;
+    }
+
+    @Override
+    public String toString() {
+        if (type == Type.EVENTS_LOST) return type + " " + lostCount;
+        return type + " " + ((contact != null) ? "contact " + contact.getId() : "meeting " + meeting.getId());
+    }
+}
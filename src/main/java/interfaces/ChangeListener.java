@@ -0,0 +1,18 @@
+package interfaces;
+
+import java.util.List;
+
+/**
+ * Follows changes of a contact manager, e.g. to keep a search index or a cache up to date
+ * without rescanning all contacts.
+ */
+@FunctionalInterface
+public interface ChangeListener {
+
+    /**
+     * Receives the next batch of changes, in the order they were made.
+     *
+     * @param events one or more events, the list must not be kept after the call
+     */
+    void onChanges(List<ChangeEvent> events);
+}
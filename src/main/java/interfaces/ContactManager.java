@@ -83,6 +83,22 @@ public interface ContactManager {
      */
     List<Meeting> getMeetingListOn(Calendar date);
 
+    /**
+     * Returns the list of meetings that are scheduled for, or that took
+     * place, from the first date (inclusive) until the second date (exclusive).
+     *
+     * If there are none, the returned list will be empty. Otherwise,
+     * the list will be chronologically sorted and will not contain any
+     * duplicates.
+     *
+     * @param from the start of the period
+     * @param to the end of the period
+     * @return the list of meetings
+     * @throws IllegalArgumentException if the start is after the end
+     * @throws NullPointerException if any of the dates are null
+     */
+    List<Meeting> getMeetingsBetween(Calendar from, Calendar to);
+
     /**
      * Returns the list of past meetings in which this contact has participated.
      *
@@ -136,6 +152,31 @@ public interface ContactManager {
      */
     int addNewContact(String name, String notes);
 
+    /**
+     * Create new contacts with the specified names and notes, all at once.
+     *
+     * Either all contacts are created or, if any of them is invalid, none.
+     *
+     * @param contacts names and notes of the contacts to be created
+     * @return the IDs for the new contacts, in the order of the list
+     * @throws IllegalArgumentException if any name or notes are empty strings
+     * @throws NullPointerException if the list, any of its elements, names or notes are null
+     */
+    int[] addNewContacts(List<NewContact> contacts);
+
+    /**
+     * Add new future and past meetings, all at once.
+     *
+     * Either all meetings are added or, if any of them is invalid, none.
+     *
+     * @param meetings participants, dates and notes of the meetings to be added
+     * @return the IDs for the new meetings, in the order of the list
+     * @throws IllegalArgumentException if a future meeting is set for a time in the past,
+     * a past meeting has no participants, or any contact is unknown / non-existent
+     * @throws NullPointerException if the list, any of its elements, participants or dates are null
+     */
+    int[] addMeetings(List<NewMeeting> meetings);
+
 
     /**
      * Returns a list with the contacts whose name contains that string.
@@ -149,6 +190,35 @@ public interface ContactManager {
      */
     Set<Contact> getContacts(String name);
 
+    /**
+     * Returns a list with the contacts whose name contains that string,
+     * optionally ignoring case.
+     *
+     * If the string is the empty string, this methods returns the set
+     * that contains all current contacts.
+     *
+     * @param name the string to search for
+     * @param ignoreCase true if upper and lower case letters should match each other
+     * @return a list with the contacts whose name contains that string.
+     * @throws NullPointerException if the name is null
+     */
+    Set<Contact> getContacts(String name, boolean ignoreCase);
+
+    /**
+     * Returns up to the given number of contacts with a word of the name
+     * starting with that string, ignoring case.
+     *
+     * The list is sorted alphabetically by the matching word and
+     * will not contain any duplicates.
+     *
+     * @param prefix the start of the name or of any word in it
+     * @param limit the maximum number of contacts to be returned
+     * @return a list with the matching contacts (maybe empty).
+     * @throws IllegalArgumentException if the limit is negative
+     * @throws NullPointerException if the prefix is null
+     */
+    List<Contact> suggestContacts(String prefix, int limit);
+
     /**
      * Returns a list containing the contacts that correspond to the IDs.
      * Note that this method can be used to retrieve just one contact by passing only one ID.
@@ -24,6 +24,15 @@ public interface Meeting {
      */
     Calendar getDate();
 
+    /**
+     * Return the date of the meeting as milliseconds since the epoch.
+     *
+     * @return the date of the meeting in epoch millis.
+     */
+    default long getEpochMillis() {
+        return getDate().getTimeInMillis();
+    }
+
     /**
      * Return the details of people that attended the meeting.
      * <p/>
@@ -0,0 +1,27 @@
+package interfaces;
+
+/**
+ * Name and notes of a contact to be created, see {@link ContactManager#addNewContacts(java.util.List)}.
+ */
+public final class NewContact {
+    private final String name;
+    private final String notes;
+
+    public NewContact(String name, String notes) {
+        this.name = name;
+        this.notes = notes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    @Override
+    public String toString() {
+        return "NewContact{name='" + name + "', notes='" + notes + "'}";
+    }
+}
@@ -0,0 +1,59 @@
+package interfaces;
+
+import java.util.Calendar;
+import java.util.Set;
+
+/**
+ * Participants, date and notes of a meeting to be recorded, see {@link ContactManager#addMeetings(java.util.List)}.
+ *
+ * A future meeting has no notes, a past meeting has notes which may be empty.
+ */
+public final class NewMeeting {
+    private final Set<Contact> contacts;
+    private final Calendar date;
+    private final String notes;
+
+    private NewMeeting(Set<Contact> contacts, Calendar date, String notes) {
+        this.contacts = contacts;
+        this.date = date;
+        this.notes = notes;
+    }
+
+    /**
+     * Returns meeting to be held in the future, as added by {@link ContactManager#addFutureMeeting(Set, Calendar)}.
+     */
+    public static NewMeeting future(Set<Contact> contacts, Calendar date) {
+        return new NewMeeting(contacts, date, null);
+    }
+
+    /**
+     * Returns meeting which took place in the past, as added by {@link ContactManager#addNewPastMeeting(Set, Calendar, String)}.
+     *
+     * @throws NullPointerException if the notes are null
+     */
+    public static NewMeeting past(Set<Contact> contacts, Calendar date, String notes) {
+        if (notes == null) throw new NullPointerException();
+        return new NewMeeting(contacts, date, notes);
+    }
+
+    public Set<Contact> getContacts() {
+        return contacts;
+    }
+
+    public Calendar getDate() {
+        return date;
+    }
+
+    /**
+     * Returns notes of a past meeting.
+     *
+     * @return notes, or null for a future meeting
+     */
+    public String getNotes() {
+        return notes;
+    }
+
+    public boolean isPast() {
+        return notes != null;
+    }
+}
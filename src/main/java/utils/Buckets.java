@@ -0,0 +1,55 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Growable lists of int IDs stored as plain arrays, used by the sorted indexes for IDs sharing a key.
+ *
+ * The first slot of a bucket holds the number of IDs, which follow from the second slot on.
+ * A bucket doubles when full, so adding n IDs to the same key copies O(n) IDs in total.
+ * A bucket of one ID takes an array of two ints, which occupies as much memory as an array of one.
+ */
+class Buckets {
+
+    private Buckets() {}
+
+    /**
+     * Appends ID to the bucket.
+     *
+     * @param bucket to append to, or null for a new bucket
+     * @param id to be appended
+     * @return the bucket, or a new one if it had to grow
+     */
+    static int[] add(int[] bucket, int id) {
+        if (bucket == null) return new int[] {1, id};
+
+        int size = bucket[0];
+        if (size + 1 == bucket.length) bucket = Arrays.copyOf(bucket, 2 * bucket.length);
+        bucket[size + 1] = id;
+        bucket[0] = size + 1;
+        return bucket;
+    }
+
+    /**
+     * Removes first occurrence of the ID, keeping the order of the others.
+     *
+     * @param bucket to remove from
+     * @param id to be removed
+     * @return true if ID was found
+     */
+    static boolean remove(int[] bucket, int id) {
+        int size = bucket[0];
+        for (int i = 1; i <= size; i++) {
+            if (bucket[i] == id) {
+                System.arraycopy(bucket, i + 1, bucket, i, size - i);
+                bucket[0] = size - 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static int size(int[] bucket) {
+        return bucket[0];
+    }
+}
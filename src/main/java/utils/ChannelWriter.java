@@ -0,0 +1,74 @@
+package utils;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes text to a channel as UTF-8 through a buffer of fixed size.
+ * Unpaired surrogates are replaced, as by String.getBytes.
+ */
+public class ChannelWriter implements Flushable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Creates writer to the channel, which is not closed by the writer.
+     *
+     * @param channel to write to
+     */
+    public ChannelWriter(WritableByteChannel channel) {
+        if (channel == null) throw new NullPointerException();
+        this.channel = channel;
+    }
+
+    /**
+     * Encodes the text into the buffer, writing the buffer to the channel whenever it fills up.
+     *
+     * @param text to be written
+     * @throws IOException if the channel cannot be written
+     */
+    public void write(CharSequence text) throws IOException {
+        CharBuffer in = CharBuffer.wrap(text);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(in, bytes, true);
+            if (!result.isOverflow()) break;
+            drain();
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            drain();
+        }
+    }
+
+    /**
+     * Writes buffered text to the channel.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    //HELPER METHODS
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
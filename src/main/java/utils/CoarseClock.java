@@ -0,0 +1,86 @@
+package utils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * System clock read in the background at a fixed resolution, so reading it in a hot loop
+ * is a single volatile read. The time it returns lags behind by up to the resolution.
+ *
+ * All coarse clocks are ticked by one shared daemon thread. Call {@link #stop()} when
+ * a clock is no longer needed, it then stands still at the last tick.
+ */
+public class CoarseClock extends Clock {
+    private static final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "coarse-clock");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Ticks ticks;
+    private final ZoneId zone;
+
+    /**
+     * Creates clock in UTC ticking at the given resolution.
+     *
+     * @param resolutionMillis interval between ticks
+     * @throws IllegalArgumentException if the resolution is not positive
+     */
+    public CoarseClock(long resolutionMillis) {
+        if (resolutionMillis < 1) throw new IllegalArgumentException();
+
+        ticks = new Ticks();
+        ticks.future = ticker.scheduleAtFixedRate(ticks::tick, resolutionMillis, resolutionMillis, TimeUnit.MILLISECONDS);
+        zone = ZoneOffset.UTC;
+    }
+
+    private CoarseClock(Ticks ticks, ZoneId zone) {
+        this.ticks = ticks;
+        this.zone = zone;
+    }
+
+    /**
+     * Stops ticking. Also stops clocks sharing the time with this one.
+     */
+    public void stop() {
+        ticks.future.cancel(false);
+    }
+
+    @Override
+    public long millis() {
+        return ticks.millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis());
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new CoarseClock(ticks, zone);
+    }
+
+    /**
+     * Time of the last tick, shared by clocks differing only in zone.
+     */
+    private static class Ticks {
+        private volatile long millis = System.currentTimeMillis();
+        private ScheduledFuture<?> future;
+
+        private void tick() {
+            millis = System.currentTimeMillis();
+        }
+    }
+}
@@ -57,17 +57,21 @@ public class ContactManagerFilters {
     }
 
     public static List<Meeting> filterFutureMeetingsWithContact(List<? super Meeting> meetings, Contact contact, Calendar now) {
-        return customMeetingFilter(meetings, isFutureMeeting(now), meetingWithContact(contact), new DateComparator());
+        return customMeetingFilter(meetings, happensAfter(now), meetingWithContact(contact), new DateComparator());
     }
 
     public static List<? super Meeting> filterPastMeetingsByContact(List<? super Meeting> meetings, Contact contact) {
-        return customMeetingFilter(meetings, isPastMeeting(new GregorianCalendar()), meetingWithContact(contact), new DateComparator());
+        return customMeetingFilter(meetings, happenedBefore(new GregorianCalendar()), meetingWithContact(contact), new DateComparator());
     }
 
     public static Set<Contact> filterContactsWithName(Set<Contact> contacts, String nameContains) {
         return customContactFilter(contacts, contactWithName(nameContains));
     }
 
+    public static Set<Contact> filterContactsWithNameIgnoreCase(Set<Contact> contacts, String nameContains) {
+        return customContactFilter(contacts, contactWithNameIgnoreCase(nameContains));
+    }
+
     public static Set<Contact> filterContactsWithId(Set<Contact> contacts, List<Integer> ids) {
         return customContactFilter(contacts, contactWithID(ids));
     }
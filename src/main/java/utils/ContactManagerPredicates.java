@@ -23,15 +23,40 @@ public class ContactManagerPredicates {
     }
 
     public static Predicate<Meeting> isFutureMeeting(Calendar date) {
-        return meeting -> meeting.getDate().after(date) && meeting instanceof FutureMeeting;
+        long millis = date.getTimeInMillis();
+        return meeting -> meeting.getEpochMillis() > millis && meeting instanceof FutureMeeting;
     }
 
     public static Predicate<Meeting> isPastMeeting(Calendar date) {
-        return meeting -> meeting.getDate().before(date) && meeting instanceof PastMeeting;
+        long millis = date.getTimeInMillis();
+        return meeting -> meeting.getEpochMillis() < millis && meeting instanceof PastMeeting;
+    }
+
+    /**
+     * Matches meetings taking place after the date, whatever type the meeting is stored as.
+     *
+     * @param date to compare with
+     * @return predicate
+     */
+    public static Predicate<Meeting> happensAfter(Calendar date) {
+        long millis = date.getTimeInMillis();
+        return meeting -> meeting.getEpochMillis() > millis;
+    }
+
+    /**
+     * Matches meetings which took place before the date, whatever type the meeting is stored as.
+     *
+     * @param date to compare with
+     * @return predicate
+     */
+    public static Predicate<Meeting> happenedBefore(Calendar date) {
+        long millis = date.getTimeInMillis();
+        return meeting -> meeting.getEpochMillis() < millis;
     }
 
     public static Predicate<Meeting> meetingOn(Calendar date) {
-        return meeting -> meeting.getDate().equals(date);
+        long millis = date.getTimeInMillis();
+        return meeting -> meeting.getEpochMillis() == millis;
     }
 
     public static Predicate<Meeting> meetingWithID(int id) {
@@ -46,6 +71,10 @@ public class ContactManagerPredicates {
         return contact -> contact.getName().contains(name);
     }
 
+    public static Predicate<Contact> contactWithNameIgnoreCase(String name) {
+        return contact -> Utils.containsIgnoreCase(contact.getName(), name);
+    }
+
     public static Predicate<Contact> contactWithID(List<Integer> ids) {
         return contact -> ids.contains(contact.getId());
     }
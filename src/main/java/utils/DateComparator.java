@@ -13,6 +13,6 @@ public class DateComparator implements Comparator<Meeting> {
 
     @Override
     public int compare(Meeting m1, Meeting m2) {
-        return m2.getDate().compareTo(m1.getDate());
+        return Long.compare(m2.getEpochMillis(), m1.getEpochMillis());
     }
 }
@@ -0,0 +1,67 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Allocates unique positive IDs for one entity type in constant time.
+ * IDs are taken from an atomic high-water mark, so concurrent callers never receive the same ID.
+ * The mark never passes Integer.MAX_VALUE, so once the ID space is exhausted every allocation fails.
+ */
+public class IdAllocator {
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+
+    /**
+     * Returns new unique ID.
+     *
+     * @return ID greater than zero
+     * @throws IllegalStateException if all positive int values were allocated
+     */
+    public int next() {
+        return nextRange(1);
+    }
+
+    /**
+     * Returns first of the given number of consecutive new IDs, all reserved in one step.
+     *
+     * @param count number of IDs
+     * @return first ID of the range, greater than zero
+     * @throws IllegalArgumentException if the count is not positive
+     * @throws IllegalStateException if the range does not fit into positive int values
+     */
+    public int nextRange(int count) {
+        if (count < 1) throw new IllegalArgumentException();
+
+        while (true) {
+            int current = highWaterMark.get();
+            if (current < 0 || current > Integer.MAX_VALUE - count) throw new IllegalStateException("ID space exhausted.");
+            if (highWaterMark.compareAndSet(current, current + count)) return current + 1;
+        }
+    }
+
+    /**
+     * Makes sure that the given existing ID will never be allocated.
+     *
+     * @param id ID already in use
+     */
+    public void observe(int id) {
+        highWaterMark.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Resets allocator after a load, so that new IDs follow the highest existing one.
+     *
+     * @param maxExistingId highest ID in use, or 0 if there are none
+     */
+    public void restore(int maxExistingId) {
+        highWaterMark.set(Math.max(0, maxExistingId));
+    }
+
+    /**
+     * Returns the highest ID handed out or observed so far.
+     *
+     * @return high-water mark
+     */
+    public int current() {
+        return highWaterMark.get();
+    }
+}
@@ -0,0 +1,173 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Hash map with primitive int keys, used as a primary-key index.
+ * Open addressing with linear probing keeps lookups free of boxing and allocation.
+ * Null values are not permitted, a null slot marks an empty bucket.
+ *
+ * @param <V> type of values
+ */
+public class IntMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    public IntMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a map able to hold the expected number of entries without resizing.
+     *
+     * @param expectedSize number of entries to be stored
+     */
+    public IntMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Returns value mapped to the key.
+     *
+     * @param key to look up
+     * @return value or null if key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int i = indexOf(key);
+        return (i < 0) ? null : (V) values[i];
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Maps the key to the value, replacing existing mapping if any.
+     *
+     * @param key of the entry
+     * @param value of the entry, not null
+     * @return previous value or null
+     * @throws NullPointerException if value is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) throw new NullPointerException();
+
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > values.length) resize(values.length << 1);
+        return null;
+    }
+
+    /**
+     * Removes mapping for the key. Following entries of the probe chain are shifted back,
+     * so no tombstones are left behind.
+     *
+     * @param key to be removed
+     * @return removed value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int i = indexOf(key);
+        if (i < 0) return null;
+
+        V removed = (V) values[i];
+        int gap = i;
+        int next = (i + 1) & mask;
+        while (values[next] != null) {
+            int home = slot(keys[next]);
+            //move entry into the gap if its home bucket is not between gap and its position
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Grows the map so that it holds the expected number of entries without further resizing.
+     *
+     * @param expectedSize number of entries to be stored
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = values.length;
+        while (capacity < expectedSize * 2L) {
+            capacity <<= 1;
+        }
+        if (capacity != values.length) resize(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    //HELPER METHODS
+
+    private int indexOf(int key) {
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
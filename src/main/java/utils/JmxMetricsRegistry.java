@@ -0,0 +1,122 @@
+package utils;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registry publishing metrics as read-only attributes of one MBean.
+ *
+ * Counters and gauges become long attributes of the same name. A histogram becomes
+ * attributes with the suffixes .count, .mean, .p50, .p99, .p999 and .max, in nanoseconds.
+ * Metrics should be registered before the MBean, as JMX clients may cache its attributes.
+ */
+public class JmxMetricsRegistry implements MetricsRegistry, DynamicMBean {
+    private final Map<String, Supplier<Object>> attributes = new ConcurrentSkipListMap<>();
+    private final Map<String, String> types = new ConcurrentSkipListMap<>();
+    private final String description;
+
+    /**
+     * Creates registry without metrics.
+     *
+     * @param description of the MBean shown by JMX clients
+     */
+    public JmxMetricsRegistry(String description) {
+        if (description == null) throw new NullPointerException();
+        this.description = description;
+    }
+
+    @Override
+    public void counter(String name, LongSupplier count) {
+        add(name, "long", count::getAsLong);
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value) {
+        add(name, "long", value::getAsLong);
+    }
+
+    @Override
+    public void histogram(String name, LatencyHistogram histogram) {
+        add(name + ".count", "long", histogram::getCount);
+        add(name + ".mean", "double", histogram::getMean);
+        add(name + ".p50", "long", () -> histogram.getValueAtPercentile(50));
+        add(name + ".p99", "long", () -> histogram.getValueAtPercentile(99));
+        add(name + ".p999", "long", () -> histogram.getValueAtPercentile(99.9));
+        add(name + ".max", "long", histogram::getMax);
+    }
+
+    /**
+     * Registers the MBean with the platform MBean server.
+     *
+     * @param name of the MBean, e.g. "contactManager:type=Metrics,name=default"
+     * @throws JMException if the name is invalid or taken
+     */
+    public void register(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+    }
+
+    /**
+     * Removes the MBean from the platform MBean server.
+     *
+     * @param name the MBean was registered under
+     * @throws JMException if the name is invalid or not registered
+     */
+    public void unregister(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(name));
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Supplier<Object> value = attributes.get(attribute);
+        if (value == null) throw new AttributeNotFoundException(attribute);
+        return value.get();
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            Supplier<Object> value = attributes.get(name);
+            if (value != null) list.add(new Attribute(name, value.get()));
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(action));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        for (Map.Entry<String, String> type : types.entrySet()) {
+            infos.add(new MBeanAttributeInfo(type.getKey(), type.getValue(), type.getKey(), true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), description, infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+
+    //HELPER METHODS
+
+    private void add(String name, String type, Supplier<Object> value) {
+        if (name == null || value == null) throw new NullPointerException();
+        types.put(name, type);
+        attributes.put(name, value);
+    }
+}
@@ -0,0 +1,164 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with bounded relative error, in the manner of HdrHistogram.
+ *
+ * Values below 64 have a bucket each. Above that every power of two is split into 32 buckets,
+ * so a reported percentile is at most about 3% above the recorded value, whatever its magnitude.
+ * All positive longs fit into 1888 buckets, allocated with the first value, so an unused
+ * histogram takes little memory and recording never allocates afterwards.
+ *
+ * Recording is safe for use by concurrent threads and takes one atomic increment.
+ * Reading while others record sees each value either fully recorded or not at all,
+ * but count, percentiles and max may be from slightly different moments.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    private volatile AtomicLongArray counts;
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one value.
+     *
+     * @param value e.g. nanoseconds, negative values count as zero
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts().incrementAndGet(index(value));
+        if (value > max.get()) max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Adds all values recorded by the other histogram to this one.
+     *
+     * @param other histogram to be added
+     */
+    public void add(LatencyHistogram other) {
+        AtomicLongArray otherCounts = other.counts;
+        if (otherCounts == null) return;
+
+        AtomicLongArray counts = counts();
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = otherCounts.get(i);
+            if (count != 0) counts.addAndGet(i, count);
+        }
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    public long getCount() {
+        AtomicLongArray counts = this.counts;
+        if (counts == null) return 0;
+
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns mean of the recorded values, computed from the middle of their buckets.
+     *
+     * @return mean, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        AtomicLongArray counts = this.counts;
+        if (counts == null) return 0;
+
+        long count = 0;
+        double sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucketCount = counts.get(i);
+            if (bucketCount == 0) continue;
+
+            count += bucketCount;
+            sum += bucketCount * ((lowest(i) + (double) highest(i)) / 2);
+        }
+        return (count == 0) ? 0 : sum / count;
+    }
+
+    /**
+     * Returns value at the percentile, the highest value of its bucket but never above the max.
+     *
+     * @param percentile between 0 and 100, e.g. 99.9
+     * @return value which the percentile of recorded values does not exceed, or 0 if nothing was recorded
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) throw new IllegalArgumentException();
+
+        AtomicLongArray counts = this.counts;
+        long total = getCount();
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(highest(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Forgets all recorded values.
+     */
+    public void reset() {
+        AtomicLongArray counts = this.counts;
+        if (counts != null) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+        }
+        max.set(0);
+    }
+
+    //HELPER METHODS
+
+    private AtomicLongArray counts() {
+        AtomicLongArray counts = this.counts;
+        if (counts == null) {
+            synchronized (this) {
+                counts = this.counts;
+                if (counts == null) {
+                    counts = new AtomicLongArray(BUCKETS);
+                    this.counts = counts;
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    private static long lowest(int index) {
+        if (index < SUB_BUCKETS) return index;
+
+        int shift = index / HALF - 1;
+        return (long) (index % HALF + HALF) << shift;
+    }
+
+    private static long highest(int index) {
+        if (index < SUB_BUCKETS) return index;
+
+        int shift = index / HALF - 1;
+        //the last bucket ends at Long.MAX_VALUE, so compute the end without overflowing
+        return lowest(index) + ((1L << shift) - 1);
+    }
+}
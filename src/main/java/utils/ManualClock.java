@@ -0,0 +1,80 @@
+package utils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock which stands still until it is set or advanced, for tests and benchmarks which
+ * need "now" to be deterministic.
+ *
+ * Clocks returned by {@link #withZone(ZoneId)} share the time with this one.
+ */
+public class ManualClock extends Clock {
+    private final AtomicLong millis;
+    private final ZoneId zone;
+
+    /**
+     * Creates clock standing at the given time, in UTC.
+     *
+     * @param millis epoch millis
+     */
+    public ManualClock(long millis) {
+        this(new AtomicLong(millis), ZoneOffset.UTC);
+    }
+
+    /**
+     * Creates clock standing at the given instant, in UTC.
+     *
+     * @param instant current time of the clock
+     */
+    public ManualClock(Instant instant) {
+        this(instant.toEpochMilli());
+    }
+
+    private ManualClock(AtomicLong millis, ZoneId zone) {
+        this.millis = millis;
+        this.zone = zone;
+    }
+
+    /**
+     * Moves the clock to the given time, also backwards.
+     *
+     * @param millis epoch millis
+     */
+    public void set(long millis) {
+        this.millis.set(millis);
+    }
+
+    /**
+     * Moves the clock forward, or backward for a negative duration.
+     *
+     * @param duration to be added
+     */
+    public void advance(Duration duration) {
+        millis.addAndGet(duration.toMillis());
+    }
+
+    @Override
+    public long millis() {
+        return millis.get();
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis());
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new ManualClock(millis, zone);
+    }
+}
@@ -0,0 +1,34 @@
+package utils;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Receives the metrics of a component, e.g. to publish them through JMX or a monitoring library.
+ * Values are read from the suppliers whenever the registry reports them.
+ */
+public interface MetricsRegistry {
+
+    /**
+     * Registers count which only grows, such as number of calls.
+     *
+     * @param name of the metric
+     * @param count current value
+     */
+    void counter(String name, LongSupplier count);
+
+    /**
+     * Registers value which goes up and down, such as number of contacts.
+     *
+     * @param name of the metric
+     * @param value current value
+     */
+    void gauge(String name, LongSupplier value);
+
+    /**
+     * Registers distribution of latencies in nanoseconds.
+     *
+     * @param name of the metric
+     * @param histogram recorded latencies
+     */
+    void histogram(String name, LatencyHistogram histogram);
+}
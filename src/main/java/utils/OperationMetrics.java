@@ -0,0 +1,119 @@
+package utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Calls, failures and latencies of one operation.
+ *
+ * Counts are striped LongAdders, so concurrent callers do not contend on a single value.
+ * Timing a call reads System.nanoTime twice, which can cost more than a quick lookup itself,
+ * so latency can be sampled: calls and errors are always counted exactly, but only a random
+ * one in every n calls is timed. Percentiles of the sample estimate those of all calls.
+ */
+public class OperationMetrics {
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private volatile int sampleMask;
+
+    /**
+     * Runs the call and records it, counting it as failed if it throws.
+     *
+     * @param call body of the operation
+     * @return result of the call
+     */
+    public <T> T time(Supplier<T> call) {
+        long start = start();
+        try {
+            return call.get();
+        } catch (RuntimeException | Error e) {
+            errors.increment();
+            throw e;
+        } finally {
+            record(start);
+        }
+    }
+
+    /**
+     * Runs the call and records it, counting it as failed if it throws.
+     *
+     * @param call body of the operation
+     */
+    public void time(Runnable call) {
+        long start = start();
+        try {
+            call.run();
+        } catch (RuntimeException | Error e) {
+            errors.increment();
+            throw e;
+        } finally {
+            record(start);
+        }
+    }
+
+    /**
+     * Starts call, deciding whether it is timed.
+     *
+     * @return System.nanoTime if the call is timed, otherwise 0
+     */
+    public long start() {
+        int mask = sampleMask;
+        if (mask != 0 && (ThreadLocalRandom.current().nextInt() & mask) != 0) return 0;
+        return System.nanoTime();
+    }
+
+    /**
+     * Records call which started at the given time and ends now.
+     *
+     * @param startNanos returned by {@link #start()}
+     */
+    public void record(long startNanos) {
+        calls.increment();
+        if (startNanos != 0) latency.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Sets how many calls share one timed call.
+     *
+     * @param oneIn 1 to time every call, otherwise a power of two
+     * @throws IllegalArgumentException if the value is not a positive power of two
+     */
+    public void setLatencySampling(int oneIn) {
+        if (oneIn < 1 || Integer.bitCount(oneIn) != 1) throw new IllegalArgumentException();
+        sampleMask = oneIn - 1;
+    }
+
+    public int getLatencySampling() {
+        return sampleMask + 1;
+    }
+
+    public void failed() {
+        errors.increment();
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Registers calls, errors and latency under the name followed by ".calls", ".errors" and ".latency".
+     *
+     * @param registry to register with
+     * @param name of the operation
+     */
+    public void bindTo(MetricsRegistry registry, String name) {
+        registry.counter(name + ".calls", calls::sum);
+        registry.counter(name + ".errors", errors::sum);
+        registry.histogram(name + ".latency", latency);
+    }
+}
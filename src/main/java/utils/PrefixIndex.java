@@ -0,0 +1,79 @@
+package utils;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Sorted index of normalized names for prefix lookups, such as autocomplete.
+ *
+ * A name is indexed from the start of each of its words, so "Ada Lovelace" is found both
+ * by "ada" and by "love". Names are normalized by trimming and lower casing.
+ */
+public class PrefixIndex {
+    private final NavigableMap<String, int[]> keys = new TreeMap<>();
+
+    /**
+     * Indexes the name under the ID.
+     *
+     * @param id of the name owner
+     * @param name to be indexed, null is ignored
+     */
+    public void add(int id, String name) {
+        if (name == null) return;
+
+        String normalized = normalize(name);
+        for (int i = 0; i < normalized.length(); i++) {
+            if (i == 0 || (Character.isWhitespace(normalized.charAt(i - 1)) && !Character.isWhitespace(normalized.charAt(i)))) {
+                addKey(normalized.substring(i), id);
+            }
+        }
+    }
+
+    /**
+     * Visits IDs of names with a word starting with the prefix, in alphabetical order of the matched words.
+     * The same ID may be visited more than once if several of its words match.
+     * Visiting stops as soon as the action returns false.
+     *
+     * @param prefix to search for
+     * @param action to be called with every ID, returns true to continue
+     */
+    public void forEachStartingWith(String prefix, IntPredicate action) {
+        String normalized = normalize(prefix);
+        for (Map.Entry<String, int[]> entry : keys.tailMap(normalized, true).entrySet()) {
+            if (!entry.getKey().startsWith(normalized)) return;
+
+            int[] bucket = entry.getValue();
+            for (int i = 1; i <= Buckets.size(bucket); i++) {
+                if (!action.test(bucket[i])) return;
+            }
+        }
+    }
+
+    /**
+     * Normalizes the name the way keys of the index are stored.
+     *
+     * @param name to be normalized
+     * @return trimmed lower case name
+     */
+    public static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns number of distinct keys, one for every distinct name and word suffix of it.
+     *
+     * @return number of keys
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    private void addKey(String key, int id) {
+        int[] bucket = keys.get(key);
+        int[] added = Buckets.add(bucket, id);
+        if (added != bucket) keys.put(key, added);
+    }
+}
@@ -0,0 +1,147 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads UTF-8 text from a channel one record at a time, through buffers of fixed size.
+ *
+ * Records end with a line feed, a preceding carriage return is dropped and blank lines are skipped.
+ * If quotes are honoured, line breaks between double quotes belong to the record, as in CSV.
+ * Malformed UTF-8 and records longer than the maximum length, e.g. after a stray quote,
+ * are reported as an IOException.
+ */
+public class RecordReader {
+    public static final int DEFAULT_MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final boolean honourQuotes;
+    private final int maxRecordLength;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final StringBuilder record = new StringBuilder();
+    private boolean endOfInput;
+    private boolean inQuotes;
+    private long count;
+
+    /**
+     * Creates reader of the channel with records of up to {@link #DEFAULT_MAX_RECORD_LENGTH} characters.
+     *
+     * @param channel to read from
+     * @param honourQuotes true if line breaks may be quoted
+     */
+    public RecordReader(ReadableByteChannel channel, boolean honourQuotes) {
+        this(channel, honourQuotes, DEFAULT_MAX_RECORD_LENGTH);
+    }
+
+    /**
+     * Creates reader of the channel, which is read from its current position and not closed.
+     *
+     * @param channel to read from
+     * @param honourQuotes true if line breaks may be quoted
+     * @param maxRecordLength maximum number of characters of a record
+     * @throws IllegalArgumentException if the maximum length is not positive
+     */
+    public RecordReader(ReadableByteChannel channel, boolean honourQuotes, int maxRecordLength) {
+        if (channel == null) {
+            throw new NullPointerException();
+        } else if (maxRecordLength < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.channel = channel;
+        this.honourQuotes = honourQuotes;
+        this.maxRecordLength = maxRecordLength;
+        chars.flip();
+    }
+
+    /**
+     * Returns next record.
+     *
+     * @return record without the line break, or null at the end of the input
+     * @throws IOException if the channel cannot be read, the text is not UTF-8, a quote is not closed
+     * or the record is too long
+     */
+    public String next() throws IOException {
+        record.setLength(0);
+        while (true) {
+            char[] array = chars.array();
+            int start = chars.position();
+            for (int i = start; i < chars.limit(); i++) {
+                char c = array[i];
+                if (c == '"' && honourQuotes) {
+                    inQuotes = !inQuotes;
+                } else if (c == '\n' && !inQuotes) {
+                    append(array, start, i - start);
+                    chars.position(i + 1);
+                    if (isBlank()) {
+                        record.setLength(0);
+                        start = i + 1;
+                        continue;
+                    }
+                    return finish();
+                }
+            }
+            append(array, start, chars.limit() - start);
+            chars.position(chars.limit());
+
+            if (!fill()) {
+                if (inQuotes) throw new IOException("Quote is not closed at the end of the input");
+                return isBlank() ? null : finish();
+            }
+        }
+    }
+
+    //HELPER METHODS
+
+    /**
+     * Appends characters to the record, failing once it exceeds the maximum length
+     * rather than buffering the rest of the input.
+     */
+    private void append(char[] array, int start, int length) throws IOException {
+        if ((long) record.length() + length > maxRecordLength) {
+            throw new IOException("Record " + (count + 1) + " is longer than " + maxRecordLength + " characters");
+        }
+        record.append(array, start, length);
+    }
+
+    private boolean isBlank() {
+        return record.length() == 0 || (record.length() == 1 && record.charAt(0) == '\r');
+    }
+
+    private String finish() {
+        count++;
+        int length = record.length();
+        if (record.charAt(length - 1) == '\r') length--;
+        return record.substring(0, length);
+    }
+
+    /**
+     * Decodes more input into the empty char buffer.
+     *
+     * @return false at the end of the input
+     */
+    private boolean fill() throws IOException {
+        chars.clear();
+        while (chars.position() == 0 && !(endOfInput && bytes.position() == 0)) {
+            if (!endOfInput && channel.read(bytes) < 0) endOfInput = true;
+
+            bytes.flip();
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if (result.isError()) result.throwException();
+            bytes.compact();
+            if (endOfInput && bytes.position() == 0) {
+                decoder.flush(chars);
+                break;
+            }
+        }
+        chars.flip();
+        return chars.hasRemaining();
+    }
+}
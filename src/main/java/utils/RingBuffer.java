@@ -0,0 +1,124 @@
+package utils;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded queue of many producers and a single consumer, backed by an array and free of locks.
+ *
+ * Every slot carries a sequence number telling whether it is free for the producer of a
+ * position or holds the element for the consumer of it. Producers claim positions by
+ * incrementing the tail, the consumer takes elements in batches without contending with them.
+ * A full buffer rejects elements instead of blocking, so offering never waits.
+ *
+ * Only one thread at a time may drain the buffer.
+ */
+public class RingBuffer<E> {
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Creates empty buffer.
+     *
+     * @param capacity maximum number of elements, rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is not positive or too large
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException();
+
+        int size = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        elements = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Adds element at the tail unless the buffer is full.
+     *
+     * @param element to be added
+     * @return false if the buffer is full
+     * @throws NullPointerException if the element is null
+     */
+    public boolean offer(E element) {
+        if (element == null) throw new NullPointerException();
+
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.set(slot, element);
+                    //publishes the element to the consumer, a full write so that a consumer
+                    //checking for new elements after this producer signalled it sees the element
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                //slot still holds the element of the previous round
+                return false;
+            } else {
+                //another producer claimed the position
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Moves up to max elements from the head into the collection, oldest first.
+     * Elements claimed but not yet written by a producer end the batch.
+     *
+     * @param target to add the elements to
+     * @param max maximum number of elements to move
+     * @return number of moved elements
+     */
+    public int drainTo(Collection<? super E> target, int max) {
+        long position = head.get();
+        int count = 0;
+        while (count < max) {
+            int slot = (int) position & mask;
+            if (sequences.get(slot) != position + 1) break;
+
+            target.add(elements.get(slot));
+            elements.lazySet(slot, null);
+            //frees the slot for the producer of the next round
+            sequences.lazySet(slot, position + mask + 1);
+            position++;
+            count++;
+        }
+        head.lazySet(position);
+        return count;
+    }
+
+    /**
+     * Tests if there is an element ready to be drained.
+     *
+     * @return true if nothing can be drained now
+     */
+    public boolean isEmpty() {
+        long position = head.get();
+        return sequences.get((int) position & mask) != position + 1;
+    }
+
+    /**
+     * Returns number of elements, only an estimate while producers or the consumer are active.
+     *
+     * @return number of elements
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
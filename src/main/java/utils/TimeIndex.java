@@ -0,0 +1,125 @@
+package utils;
+
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Sorted index of IDs by epoch millis, used to answer date and range queries
+ * without scanning and re-sorting all meetings.
+ *
+ * IDs are visited latest first, which is the order used by meeting lists of the contact manager.
+ * IDs sharing the same time are visited in the order they were added.
+ *
+ * IDs sharing a time are kept in a bucket array holding their count in the first slot, see {@link Buckets}.
+ */
+public class TimeIndex {
+    private final NavigableMap<Long, int[]> buckets = new TreeMap<>();
+    private int size;
+
+    /**
+     * Adds ID at the given time.
+     *
+     * @param time epoch millis
+     * @param id to be added
+     */
+    public void add(long time, int id) {
+        int[] bucket = buckets.get(time);
+        int[] added = Buckets.add(bucket, id);
+        if (added != bucket) buckets.put(time, added);
+        size++;
+    }
+
+    /**
+     * Removes ID stored at the given time.
+     *
+     * @param time epoch millis the ID was added with
+     * @param id to be removed
+     * @return true if ID was found
+     */
+    public boolean remove(long time, int id) {
+        int[] bucket = buckets.get(time);
+        if (bucket == null || !Buckets.remove(bucket, id)) return false;
+
+        if (Buckets.size(bucket) == 0) buckets.remove(time);
+        size--;
+        return true;
+    }
+
+    /**
+     * Visits IDs with time in range, latest first.
+     *
+     * @param from inclusive lower bound in epoch millis
+     * @param to exclusive upper bound in epoch millis
+     * @param action to be called with every ID
+     */
+    public void forEachBetween(long from, long to, IntConsumer action) {
+        if (from >= to) return;
+        visit(buckets.subMap(from, true, to, false), action);
+    }
+
+    /**
+     * Visits IDs with time strictly after the given one, latest first.
+     *
+     * @param time exclusive lower bound in epoch millis
+     * @param action to be called with every ID
+     */
+    public void forEachAfter(long time, IntConsumer action) {
+        visit(buckets.tailMap(time, false), action);
+    }
+
+    /**
+     * Visits IDs with time strictly before the given one, latest first.
+     *
+     * @param time exclusive upper bound in epoch millis
+     * @param action to be called with every ID
+     */
+    public void forEachBefore(long time, IntConsumer action) {
+        visit(buckets.headMap(time, false), action);
+    }
+
+    /**
+     * Removes IDs with time up to and including the given one, visiting them earliest first.
+     *
+     * @param time inclusive upper bound in epoch millis
+     * @param action to be called with every removed ID
+     */
+    public void pollUpTo(long time, IntConsumer action) {
+        NavigableMap<Long, int[]> due = buckets.headMap(time, true);
+        for (Iterator<int[]> it = due.values().iterator(); it.hasNext(); ) {
+            int[] bucket = it.next();
+            it.remove();
+            size -= Buckets.size(bucket);
+            for (int i = 1; i <= Buckets.size(bucket); i++) {
+                action.accept(bucket[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the earliest time in the index.
+     *
+     * @return epoch millis, or Long.MAX_VALUE if the index is empty
+     */
+    public long earliest() {
+        return buckets.isEmpty() ? Long.MAX_VALUE : buckets.firstKey();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        buckets.clear();
+        size = 0;
+    }
+
+    private static void visit(NavigableMap<Long, int[]> range, IntConsumer action) {
+        for (int[] bucket : range.descendingMap().values()) {
+            for (int i = 1; i <= Buckets.size(bucket); i++) {
+                action.accept(bucket[i]);
+            }
+        }
+    }
+}
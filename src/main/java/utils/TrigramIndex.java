@@ -0,0 +1,96 @@
+package utils;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Substring index over short texts such as contact names.
+ *
+ * Every text is split into overlapping grams of three characters, lower cased, and its ID
+ * is added to the posting list of each gram. A query is answered from the shortest posting list
+ * among the grams of the query, so only IDs sharing all of those characters are visited.
+ * Grams are stored by hash, therefore candidates may contain false positives and
+ * must be verified by the caller, both for case sensitive and case insensitive matching.
+ */
+public class TrigramIndex {
+    public static final int GRAM_LENGTH = 3;
+
+    private final IntMap<Postings> postings = new IntMap<>();
+
+    /**
+     * Indexes the text under the ID.
+     *
+     * @param id of the text owner
+     * @param text to be indexed, null is ignored
+     */
+    public void add(int id, String text) {
+        if (text == null) return;
+
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            int gram = gramAt(text, i);
+            Postings list = postings.get(gram);
+            if (list == null) {
+                list = new Postings();
+                postings.put(gram, list);
+            }
+            list.add(id);
+        }
+    }
+
+    /**
+     * Visits IDs whose text may contain the query.
+     *
+     * @param query at least {@link #GRAM_LENGTH} characters long
+     * @param action to be called with every candidate ID
+     * @throws IllegalArgumentException if query is too short to be looked up
+     */
+    public void forEachCandidate(String query, IntConsumer action) {
+        if (query.length() < GRAM_LENGTH) throw new IllegalArgumentException();
+
+        Postings shortest = null;
+        for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+            Postings list = postings.get(gramAt(query, i));
+            if (list == null) return;
+            if (shortest == null || list.size < shortest.size) shortest = list;
+        }
+        for (int i = 0; i < shortest.size; i++) {
+            action.accept(shortest.ids[i]);
+        }
+    }
+
+    /**
+     * Returns number of distinct grams.
+     *
+     * @return number of posting lists
+     */
+    public int size() {
+        return postings.size();
+    }
+
+    private static int gramAt(String text, int start) {
+        int hash = 0;
+        for (int i = start; i < start + GRAM_LENGTH; i++) {
+            hash = hash * 31 + Character.toLowerCase(text.charAt(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Growable list of IDs for one gram.
+     */
+    private static class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        private void add(int id) {
+            //gram repeated in the same text
+            if (size > 0 && ids[size - 1] == id) return;
+
+            if (size == ids.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(ids, 0, grown, 0, size);
+                ids = grown;
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package utils;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Calendar;
-import java.util.GregorianCalendar;
 import java.util.Set;
 
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
 /**
  * Utility class which contains helper static methods for generating unique numbers.
  *
@@ -28,6 +35,20 @@ public class Utils {
     }
 
 
+    /**
+     * Tests if text contains the part, ignoring case of letters.
+     *
+     * @param text to search in
+     * @param part to search for
+     * @return true if part occurs in the text
+     */
+    public static boolean containsIgnoreCase(String text, String part) {
+        for (int i = 0; i + part.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, part, 0, part.length())) return true;
+        }
+        return false;
+    }
+
     /**
      * Tests if provided date is in future, compared to now.
      *
@@ -35,10 +56,38 @@ public class Utils {
      * @return true if date is in the future, false otherwise
      */
     public static boolean isFuture(Calendar date) {
-        Calendar now = new GregorianCalendar();
-        if (date.compareTo(now) >= 1) {
-            return true;
+        return isFuture(date.getTimeInMillis());
+    }
+
+    /**
+     * Tests if provided date is in future, compared to now.
+     *
+     * @param date to be tested in epoch millis
+     * @return true if date is in the future, false otherwise
+     */
+    public static boolean isFuture(long date) {
+        return date > System.currentTimeMillis();
+    }
+
+    /**
+     * Moves the file over the target atomically and forces the directory of the target to disk,
+     * so the move itself survives a crash. Platforms which cannot open a directory skip forcing it.
+     *
+     * @param source file forced to disk before
+     * @param target file to be replaced
+     * @throws IOException if the file cannot be moved or the directory cannot be forced
+     */
+    public static void moveAtomically(Path source, Path target) throws IOException {
+        Files.move(source, target, REPLACE_EXISTING, ATOMIC_MOVE);
+
+        FileChannel directory;
+        try {
+            directory = FileChannel.open(target.toAbsolutePath().getParent(), READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (FileChannel channel = directory) {
+            channel.force(true);
         }
-        return false;
     }
 }
@@ -0,0 +1,115 @@
+package utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Variable length encoding of integers, seven bits per byte with the high bit marking continuation.
+ * Small non-negative values such as IDs and counts take a single byte.
+ * Signed longs are zigzag encoded first, so values close to zero stay short either way.
+ */
+public class Varint {
+
+    /**
+     * Writes non-negative int in one to five bytes.
+     *
+     * @param out to write to
+     * @param value to be written, treated as unsigned
+     * @throws IOException if writing fails
+     */
+    public static void writeInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads int written by {@link #writeInt(DataOutput, int)}.
+     *
+     * @param in to read from
+     * @return value
+     * @throws IOException if reading fails or the encoding is too long
+     */
+    public static int readInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Writes signed long zigzag encoded, in one to ten bytes.
+     *
+     * @param out to write to
+     * @param value to be written
+     * @throws IOException if writing fails
+     */
+    public static void writeLong(DataOutput out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    /**
+     * Reads long written by {@link #writeLong(DataOutput, long)}.
+     *
+     * @param in to read from
+     * @return value
+     * @throws IOException if reading fails or the encoding is too long
+     */
+    public static long readLong(DataInput in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Reads int written by {@link #writeInt(DataOutput, int)} at the position of the buffer.
+     *
+     * @param in buffer to read from, its position is advanced
+     * @return value
+     * @throws IOException if the encoding is too long
+     * @throws java.nio.BufferUnderflowException if the buffer ends within the value
+     */
+    public static int readInt(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Reads long written by {@link #writeLong(DataOutput, long)} at the position of the buffer.
+     *
+     * @param in buffer to read from, its position is advanced
+     * @return value
+     * @throws IOException if the encoding is too long
+     * @throws java.nio.BufferUnderflowException if the buffer ends within the value
+     */
+    public static long readLong(ByteBuffer in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.get() & 0xFF;
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,202 @@
+import interfaces.Contact;
+import interfaces.FutureMeeting;
+import interfaces.PastMeeting;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import utils.Varint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for BinarySnapshot.
+ */
+public class BinarySnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    ContactManagerImpl saved;
+    int ann, bob, futureId;
+    Calendar pastDate;
+
+    @Before
+    public void setUp() {
+        saved = new ContactManagerImpl();
+        ann = saved.addNewContact("Ann \u017b\u00f3\u0142\u0107", "same");
+        bob = saved.addNewContact("Bob", "same");
+        futureId = saved.addFutureMeeting(saved.getContacts(ann, bob), new GregorianCalendar(2100, 0, 1));
+        pastDate = new GregorianCalendar(1969, 6, 20, 20, 17);
+        saved.addNewPastMeeting(saved.getContacts(bob), pastDate, "went well");
+    }
+
+    @Test
+    public void shouldRestoreContactsAndMeetings() throws IOException {
+        ContactManagerImpl cm = roundTrip();
+
+        Contact restoredAnn = cm.getContacts(ann).iterator().next();
+        Contact restoredBob = cm.getContacts(bob).iterator().next();
+        List<PastMeeting> past = cm.getPastMeetingListFor(restoredBob);
+
+        assertThat(restoredAnn.getName(), is("Ann \u017b\u00f3\u0142\u0107"));
+        assertThat(restoredAnn.getNotes(), is("same"));
+        assertThat(cm.getMeeting(futureId), instanceOf(FutureMeeting.class));
+        assertThat(cm.getFutureMeeting(futureId).getContacts().size(), is(2));
+        assertThat(past.size(), is(1));
+        assertThat(past.get(0).getNotes(), is("went well"));
+        assertThat(past.get(0).getDate().getTimeInMillis(), is(pastDate.getTimeInMillis()));
+    }
+
+    @Test
+    public void shouldShareParticipantsWithContacts() throws IOException {
+        ContactManagerImpl cm = roundTrip();
+
+        Contact participant = cm.getPastMeetingListFor(cm.getContacts(bob).iterator().next()).get(0).getContacts().iterator().next();
+
+        assertSame(cm.getContacts(bob).iterator().next(), participant);
+    }
+
+    @Test
+    public void shouldRestoreIdAllocation() throws IOException {
+        ContactManagerImpl cm = roundTrip();
+
+        assertThat(cm.addNewContact("Carol", "notes"), is(3));
+    }
+
+    @Test
+    public void shouldBeSmallerThanXml() throws IOException {
+        Path xml = folder.newFile("contacts.xml").toPath();
+        Path binary = folder.newFile("contacts.bin").toPath();
+        saved.exportXml(xml);
+        saved.setStorePath(binary);
+        saved.setStoreFormat(StoreFormat.BINARY);
+        saved.flush();
+
+        assertTrue(Files.size(binary) * 3 < Files.size(xml));
+    }
+
+    @Test
+    public void shouldLoadSnapshotAndKeepItsFormat() throws IOException {
+        Path file = folder.newFile("contacts.bin").toPath();
+        saved.setStorePath(file);
+        saved.setStoreFormat(StoreFormat.BINARY);
+        saved.flush();
+
+        ContactManagerImpl cm = ContactManagerImpl.load(file);
+
+        assertTrue(BinarySnapshot.isSnapshot(file));
+        assertThat(cm.getStoreFormat(), is(StoreFormat.BINARY));
+        assertThat(cm.getContacts("").size(), is(2));
+    }
+
+    @Test
+    public void shouldNotTakeXmlForSnapshot() throws IOException {
+        Path file = folder.newFile("contacts.xml").toPath();
+        saved.exportXml(file);
+
+        assertFalse(BinarySnapshot.isSnapshot(file));
+        assertThat(ContactManagerImpl.load(file).getStoreFormat(), is(StoreFormat.XML));
+    }
+
+    @Test
+    public void shouldReadVersionWithoutIndex() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinarySnapshot.write(saved.getAllContacts(), saved.getMeetings(), out);
+        byte[] bytes = out.toByteArray();
+        long indexOffset = ByteBuffer.wrap(bytes, bytes.length - BinarySnapshot.FOOTER_LENGTH + 12, 8).getLong();
+        byte[] version1 = Arrays.copyOf(bytes, (int) indexOffset);
+        version1[4] = 1;
+
+        ContactManagerImpl cm = new ContactManagerImpl();
+        read(cm, version1);
+
+        assertThat(cm.getContacts("").size(), is(2));
+        assertThat(cm.getMeeting(futureId), instanceOf(FutureMeeting.class));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectUnknownVersion() throws IOException {
+        byte[] bytes = {'C', 'M', 'S', 'B', 99};
+        read(new ContactManagerImpl(), bytes);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectTruncatedSnapshot() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinarySnapshot.write(saved.getAllContacts(), saved.getMeetings(), out);
+        byte[] bytes = out.toByteArray();
+        long indexOffset = ByteBuffer.wrap(bytes, bytes.length - BinarySnapshot.FOOTER_LENGTH + 12, 8).getLong();
+        byte[] truncated = Arrays.copyOf(bytes, (int) indexOffset - 3);
+
+        read(new ContactManagerImpl(), truncated);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectCountBeyondInput() throws IOException {
+        read(new ContactManagerImpl(), snapshot(Integer.MAX_VALUE));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectNegativeStringLength() throws IOException {
+        read(new ContactManagerImpl(), snapshot(1, -1));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectNegativeStringReference() throws IOException {
+        read(new ContactManagerImpl(), snapshot(0, 1, 1, -1, 0, 0));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectUnknownMeetingType() throws IOException {
+        read(new ContactManagerImpl(), snapshot(0, 0, 1, 7, 1, 0, 0));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectDuplicateContact() throws IOException {
+        read(new ContactManagerImpl(), snapshot(0, 2, 1, 0, 0, 1, 0, 0, 0));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectDuplicateMeeting() throws IOException {
+        read(new ContactManagerImpl(), snapshot(0, 0, 2, BinarySnapshot.MEETING, 1, 0, 0, BinarySnapshot.MEETING, 1, 0, 0));
+    }
+
+    private ContactManagerImpl roundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinarySnapshot.write(saved.getAllContacts(), saved.getMeetings(), out);
+
+        ContactManagerImpl cm = new ContactManagerImpl();
+        read(cm, out.toByteArray());
+        return cm;
+    }
+
+    private static void read(ContactManagerImpl cm, byte[] bytes) throws IOException {
+        BinarySnapshot.readInto(cm, new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    /**
+     * Returns snapshot header followed by the varints, without index.
+     */
+    private static byte[] snapshot(int... varints) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.write(BinarySnapshot.MAGIC);
+        Varint.writeInt(data, BinarySnapshot.VERSION);
+        for (int varint : varints) {
+            Varint.writeInt(data, varint);
+        }
+        return bytes.toByteArray();
+    }
+}
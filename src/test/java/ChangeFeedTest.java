@@ -0,0 +1,155 @@
+import interfaces.ChangeEvent;
+import interfaces.ChangeListener;
+import interfaces.Contact;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for ChangeFeed.
+ */
+public class ChangeFeedTest {
+    private final Contact contact = new ContactImpl(1, "name", "notes");
+
+    @Test
+    public void shouldDeliverQueuedEventsInOneBatch() {
+        ManualExecutor executor = new ManualExecutor();
+        ChangeFeed feed = new ChangeFeed(16, executor);
+        List<List<ChangeEvent>> batches = new ArrayList<>();
+        feed.addListener(events -> batches.add(new ArrayList<>(events)));
+
+        feed.publish(ChangeEvent.contactAdded(contact));
+        feed.publish(ChangeEvent.notesAdded(contact));
+        executor.runAll();
+
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0).get(0).getType(), is(ChangeEvent.Type.CONTACT_ADDED));
+        assertThat(batches.get(0).get(1).getType(), is(ChangeEvent.Type.NOTES_ADDED));
+    }
+
+    @Test
+    public void shouldStartOneDispatcherAtATime() {
+        ManualExecutor executor = new ManualExecutor();
+        ChangeFeed feed = new ChangeFeed(16, executor);
+        feed.addListener(events -> {});
+
+        feed.publish(ChangeEvent.contactAdded(contact));
+        feed.publish(ChangeEvent.contactAdded(contact));
+
+        assertThat(executor.tasks.size(), is(1));
+        executor.runAll();
+        feed.publish(ChangeEvent.contactAdded(contact));
+        assertThat(executor.tasks.size(), is(1));
+    }
+
+    @Test
+    public void shouldCountDroppedEventsAndReportThem() {
+        ManualExecutor executor = new ManualExecutor();
+        ChangeFeed feed = new ChangeFeed(2, executor);
+        List<ChangeEvent> received = new ArrayList<>();
+        feed.addListener(received::addAll);
+
+        for (int i = 0; i < 5; i++) {
+            feed.publish(ChangeEvent.contactAdded(contact));
+        }
+        assertThat(feed.getLostCount(), is(3L));
+        executor.runAll();
+
+        assertThat(received.size(), is(3));
+        assertThat(received.get(2).getType(), is(ChangeEvent.Type.EVENTS_LOST));
+        assertThat(received.get(2).getLostCount(), is(3L));
+        assertThat(feed.getLostCount(), is(0L));
+    }
+
+    @Test
+    public void shouldSplitLargeBacklogIntoBatches() {
+        ManualExecutor executor = new ManualExecutor();
+        ChangeFeed feed = new ChangeFeed(1024, executor);
+        List<Integer> sizes = new ArrayList<>();
+        feed.addListener(events -> sizes.add(events.size()));
+
+        for (int i = 0; i < ChangeFeed.MAX_BATCH + 1; i++) {
+            feed.publish(ChangeEvent.contactAdded(contact));
+        }
+        executor.runAll();
+
+        assertThat(sizes.size(), is(2));
+        assertThat(sizes.get(1), is(1));
+    }
+
+    @Test
+    public void shouldDropEventsWithoutListeners() {
+        ManualExecutor executor = new ManualExecutor();
+        ChangeFeed feed = new ChangeFeed(16, executor);
+
+        feed.publish(ChangeEvent.contactAdded(contact));
+
+        assertTrue(executor.tasks.isEmpty());
+        assertFalse(feed.hasListeners());
+    }
+
+    @Test
+    public void shouldKeepDeliveringAfterListenerFails() {
+        ManualExecutor executor = new ManualExecutor();
+        ChangeFeed feed = new ChangeFeed(16, executor);
+        List<ChangeEvent> received = new ArrayList<>();
+        feed.addListener(events -> {
+            throw new IllegalStateException("expected by test");
+        });
+        feed.addListener(received::addAll);
+
+        feed.publish(ChangeEvent.contactAdded(contact));
+        executor.runAll();
+        feed.publish(ChangeEvent.contactAdded(contact));
+        executor.runAll();
+
+        assertThat(received.size(), is(2));
+    }
+
+    @Test
+    public void shouldNotCallRemovedListener() {
+        ManualExecutor executor = new ManualExecutor();
+        ChangeFeed feed = new ChangeFeed(16, executor);
+        List<ChangeEvent> received = new ArrayList<>();
+        ChangeListener listener = received::addAll;
+        feed.addListener(listener);
+        feed.addListener(events -> {});
+        feed.removeListener(listener);
+
+        feed.publish(ChangeEvent.contactAdded(contact));
+        executor.runAll();
+
+        assertTrue(received.isEmpty());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldNotAcceptNullListener() {
+        new ChangeFeed(16, new ManualExecutor()).addListener(null);
+    }
+
+    /**
+     * Runs tasks only when asked to, so tests control when dispatch happens.
+     */
+    private static class ManualExecutor implements Executor {
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
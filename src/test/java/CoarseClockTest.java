@@ -0,0 +1,40 @@
+import org.junit.Test;
+import utils.CoarseClock;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for CoarseClock.
+ */
+public class CoarseClockTest {
+
+    @Test
+    public void shouldFollowSystemTimeWithinResolution() throws InterruptedException {
+        CoarseClock clock = new CoarseClock(5);
+        try {
+            long before = System.currentTimeMillis();
+            Thread.sleep(50);
+
+            assertTrue(clock.millis() > before);
+            assertTrue(clock.millis() <= System.currentTimeMillis());
+        } finally {
+            clock.stop();
+        }
+    }
+
+    @Test
+    public void shouldStandStillWhenStopped() throws InterruptedException {
+        CoarseClock clock = new CoarseClock(1);
+        clock.stop();
+        Thread.sleep(5);
+        long stopped = clock.millis();
+        Thread.sleep(20);
+
+        assertTrue(clock.millis() == stopped);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectZeroResolution() {
+        new CoarseClock(0);
+    }
+}
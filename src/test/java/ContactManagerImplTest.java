@@ -1,18 +1,39 @@
+import interfaces.ChangeEvent;
+import interfaces.ChangeListener;
 import interfaces.Contact;
 import interfaces.FutureMeeting;
 import interfaces.Meeting;
+import interfaces.NewContact;
+import interfaces.NewMeeting;
 import interfaces.PastMeeting;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import utils.ManualClock;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
+import static interfaces.ChangeEvent.Type.*;
 import static java.util.stream.Collectors.toList;
 import static junit.framework.TestCase.assertTrue;
 import static org.hamcrest.CoreMatchers.instanceOf;
@@ -24,7 +45,11 @@ import static org.junit.Assert.*;
  * Created by Vladimirs Ivanovs on 19/01/16.
  */
 public class ContactManagerImplTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     ContactManagerImpl cm;
+    ManualClock clock;
 
     Set<Contact> contacts;
     Set<Contact> participantsPast;
@@ -63,7 +88,7 @@ public class ContactManagerImplTest {
 
         futureMeetings = IntStream.rangeClosed(1, 5)
                 .boxed()
-                .map(id -> new FutureMeetingImpl(id, new GregorianCalendar(2020+id, 0, 10), participantsFuture))
+                .map(id -> new FutureMeetingImpl(id, new GregorianCalendar(2100+id, 0, 10), participantsFuture))
                 .collect(toList());
 
         pastMeetings = IntStream.rangeClosed(6, 10)
@@ -77,31 +102,196 @@ public class ContactManagerImplTest {
         contacts.addAll(participantsPast);
         contacts.addAll(participantsFuture);
 
+        clock = new ManualClock(new GregorianCalendar(2050, 0, 1).getTimeInMillis());
         cm = ContactManagerImpl.getInstance();
+        cm.setClock(clock);
         cm.setContacts(contacts);
         cm.setMeetings(meetings);
     }
 
-    //updateStatus
+    @Test
+    public void shouldKeepSeparateInstancesIndependent() {
+        ContactManagerImpl first = new ContactManagerImpl();
+        ContactManagerImpl second = new ContactManagerImpl();
+
+        int id = first.addNewContact("first", "notes");
+
+        assertThat(id, is(1));
+        assertThat(first.getContacts("first").size(), is(1));
+        assertTrue(second.getContacts("").isEmpty());
+        assertThat(second.addNewContact("second", "notes"), is(1));
+        assertThat(cm.getAllContacts().size(), is(10));
+    }
+
+    //clock
     @Test
     public void shouldMakeAllMeetingsPast(){
-        Calendar past = new GregorianCalendar(1000, 0, 10);
+        Contact contact = participantsFuture.iterator().next();
+        assertThat(cm.getFutureMeetingList(contact).size(), is(5));
+
+        clock.set(new GregorianCalendar(2500, 0, 10).getTimeInMillis());
+
+        for (int id = 1; id <= 10; id++) {
+            assertThat(cm.getPastMeeting(id), instanceOf(PastMeeting.class));
+        }
+        assertTrue(cm.getFutureMeetingList(contact).isEmpty());
+        assertThat(cm.getPastMeetingListFor(contact).size(), is(5));
+    }
+
+    @Test
+    public void shouldTreatMeetingAsPastOnceClockPassesIt() {
+        Calendar inAnHour = new GregorianCalendar();
+        inAnHour.setTimeInMillis(clock.millis() + 3_600_000);
+        int id = cm.addFutureMeeting(participantsFuture, inAnHour);
+        assertThat(cm.getFutureMeeting(id).getId(), is(id));
+
+        clock.advance(Duration.ofHours(2));
+
+        assertThat(cm.addMeetingNotes(id, "held").getNotes(), is("held"));
+        assertThat(cm.getPastMeeting(id).getNotes(), is("held"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectFutureMeetingBeforeClock() {
+        cm.addFutureMeeting(participantsFuture, new GregorianCalendar(2049, 11, 31));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldRejectNullClock() {
+        cm.setClock(null);
+    }
+
+    //transitions
+    @Test
+    public void shouldConvertDueMeetingsOnceAndTellListeners() {
+        ContactManagerImpl cm = new ContactManagerImpl();
+        cm.setClock(clock);
+        List<Integer> converted = new ArrayList<>();
+        cm.addPastMeetingListener(meeting -> converted.add(meeting.getId()));
+        Set<Contact> participants = cm.getContacts(cm.addNewContact("name", "notes"));
+        int first = cm.addFutureMeeting(participants, inMillis(2000));
+        int second = cm.addFutureMeeting(participants, inMillis(1000));
+        int third = cm.addFutureMeeting(participants, inMillis(5000));
+
+        clock.advance(Duration.ofMillis(3000));
+
+        assertThat(cm.transitionDueMeetings(), is(2));
+        assertThat(cm.transitionDueMeetings(), is(0));
+        assertThat(converted, is(Arrays.asList(second, first)));
+        assertThat(cm.getMeetings().get(0), instanceOf(PastMeeting.class));
+        assertThat(cm.getMeetings().get(2), instanceOf(FutureMeeting.class));
+
+        clock.advance(Duration.ofMillis(3000));
+
+        assertThat(cm.transitionDueMeetings(), is(1));
+        assertThat(converted, is(Arrays.asList(second, first, third)));
+    }
+
+    @Test
+    public void shouldReadDueMeetingAsPastBeforeItIsConverted() {
+        ContactManagerImpl cm = new ContactManagerImpl();
+        cm.setClock(clock);
+        int id = cm.addFutureMeeting(cm.getContacts(cm.addNewContact("name", "notes")), inMillis(1000));
+
+        clock.advance(Duration.ofMillis(2000));
+
+        assertThat(cm.getMeeting(id), instanceOf(PastMeeting.class));
+        assertThat(cm.getMeetingListOn(cm.getMeeting(id).getDate()).get(0), instanceOf(PastMeeting.class));
+        assertThat(cm.transitionDueMeetings(), is(1));
+    }
+
+    @Test
+    public void shouldNotConvertMeetingWhichGotNotes() {
+        ContactManagerImpl cm = new ContactManagerImpl();
+        cm.setClock(clock);
+        List<PastMeeting> converted = new ArrayList<>();
+        cm.addPastMeetingListener(converted::add);
+        int id = cm.addFutureMeeting(cm.getContacts(cm.addNewContact("name", "notes")), inMillis(1000));
+
+        clock.advance(Duration.ofMillis(2000));
+        cm.addMeetingNotes(id, "held");
+
+        assertThat(cm.transitionDueMeetings(), is(0));
+        assertTrue(converted.isEmpty());
+        assertThat(cm.getPastMeeting(id).getNotes(), is("held"));
+    }
 
-        cm.getMeetings().stream()
-                .map(meeting -> (Meeting) meeting)
-                .forEach(m -> assertFalse(m.getDate().before(past)));
+    @Test
+    public void shouldNotTellRemovedListener() {
+        ContactManagerImpl cm = new ContactManagerImpl();
+        cm.setClock(clock);
+        List<PastMeeting> converted = new ArrayList<>();
+        Consumer<PastMeeting> listener = converted::add;
+        cm.addPastMeetingListener(listener);
+        cm.removePastMeetingListener(listener);
+        cm.addFutureMeeting(cm.getContacts(cm.addNewContact("name", "notes")), inMillis(1000));
+
+        clock.advance(Duration.ofMillis(2000));
+
+        assertThat(cm.transitionDueMeetings(), is(1));
+        assertTrue(converted.isEmpty());
+    }
 
-        Calendar future = new GregorianCalendar(2500, 0, 10);
+    @Test
+    public void shouldConvertMeetingOnTimerWhenItsTimeComes() throws InterruptedException {
+        ContactManagerImpl cm = new ContactManagerImpl();
+        CountDownLatch converted = new CountDownLatch(1);
+        cm.addPastMeetingListener(meeting -> converted.countDown());
+        Calendar soon = new GregorianCalendar();
+        soon.add(Calendar.MILLISECOND, 50);
+
+        int id = cm.addFutureMeeting(cm.getContacts(cm.addNewContact("name", "notes")), soon);
+
+        assertTrue(converted.await(10, TimeUnit.SECONDS));
+        assertThat(cm.getMeetings().get(0), instanceOf(PastMeeting.class));
+        assertThat(cm.getPastMeeting(id).getNotes(), is(""));
+    }
 
-        cm.testUpdateStatus(future);
+    @Test
+    public void shouldNotReplaceMeetingsOnRead() {
+        List<? super Meeting> before = cm.getMeetings();
 
-        cm.getMeetings().stream()
-                .map(meeting -> (Meeting) meeting)
-                .forEach(m -> assertTrue(m.getDate().before(future)));
+        cm.getMeeting(1);
+        cm.getPastMeetingListFor(new ContactImpl(6, "name", "notes"));
 
+        List<? super Meeting> after = cm.getMeetings();
+        assertThat(after.size(), is(before.size()));
+        for (int i = 0; i < before.size(); i++) {
+            assertSame(before.get(i), after.get(i));
+        }
+    }
 
+    @Test
+    public void shouldReturnDetachedCopiesOfAllMeetingsAndContacts() {
+        List<? super Meeting> meetings = cm.getMeetings();
+        Set<Contact> contacts = cm.getAllContacts();
+
+        cm.addNewContact("late", "notes");
+        cm.addFutureMeeting(cm.getContacts(1), new GregorianCalendar(2100, 0, 1));
+
+        assertThat(cm.getAllContacts().size(), is(contacts.size() + 1));
+        assertThat(cm.getMeetings().size(), is(meetings.size() + 1));
+        try {
+            contacts.clear();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void shouldTreatScheduledMeetingAsPastOnceItsDateHasPassed() {
+        Contact contact = new ContactImpl(1, "name", "notes");
+        Set<Contact> participants = new HashSet<>(Arrays.asList(contact));
+        meetings.add(new FutureMeetingImpl(50, new GregorianCalendar(1990, 0, 10), participants));
+        cm.setMeetings(meetings);
 
+        List<PastMeeting> result = cm.getPastMeetingListFor(contact);
 
+        assertThat(result.size(), is(1));
+        assertThat(result.get(0).getId(), is(50));
+        assertThat(result.get(0).getNotes(), is(""));
+        assertThat(cm.getPastMeeting(50).getId(), is(50));
     }
 
     //addFutureMeeting
@@ -138,8 +328,8 @@ public class ContactManagerImplTest {
         int meetingId2 = cm.addFutureMeeting(participantsFuture, future);
 
         assertThat(cm.getMeetings().size(), is(12));
-        assertThat(meetingId, is(0));
-        assertThat(meetingId2, is(11));
+        assertThat(meetingId, is(11));
+        assertThat(meetingId2, is(12));
     }
 
     //getPastMeeting
@@ -168,6 +358,7 @@ public class ContactManagerImplTest {
     @Test
     public void shouldReturnNullIfNoMeetingsExist() {
         meetings.clear();
+        cm.setMeetings(meetings);
         assertTrue(meetings.isEmpty());
 
         PastMeeting pm1 = cm.getPastMeeting(1000);
@@ -201,7 +392,7 @@ public class ContactManagerImplTest {
 
     @Test
     public void shouldReturnNullIfMeetingListIsEmpty() {
-        cm.getMeetings().clear();
+        cm.setMeetings(new ArrayList<>());
         FutureMeeting fm1 = cm.getFutureMeeting(1);
 
         assertTrue(cm.getMeetings().isEmpty());
@@ -219,6 +410,23 @@ public class ContactManagerImplTest {
         assertThat(m2.getId(), is(10));
     }
 
+    @Test
+    public void shouldFindMeetingAddedAfterSetUp() {
+        Calendar future = new GregorianCalendar(3000, 0, 10);
+        int id = cm.addFutureMeeting(participantsFuture, future);
+
+        assertThat(cm.getMeeting(id).getId(), is(id));
+        assertThat(cm.getMeeting(id).getDate(), is(future));
+    }
+
+    @Test
+    public void shouldFindMeetingWithNotesReplacedInList() {
+        cm.addMeetingNotes(7, "ADD");
+
+        assertThat(cm.getPastMeeting(7).getNotes(), is("TEST ADD"));
+        assertThat(((PastMeeting) cm.getMeetings().get(1)).getNotes(), is("TEST ADD"));
+    }
+
     @Test
     public void shouldReturnNullIfMeetingNotFound() {
         Meeting m1 = cm.getMeeting(100);
@@ -229,7 +437,7 @@ public class ContactManagerImplTest {
 
     @Test
     public void shouldReturnNullWhenProvidedIdAndMeetingListIsEmpty() {
-        cm.getMeetings().clear();
+        cm.setMeetings(new ArrayList<>());
         assertTrue(cm.getMeetings().isEmpty());
 
         Meeting m1 = cm.getMeeting(2);
@@ -279,6 +487,29 @@ public class ContactManagerImplTest {
         assertTrue(resultList.containsAll(futureMeetings));
     }
 
+    @Test
+    public void shouldReturnOnlyFutureMeetingsOfProvidedContact() {
+        Contact contact = new ContactImpl(1, "name", "notes");
+        Contact other = new ContactImpl(2, "name", "notes");
+        Calendar future = new GregorianCalendar(3000, 0, 10);
+        int withContact = cm.addFutureMeeting(new HashSet<>(Arrays.asList(contact)), future);
+        cm.addFutureMeeting(new HashSet<>(Arrays.asList(other)), future);
+
+        List<Meeting> result = cm.getFutureMeetingList(contact);
+
+        assertThat(result.size(), is(6));
+        assertThat(result.get(0).getId(), is(withContact));
+    }
+
+    @Test
+    public void shouldReturnEmptyListForContactWithoutMeetings() {
+        int id = cm.addNewContact("lonely", "notes");
+        Contact contact = cm.getContacts(id).iterator().next();
+
+        assertTrue(cm.getFutureMeetingList(contact).isEmpty());
+        assertTrue(cm.getPastMeetingListFor(contact).isEmpty());
+    }
+
     //getMeetingListOn
 
     @Test(expected = NullPointerException.class)
@@ -296,6 +527,7 @@ public class ContactManagerImplTest {
                 .collect(toList());
 
         meetings.addAll(sameDayMeetings);
+        cm.setMeetings(meetings);
         assertThat(meetings.size(), is(14));
 
         List<Meeting> result = cm.getMeetingListOn(date);
@@ -304,6 +536,32 @@ public class ContactManagerImplTest {
         assertEquals(sameDayMeetings, result);
     }
 
+    @Test
+    public void shouldReturnMeetingsAtAnyTimeOfProvidedDay() {
+        Calendar morning = new GregorianCalendar(2100, 1, 11, 9, 30);
+        Calendar evening = new GregorianCalendar(2100, 1, 11, 18, 0);
+        Calendar nextDay = new GregorianCalendar(2100, 1, 12, 0, 0);
+        meetings.add(new FutureMeetingImpl(20, morning, participantsFuture));
+        meetings.add(new FutureMeetingImpl(21, evening, participantsFuture));
+        meetings.add(new FutureMeetingImpl(22, nextDay, participantsFuture));
+        cm.setMeetings(meetings);
+
+        List<Meeting> result = cm.getMeetingListOn(new GregorianCalendar(2100, 1, 11, 12, 0));
+
+        assertThat(result.stream().map(Meeting::getId).collect(toList()), is(Arrays.asList(21, 20)));
+    }
+
+    @Test
+    public void shouldReturnMeetingsAddedThroughManagerOnProvidedDate() {
+        Calendar date = new GregorianCalendar(2100, 1, 11);
+        int id = cm.addFutureMeeting(participantsFuture, date);
+
+        List<Meeting> result = cm.getMeetingListOn(date);
+
+        assertThat(result.size(), is(1));
+        assertThat(result.get(0).getId(), is(id));
+    }
+
     @Test
     public void shouldReturnEmptyListWhenMeetingsWithProvidedDateNotFound() {
         Calendar date = new GregorianCalendar(2100, 1, 11); //set up date
@@ -314,6 +572,30 @@ public class ContactManagerImplTest {
     }
 
 
+    //getMeetingsBetween
+
+    @Test(expected = NullPointerException.class)
+    public void shouldThrowExceptionIfRangeStartNull() {
+        cm.getMeetingsBetween(null, new GregorianCalendar());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldThrowExceptionIfRangeEndNull() {
+        cm.getMeetingsBetween(new GregorianCalendar(), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionIfRangeStartAfterEnd() {
+        cm.getMeetingsBetween(new GregorianCalendar(2000, 0, 1), new GregorianCalendar(1990, 0, 1));
+    }
+
+    @Test
+    public void shouldReturnSortedMeetingsInRange() {
+        List<Meeting> result = cm.getMeetingsBetween(new GregorianCalendar(1991, 0, 10), new GregorianCalendar(2103, 0, 10));
+
+        assertThat(result.stream().map(Meeting::getId).collect(toList()), is(Arrays.asList(2, 1, 6, 7, 8, 9)));
+    }
+
     //getPastMeetingListFor
 
     @Test(expected = IllegalArgumentException.class)
@@ -341,6 +623,18 @@ public class ContactManagerImplTest {
 
     }
 
+    @Test
+    public void shouldReturnPastMeetingsOfContactLatestFirst() {
+        Contact contact = new ContactImpl(6, "name", "notes");
+        cm.addNewPastMeeting(new HashSet<>(Arrays.asList(contact)), new GregorianCalendar(2010, 0, 10), "LATEST");
+
+        List<PastMeeting> result = cm.getPastMeetingListFor(contact);
+
+        assertThat(result.size(), is(6));
+        assertThat(result.get(0).getNotes(), is("LATEST"));
+        assertThat(result.stream().map(Meeting::getId).collect(toList()), is(Arrays.asList(11, 6, 7, 8, 9, 10)));
+    }
+
     @Test
     public void shouldReturnEmptyListIfContactIsInFutureMeetings() {
         Contact contact = new ContactImpl(5, "name_5", "notes_5");
@@ -386,12 +680,13 @@ public class ContactManagerImplTest {
     public void shouldAddNewPastMeeting() {
         Set<Contact> newContacts = new HashSet<>(Arrays.asList(new ContactImpl(1, "name", "notes")));
         meetings.remove(3);
+        cm.setMeetings(meetings);
         cm.addNewPastMeeting(newContacts, new GregorianCalendar(), "TEST_NOTES");
 
         PastMeeting getBack = (PastMeeting)meetings.get(9);
 
         assertThat(meetings.size(), is(10));
-        assertThat(getBack.getId(), is(0));
+        assertThat(getBack.getId(), is(11));
         assertThat(getBack.getNotes(), is("TEST_NOTES"));
         assertThat(getBack, instanceOf(PastMeeting.class));
         assertThat(getBack.getContacts().size(), is(1));
@@ -460,8 +755,93 @@ public class ContactManagerImplTest {
         int id2 = cm.addNewContact("name", "notes");
 
         assertThat(cm.getAllContacts().size(), is(12));
-        assertThat((id), is(0));
-        assertThat((id2), is(11));
+        assertThat((id), is(11));
+        assertThat((id2), is(12));
+    }
+
+    //addNewContacts
+    @Test
+    public void shouldAddContactsInOrderOfList() {
+        int[] ids = cm.addNewContacts(Arrays.asList(new NewContact("first", "notes"), new NewContact("second", "notes")));
+
+        assertArrayEquals(new int[] {11, 12}, ids);
+        assertThat(cm.getContacts(12).iterator().next().getName(), is("second"));
+        assertThat(cm.getContacts("seco").size(), is(1));
+        assertThat(cm.suggestContacts("fir", 10).get(0).getId(), is(11));
+        assertThat(cm.addNewContact("third", "notes"), is(13));
+    }
+
+    @Test
+    public void shouldAddNoContactIfAnyIsInvalid() {
+        try {
+            cm.addNewContacts(Arrays.asList(new NewContact("first", "notes"), new NewContact("", "notes")));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(cm.getAllContacts().size(), is(10));
+            assertThat(cm.addNewContact("next", "notes"), is(11));
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldThrowExceptionIfAnyNewContactNull() {
+        cm.addNewContacts(Arrays.asList(new NewContact("first", "notes"), null));
+    }
+
+    @Test
+    public void shouldReturnNoIdsForEmptyListOfContacts() {
+        assertThat(cm.addNewContacts(Collections.emptyList()).length, is(0));
+    }
+
+    //addMeetings
+    @Test
+    public void shouldAddFutureAndPastMeetingsInOrderOfList() {
+        int[] ids = cm.addMeetings(Arrays.asList(
+                NewMeeting.future(participantsFuture, inMillis(1000)),
+                NewMeeting.past(participantsPast, inMillis(-1000), "went well")));
+
+        assertArrayEquals(new int[] {11, 12}, ids);
+        assertThat(cm.getFutureMeeting(11).getContacts(), is(participantsFuture));
+        assertThat(cm.getPastMeeting(12).getNotes(), is("went well"));
+        assertThat(cm.getFutureMeetingList(participantsFuture.iterator().next()).size(), is(6));
+    }
+
+    @Test
+    public void shouldAddNoMeetingIfAnyHasUnknownContact() {
+        try {
+            cm.addMeetings(Arrays.asList(
+                    NewMeeting.future(participantsFuture, inMillis(1000)),
+                    NewMeeting.future(participantsUnknown, inMillis(1000))));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(cm.getMeetings().size(), is(10));
+            assertNull(cm.getMeeting(11));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionIfNewFutureMeetingIsPast() {
+        cm.addMeetings(Collections.singletonList(NewMeeting.future(participantsFuture, inMillis(-1000))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionIfNewPastMeetingHasNoContacts() {
+        cm.addMeetings(Collections.singletonList(NewMeeting.past(Collections.emptySet(), inMillis(-1000), "notes")));
+    }
+
+    @Test
+    public void shouldPublishEveryAddedContactAndMeeting() throws InterruptedException {
+        ContactManagerImpl cm = new ContactManagerImpl();
+        cm.setClock(clock);
+        EventRecorder recorder = new EventRecorder(4);
+        cm.addChangeListener(recorder);
+
+        int[] ids = cm.addNewContacts(Arrays.asList(new NewContact("first", "notes"), new NewContact("second", "notes")));
+        cm.addMeetings(Arrays.asList(NewMeeting.future(cm.getContacts(ids), inMillis(1000)),
+                NewMeeting.past(cm.getContacts(ids[0]), inMillis(-1000), "")));
+
+        assertTrue(recorder.await());
+        assertThat(recorder.types(), is(Arrays.asList(CONTACT_ADDED, CONTACT_ADDED, MEETING_SCHEDULED, MEETING_SCHEDULED)));
+        assertThat(cm.getMetrics().getOperation("addMeetings").getCalls(), is(1L));
     }
 
     //getContacts(name)
@@ -494,6 +874,70 @@ public class ContactManagerImplTest {
         assertThat(future.size(), is(0));
     }
 
+    @Test
+    public void shouldMatchShortNames() {
+        assertThat(cm.getContacts("e1").size(), is(1));
+    }
+
+    @Test
+    public void shouldFindContactAddedAfterSetUp() {
+        int id = cm.addNewContact("Ada Lovelace", "notes");
+
+        Set<Contact> result = cm.getContacts("Lovelace");
+
+        assertThat(result.size(), is(1));
+        assertThat(result.iterator().next().getId(), is(id));
+    }
+
+    @Test
+    public void shouldMatchCaseOnlyIfRequested() {
+        assertThat(cm.getContacts("FUTURE").size(), is(0));
+        assertThat(cm.getContacts("FUTURE", true).size(), is(5));
+        assertThat(cm.getContacts("E1", true).size(), is(1));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldThrowExceptionIfNameIsNullIgnoringCase() {
+        cm.getContacts(null, true);
+    }
+
+    //suggestContacts
+
+    @Test(expected = NullPointerException.class)
+    public void shouldThrowExceptionIfPrefixNull() {
+        cm.suggestContacts(null, 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionIfLimitNegative() {
+        cm.suggestContacts("name", -1);
+    }
+
+    @Test
+    public void shouldSuggestContactsInAlphabeticalOrderUpToLimit() {
+        List<Contact> result = cm.suggestContacts("NAME_P", 3);
+
+        assertThat(result.stream().map(Contact::getName).collect(toList()),
+                is(Arrays.asList("name_past10", "name_past6", "name_past7")));
+    }
+
+    @Test
+    public void shouldSuggestContactByAnyWordOnce() {
+        int id = cm.addNewContact("Ada Augusta Lovelace", "notes");
+
+        List<Contact> byLastName = cm.suggestContacts("love", 10);
+        List<Contact> byTwoWords = cm.suggestContacts("a", 10);
+
+        assertThat(byLastName.size(), is(1));
+        assertThat(byLastName.get(0).getId(), is(id));
+        assertThat(byTwoWords.size(), is(1));
+    }
+
+    @Test
+    public void shouldReturnNoSuggestionsForZeroLimit() {
+        assertTrue(cm.suggestContacts("name", 0).isEmpty());
+    }
+
     //getContact(ids)
 
     @Test(expected = IllegalArgumentException.class)
@@ -502,6 +946,11 @@ public class ContactManagerImplTest {
         cm.getContacts(ids);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionIfNoIDsProvided() {
+        cm.getContacts(new int[0]);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void shouldThrowExceptionIfSomeIDsNotExist() {
         int[] ids = {1,2,3,4,11};
@@ -530,18 +979,326 @@ public class ContactManagerImplTest {
         assertThat(contacts.size(), is(4));
     }
 
+    @Test
+    public void shouldReturnContactOnceForRepeatedID() {
+        int[] ids = {3, 3, 4};
+        Set<Contact> contacts = cm.getContacts(ids);
+
+        assertThat(contacts.size(), is(2));
+    }
+
+    @Test
+    public void shouldReturnContactAddedAfterSetUp() {
+        int id = cm.addNewContact("name", "notes");
+        Set<Contact> contacts = cm.getContacts(id, 1);
+
+        assertThat(contacts.size(), is(2));
+        assertTrue(contacts.stream().anyMatch(contact -> contact.getId() == id));
+    }
+
+    //concurrency
+
+    @Test
+    public void shouldStayConsistentUnderConcurrentReadsAndWrites() throws Exception {
+        int writers = 4;
+        int readers = 4;
+        int perWriter = 500;
+        Calendar future = new GregorianCalendar(3000, 0, 10);
+        Contact contact = new ContactImpl(1, "name", "notes");
+        Set<Integer> contactIds = ConcurrentHashMap.newKeySet();
+        Set<Integer> meetingIds = ConcurrentHashMap.newKeySet();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+
+        List<Future<?>> writes = IntStream.range(0, writers)
+                .mapToObj(w -> executor.submit(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        contactIds.add(cm.addNewContact("stress_" + w + "_" + i, "notes"));
+                        meetingIds.add(cm.addFutureMeeting(participantsFuture, future));
+                    }
+                }))
+                .collect(toList());
+        List<Future<?>> reads = IntStream.range(0, readers)
+                .mapToObj(r -> executor.submit(() -> {
+                    while (writing.get()) {
+                        for (int id : meetingIds) {
+                            assertNotNull(cm.getFutureMeeting(id));
+                        }
+                        cm.getFutureMeetingList(contact);
+                        cm.getContacts("stress_" + r);
+                        cm.suggestContacts("stress", 10);
+                        cm.getMeetingListOn(future);
+                    }
+                }))
+                .collect(toList());
+
+        for (Future<?> write : writes) {
+            write.get(30, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        for (Future<?> read : reads) {
+            read.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(contactIds.size(), is(writers * perWriter));
+        assertThat(meetingIds.size(), is(writers * perWriter));
+        assertThat(cm.getAllContacts().size(), is(10 + writers * perWriter));
+        assertThat(cm.getMeetings().size(), is(10 + writers * perWriter));
+        assertThat(cm.getFutureMeetingList(contact).size(), is(5 + writers * perWriter));
+        assertThat(cm.getContacts("stress_").size(), is(writers * perWriter));
+    }
+
     //FLUSH
 
     @Test
-    public void shouldFlushFileCorrectly() {
+    public void shouldFlushFileCorrectly() throws IOException {
+        Path file = folder.newFile("contacts.txt").toPath();
+        cm.setStorePath(file);
+        cm.flush();
+
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(content.contains("<participants>"));
+        assertTrue(content.contains("name_future1"));
+    }
+
+    @Test
+    public void shouldOverwritePreviousFlush() throws IOException {
+        Path file = folder.newFile("contacts.txt").toPath();
+        cm.setStorePath(file);
+        cm.flush();
+        long fullSize = Files.size(file);
+
+        cm.setMeetings(new ArrayList<>());
+        cm.flush();
+
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(Files.size(file) < fullSize);
+        assertTrue(content.trim().endsWith("</contactManager>"));
+        assertFalse(content.contains("<participants>"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldRejectNullStorePath() {
+        cm.setStorePath(null);
+    }
+
+    @Test
+    public void shouldFlushInBackground() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("contacts.txt");
+        cm.setStorePath(file);
+
+        cm.flushAsync().get(10, TimeUnit.SECONDS);
+
+        assertThat(ContactManagerImpl.load(file).getContacts("").size(), is(cm.getAllContacts().size()));
+        assertThat(folder.getRoot().list().length, is(1));
+    }
+
+    @Test
+    public void shouldCoalesceFlushRequests() throws Exception {
+        List<Runnable> queued = new ArrayList<>();
+        Path file = folder.getRoot().toPath().resolve("contacts.txt");
+        ContactManagerImpl cm = new ContactManagerImpl(file);
+        cm.setFlushExecutor(queued::add);
+
+        CompletableFuture<Void> first = cm.flushAsync();
+        cm.addNewContact("added_later", "notes");
+        CompletableFuture<Void> second = cm.flushAsync();
+
+        assertSame(first, second);
+        assertThat(queued.size(), is(1));
+        assertFalse(first.isDone());
+
+        queued.get(0).run();
+
+        assertTrue(first.isDone());
+        assertThat(ContactManagerImpl.load(file).getContacts("added_later").size(), is(1));
+        assertNotSame(first, cm.flushAsync());
+    }
+
+    @Test
+    public void shouldNotCoalesceIntoRunningFlush() {
+        List<Runnable> queued = new ArrayList<>();
+        ContactManagerImpl cm = new ContactManagerImpl(folder.getRoot().toPath().resolve("contacts.txt"));
+        cm.setFlushExecutor(queued::add);
+
+        CompletableFuture<Void> first = cm.flushAsync();
+        queued.get(0).run();
+        CompletableFuture<Void> second = cm.flushAsync();
+
+        assertNotSame(first, second);
+        assertThat(queued.size(), is(2));
+    }
+
+    @Test
+    public void shouldCompleteFailedFlushExceptionally() throws Exception {
+        cm.setStorePath(folder.getRoot().toPath().resolve("missing").resolve("contacts.txt"));
+
+        CompletableFuture<Void> flush = cm.flushAsync();
+
+        try {
+            flush.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IOException.class));
+        }
+    }
+
+    @Test
+    public void shouldFailFlushRejectedByExecutor() throws IOException {
+        Path file = folder.newFile("contacts.txt").toPath();
+        ContactManagerImpl cm = new ContactManagerImpl(file);
         cm.flush();
+        byte[] previous = Files.readAllBytes(file);
+        cm.setFlushExecutor(task -> {
+            throw new RejectedExecutionException();
+        });
+
+        assertTrue(cm.flushAsync().isCompletedExceptionally());
+        assertArrayEquals(previous, Files.readAllBytes(file));
+    }
+
+    //change feed
+    @Test
+    public void shouldPublishChangesInOrder() throws InterruptedException {
+        ContactManagerImpl cm = new ContactManagerImpl();
+        cm.setClock(clock);
+        EventRecorder recorder = new EventRecorder(6);
+        cm.addChangeListener(recorder);
+
+        int contact = cm.addNewContact("name", "notes");
+        Set<Contact> participants = cm.getContacts(contact);
+        participants.iterator().next().addNotes("more");
+        int future = cm.addFutureMeeting(participants, inMillis(1000));
+        cm.addNewPastMeeting(participants, inMillis(-1000), "went well");
+        clock.advance(Duration.ofMillis(2000));
+        cm.transitionDueMeetings();
+        cm.addMeetingNotes(future, "held");
+
+        assertTrue(recorder.await());
+        assertThat(recorder.types(), is(Arrays.asList(CONTACT_ADDED, NOTES_ADDED, MEETING_SCHEDULED,
+                MEETING_SCHEDULED, MEETING_BECAME_PAST, NOTES_ADDED)));
+        assertThat(recorder.events.get(0).getContact().getId(), is(contact));
+        assertThat(recorder.events.get(4).getMeeting().getId(), is(future));
+        assertThat(((PastMeeting) recorder.events.get(5).getMeeting()).getNotes(), is("held"));
+    }
 
-        try (Stream<String> stream = Files.lines(Paths.get("contacts.txt"))){
-            stream.forEach(s -> s.contains("participants"));
-//            stream.forEach(System.out::println);
-        } catch (IOException e) {
-            e.printStackTrace();
+    @Test
+    public void shouldPublishConversionByNotes() throws InterruptedException {
+        ContactManagerImpl cm = new ContactManagerImpl();
+        cm.setClock(clock);
+        int future = cm.addFutureMeeting(cm.getContacts(cm.addNewContact("name", "notes")), inMillis(1000));
+        EventRecorder recorder = new EventRecorder(2);
+        cm.addChangeListener(recorder);
+
+        clock.advance(Duration.ofMillis(2000));
+        cm.addMeetingNotes(future, "held");
+
+        assertTrue(recorder.await());
+        assertThat(recorder.types(), is(Arrays.asList(MEETING_BECAME_PAST, NOTES_ADDED)));
+    }
+
+    @Test
+    public void shouldNotPublishToRemovedListener() throws InterruptedException {
+        ContactManagerImpl cm = new ContactManagerImpl();
+        EventRecorder removed = new EventRecorder(1);
+        EventRecorder kept = new EventRecorder(1);
+        cm.addChangeListener(removed);
+        cm.addChangeListener(kept);
+        cm.removeChangeListener(removed);
+
+        cm.addNewContact("name", "notes");
+
+        assertTrue(kept.await());
+        assertTrue(removed.events.isEmpty());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldNotAcceptNullChangeListener() {
+        new ContactManagerImpl().addChangeListener(null);
+    }
+
+    //metrics
+    @Test
+    public void shouldCountCallsAndErrorsOfOperations() {
+        ContactManagerImpl cm = new ContactManagerImpl();
+        int id = cm.addNewContact("name", "notes");
+        cm.getContacts(id);
+        try {
+            cm.getContacts(id + 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            //counted as error
         }
+        cm.getContacts("na");
+
+        ContactManagerMetrics metrics = cm.getMetrics();
+        assertThat(metrics.getOperation("addNewContact").getCalls(), is(1L));
+        assertThat(metrics.getOperation("getContactsById").getCalls(), is(2L));
+        assertThat(metrics.getOperation("getContactsById").getErrors(), is(1L));
+        assertThat(metrics.getOperation("getContactsByName").getLatency().getCount(), is(1L));
+        assertThat(metrics.getOperation("getMeeting").getCalls(), is(0L));
+    }
+
+    @Test
+    public void shouldReportSizes() {
+        ContactManagerImpl cm = new ContactManagerImpl();
+        cm.setClock(clock);
+        cm.addFutureMeeting(cm.getContacts(cm.addNewContact("name", "notes")), inMillis(1000));
+
+        ContactManagerMetrics metrics = cm.getMetrics();
+        assertThat(metrics.getSize("contacts"), is(1L));
+        assertThat(metrics.getSize("meetings"), is(1L));
+        assertThat(metrics.getSize("upcomingMeetings"), is(1L));
+        assertThat(metrics.getSize("index.contactMeetings"), is(1L));
+        assertThat(metrics.getSize("unknown"), is(-1L));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldRecordSnapshotWrites() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("metrics.txt");
+        ContactManagerImpl cm = new ContactManagerImpl(file);
+        cm.addNewContact("name", "notes");
+
+        cm.flush();
+
+        ContactManagerMetrics metrics = cm.getMetrics();
+        assertThat(metrics.getOperation("flush").getCalls(), is(1L));
+        assertThat(metrics.getSnapshotWrites().getCount(), is(1L));
+        assertThat(metrics.getSnapshotBytes(), is(Files.size(file)));
+    }
+
+    private Calendar inMillis(long millis) {
+        Calendar date = new GregorianCalendar();
+        date.setTimeInMillis(clock.millis() + millis);
+        return date;
+    }
+
+    /**
+     * Collects events until the expected number arrived.
+     */
+    private static class EventRecorder implements ChangeListener {
+        private final List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch arrived;
+
+        EventRecorder(int expected) {
+            arrived = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onChanges(List<ChangeEvent> batch) {
+            for (ChangeEvent event : batch) {
+                events.add(event);
+                arrived.countDown();
+            }
+        }
+
+        boolean await() throws InterruptedException {
+            return arrived.await(10, TimeUnit.SECONDS);
+        }
+
+        List<ChangeEvent.Type> types() {
+            return events.stream().map(ChangeEvent::getType).collect(Collectors.toList());
+        }
+    }
+}
@@ -79,6 +79,22 @@ public class ContactManagerPredicatesTest {
         assertFalse(futureMeetings.stream().allMatch(isPastMeeting(now)));
     }
 
+    @Test
+    public void testHappensAfterIgnoresType() {
+        Calendar now = new GregorianCalendar(1000, 0, 0);
+
+        assertTrue(meetings.stream().allMatch(happensAfter(now)));
+        assertFalse(meetings.stream().anyMatch(happenedBefore(now)));
+    }
+
+    @Test
+    public void testHappenedBeforeIgnoresType() {
+        Calendar now = new GregorianCalendar(3000, 0, 0);
+
+        assertTrue(meetings.stream().allMatch(happenedBefore(now)));
+        assertFalse(meetings.stream().anyMatch(happensAfter(now)));
+    }
+
     @Test
     public void testMatchToProvidedDate() {
         Calendar past = new GregorianCalendar(1999, 0, 0);
@@ -0,0 +1,184 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for ContactManagerRegistry.
+ */
+public class ContactManagerRegistryTest {
+    ContactManagerRegistry registry;
+    List<String> loaded;
+    List<String> unloaded;
+
+    @Before
+    public void setUp() {
+        loaded = new ArrayList<>();
+        unloaded = new ArrayList<>();
+        registry = new ContactManagerRegistry(2, tenantId -> {
+            loaded.add(tenantId);
+            return new ContactManagerImpl();
+        }, (tenantId, manager) -> unloaded.add(tenantId), Runnable::run);
+    }
+
+    @Test
+    public void shouldLoadTenantOnFirstAccessOnly() {
+        ContactManagerImpl first = registry.get("a");
+        ContactManagerImpl second = registry.get("a");
+
+        assertSame(first, second);
+        assertThat(loaded, is(Arrays.asList("a")));
+    }
+
+    @Test
+    public void shouldKeepTenantsIndependent() {
+        registry.get("a").addNewContact("alice", "notes");
+
+        assertTrue(registry.get("b").getContacts("").isEmpty());
+        assertThat(registry.get("a").getContacts("").size(), is(1));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedTenant() throws Exception {
+        registry.get("a");
+        Thread.sleep(2);
+        registry.get("b");
+        Thread.sleep(2);
+        registry.get("a");
+        Thread.sleep(2);
+        registry.get("c");
+
+        assertThat(unloaded, is(Arrays.asList("b")));
+        assertThat(registry.size(), is(2));
+        assertTrue(registry.isActive("a"));
+        assertFalse(registry.isActive("b"));
+    }
+
+    @Test
+    public void shouldEvictIdleTenants() throws Exception {
+        registry.get("a");
+        Thread.sleep(20);
+        registry.get("b");
+
+        assertThat(registry.evictIdle(10), is(1));
+        assertThat(unloaded, is(Arrays.asList("a")));
+        assertTrue(registry.isActive("b"));
+    }
+
+    @Test
+    public void shouldReloadEvictedTenant() {
+        registry.get("a");
+        assertTrue(registry.evict("a"));
+        assertFalse(registry.evict("a"));
+
+        registry.get("a");
+
+        assertThat(loaded, is(Arrays.asList("a", "a")));
+    }
+
+    @Test
+    public void shouldReloadTenantOnlyOnceItsUnloaderFinished() throws Exception {
+        Map<String, Integer> persisted = new ConcurrentHashMap<>();
+        CountDownLatch unloadStarted = new CountDownLatch(1);
+        CountDownLatch releaseUnload = new CountDownLatch(1);
+        ExecutorService unloads = Executors.newSingleThreadExecutor();
+        ContactManagerRegistry registry = new ContactManagerRegistry(1, tenantId -> {
+            ContactManagerImpl manager = new ContactManagerImpl();
+            for (int i = 0; i < persisted.getOrDefault(tenantId, 0); i++) {
+                manager.addNewContact("restored", "notes");
+            }
+            return manager;
+        }, (tenantId, manager) -> {
+            unloadStarted.countDown();
+            try {
+                releaseUnload.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            persisted.put(tenantId, manager.getContacts("").size());
+        }, unloads);
+        try {
+            registry.get("a").addNewContact("alice", "notes");
+            //evicts a, whose unloader blocks on the executor, without blocking this caller
+            registry.get("b");
+            assertTrue(unloadStarted.await(10, TimeUnit.SECONDS));
+
+            CompletableFuture<ContactManagerImpl> reload = CompletableFuture.supplyAsync(() -> registry.get("a"));
+            Thread.sleep(50);
+            assertFalse(reload.isDone());
+
+            releaseUnload.countDown();
+            assertThat(reload.get(10, TimeUnit.SECONDS).getContacts("").size(), is(1));
+        } finally {
+            releaseUnload.countDown();
+            unloads.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldLoadTenantOnceForConcurrentCallers() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        ContactManagerRegistry registry = new ContactManagerRegistry(2, tenantId -> {
+            if (tenantId.equals("a")) {
+                loads.incrementAndGet();
+                try {
+                    releaseLoad.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new ContactManagerImpl();
+        }, (tenantId, manager) -> {}, Runnable::run);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<ContactManagerImpl> first = callers.submit(() -> registry.get("a"));
+            Future<ContactManagerImpl> second = callers.submit(() -> registry.get("a"));
+            //other tenants are not held up by the slow load
+            assertTrue(registry.get("b").getContacts("").isEmpty());
+            releaseLoad.countDown();
+
+            assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+            assertThat(loads.get(), is(1));
+        } finally {
+            releaseLoad.countDown();
+            callers.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldForgetTenantWhoseLoaderFailed() {
+        AtomicInteger attempts = new AtomicInteger();
+        ContactManagerRegistry registry = new ContactManagerRegistry(2, tenantId -> {
+            if (attempts.incrementAndGet() == 1) throw new IllegalStateException("disk unavailable");
+            return new ContactManagerImpl();
+        }, (tenantId, manager) -> {}, Runnable::run);
+
+        try {
+            registry.get("a");
+            fail();
+        } catch (IllegalStateException e) {
+            assertFalse(registry.isActive("a"));
+        }
+        assertNotNull(registry.get("a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveCapacity() {
+        new ContactManagerRegistry(0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldRejectNullTenant() {
+        registry.get(null);
+    }
+}
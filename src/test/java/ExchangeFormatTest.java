@@ -0,0 +1,105 @@
+import interfaces.Contact;
+import interfaces.PastMeeting;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test class for ExchangeFormat.
+ */
+public class ExchangeFormatTest {
+    Contact ann = new ContactImpl(1, "Ann, \"the\" boss", "line one\nline two");
+    Contact bob = new ContactImpl(2, "Bob", "");
+
+    @Test
+    public void shouldQuoteCsvFieldsOnlyWhenNeeded() {
+        StringBuilder out = new StringBuilder();
+        ExchangeFormat.CSV.appendContact(out, ann);
+        ExchangeFormat.CSV.appendContact(out, bob);
+
+        assertThat(out.toString(), is("1,\"Ann, \"\"the\"\" boss\",\"line one\nline two\"\n2,Bob,\n"));
+    }
+
+    @Test
+    public void shouldRoundTripContactsInBothFormats() {
+        for (ExchangeFormat format : ExchangeFormat.values()) {
+            StringBuilder out = new StringBuilder();
+            format.appendContact(out, ann);
+            String record = out.substring(0, out.length() - 1);
+
+            ContactImpl parsed = format.parseContact(record);
+            assertThat(parsed.getId(), is(1));
+            assertThat(parsed.getName(), is(ann.getName()));
+            assertThat(parsed.getNotes(), is(ann.getNotes()));
+        }
+    }
+
+    @Test
+    public void shouldRoundTripMeetingsWithSortedParticipants() {
+        Set<Contact> participants = new HashSet<>(Arrays.asList(bob, ann));
+        PastMeetingImpl meeting = new PastMeetingImpl(7, 1893490200000L, participants, "tab\there \\ \u0001");
+        for (ExchangeFormat format : ExchangeFormat.values()) {
+            StringBuilder out = new StringBuilder();
+            format.appendMeeting(out, meeting);
+            assertThat(out.toString(), out.indexOf("1" + (format == ExchangeFormat.CSV ? " " : ",") + "2") > 0, is(true));
+
+            MeetingImpl parsed = format.parseMeeting(out.substring(0, out.length() - 1));
+            assertThat(parsed, instanceOf(PastMeeting.class));
+            assertThat(parsed.getId(), is(7));
+            assertThat(parsed.getEpochMillis(), is(1893490200000L));
+            assertThat(((PastMeeting) parsed).getNotes(), is(meeting.getNotes()));
+            Set<Integer> ids = new HashSet<>();
+            for (Contact contact : parsed.getContacts()) {
+                ids.add(contact.getId());
+            }
+            assertThat(ids, is(new HashSet<>(Arrays.asList(1, 2))));
+        }
+    }
+
+    @Test
+    public void shouldWriteFutureMeetingsWithoutNotes() {
+        FutureMeetingImpl meeting = new FutureMeetingImpl(3, 0L, Collections.singleton(bob));
+        StringBuilder out = new StringBuilder();
+        ExchangeFormat.JSON_LINES.appendMeeting(out, meeting);
+
+        assertThat(out.toString(), is("{\"id\":3,\"type\":\"future\",\"date\":\"1970-01-01T00:00:00Z\",\"participants\":[2]}\n"));
+    }
+
+    @Test
+    public void shouldIgnoreUnknownJsonFieldsAndDefaultNotes() {
+        ContactImpl parsed = ExchangeFormat.JSON_LINES.parseContact(
+                "{ \"id\" : 4, \"name\" : \"D\\u00e9sir\\u00e9e\", \"vip\" : true, \"tags\" : [] }");
+
+        assertThat(parsed.getName(), is("D\u00E9sir\u00E9e"));
+        assertThat(parsed.getNotes(), is(""));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void shouldRejectCsvRecordWithMissingField() {
+        ExchangeFormat.CSV.parseContact("1,Ann");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void shouldRejectCsvRecordWithStrayQuote() {
+        ExchangeFormat.CSV.parseContact("1,An\"n,notes");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void shouldRejectUnknownMeetingType() {
+        ExchangeFormat.CSV.parseMeeting("1,someday,2030-01-01T00:00:00Z,1,");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void shouldRejectTruncatedJson() {
+        ExchangeFormat.JSON_LINES.parseContact("{\"id\":1,\"name\":\"Ann\"");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void shouldRejectIdOutOfRange() {
+        ExchangeFormat.JSON_LINES.parseContact("{\"id\":4294967296,\"name\":\"Ann\"}");
+    }
+}
@@ -0,0 +1,210 @@
+import interfaces.Contact;
+import interfaces.FutureMeeting;
+import interfaces.Meeting;
+import interfaces.PastMeeting;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for ExchangeReader and ExchangeWriter.
+ */
+public class ExchangeReaderTest {
+    ContactManagerImpl exported;
+    int ann, bob, futureId, pastId;
+
+    @Before
+    public void setUp() {
+        exported = new ContactManagerImpl();
+        ann = exported.addNewContact("Ann, \"the\" boss", "likes tea\nand cake");
+        bob = exported.addNewContact("Bob", "plays, sings");
+        futureId = exported.addFutureMeeting(exported.getContacts(ann, bob), new GregorianCalendar(2100, 0, 1));
+        exported.addNewPastMeeting(exported.getContacts(ann), new GregorianCalendar(2000, 0, 1, 10, 30), "went {\"well\"}");
+        pastId = exported.getPastMeetingListFor(exported.getContacts(ann).iterator().next()).get(0).getId();
+    }
+
+    @Test
+    public void shouldRoundTripInBothFormats() throws IOException {
+        for (ExchangeFormat format : ExchangeFormat.values()) {
+            ContactManagerImpl imported = new ContactManagerImpl();
+            ExchangeReader reader = new ExchangeReader(imported, format);
+            assertThat(reader.readContacts(channel(contacts(format))), is(2L));
+            assertThat(reader.readMeetings(channel(meetings(format))), is(2L));
+
+            Contact annCopy = imported.getContacts("Ann").iterator().next();
+            assertThat(annCopy.getNotes(), is("likes tea\nand cake"));
+            assertThat(imported.getContacts("Bob").iterator().next().getNotes(), is("plays, sings"));
+
+            FutureMeeting future = imported.getFutureMeeting(futureId);
+            assertThat(future.getDate(), is(exported.getMeeting(futureId).getDate()));
+            assertThat(future.getContacts().size(), is(2));
+            PastMeeting past = imported.getPastMeeting(pastId);
+            assertThat(past.getNotes(), is("went {\"well\"}"));
+            assertThat(past.getContacts(), is(Collections.singleton(annCopy)));
+        }
+    }
+
+    @Test
+    public void shouldGiveNewIdsWhenImportingIntoNonEmptyManager() throws IOException {
+        ContactManagerImpl imported = new ContactManagerImpl();
+        int carl = imported.addNewContact("Carl", "new");
+        ExchangeReader reader = new ExchangeReader(imported, ExchangeFormat.CSV);
+        reader.readContacts(channel(contacts(ExchangeFormat.CSV)));
+        reader.readMeetings(channel(meetings(ExchangeFormat.CSV)));
+
+        Contact annCopy = imported.getContacts("Ann").iterator().next();
+        assertNotEquals(annCopy.getId(), carl);
+        List<PastMeeting> past = imported.getPastMeetingListFor(annCopy);
+        assertThat(past.size(), is(1));
+        assertThat(imported.getContacts("").size(), is(3));
+    }
+
+    @Test
+    public void shouldImportManyRecordsInOrderAcrossChunks() throws IOException {
+        ContactManagerImpl big = new ContactManagerImpl();
+        List<interfaces.NewContact> contacts = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            contacts.add(new interfaces.NewContact("Contact " + i, "notes " + i));
+        }
+        big.addNewContacts(contacts);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(new ExchangeWriter(big, ExchangeFormat.JSON_LINES).writeContacts(Channels.newChannel(out)), is(5000L));
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            ContactManagerImpl imported = new ContactManagerImpl();
+            ExchangeReader reader = new ExchangeReader(imported, ExchangeFormat.JSON_LINES);
+            reader.setParseExecutor(executor);
+            reader.setChunkSize(7);
+            assertThat(reader.readContacts(channel(out.toByteArray())), is(5000L));
+
+            for (int i = 0; i < 5000; i++) {
+                assertThat(imported.getContacts(i + 1).iterator().next().getName(), is("Contact " + i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldAcceptEmptyInputAndByteOrderMark() throws IOException {
+        ContactManagerImpl imported = new ContactManagerImpl();
+        ExchangeReader reader = new ExchangeReader(imported, ExchangeFormat.CSV);
+        assertThat(reader.readContacts(channel(new byte[0])), is(0L));
+        assertThat(reader.readContacts(channel(bytes("\uFEFFid,name,notes\r\n5,Eve,x\r\n"))), is(1L));
+        assertThat(imported.getContacts("Eve").size(), is(1));
+    }
+
+    @Test
+    public void shouldReportNumberOfMalformedRecordAndKeepEarlierChunks() {
+        ContactManagerImpl imported = new ContactManagerImpl();
+        ExchangeReader reader = new ExchangeReader(imported, ExchangeFormat.CSV);
+        reader.setChunkSize(2);
+        try {
+            reader.readContacts(channel(bytes("id,name,notes\n1,A,\n2,B,\n3,C,\nfour,D,\n5,E,\n")));
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("Malformed record 5"));
+        }
+        assertThat(imported.getContacts("").size(), is(2));
+    }
+
+    @Test
+    public void shouldRejectWrongHeader() {
+        try {
+            new ExchangeReader(new ContactManagerImpl(), ExchangeFormat.CSV).readContacts(channel(bytes("name,notes\nA,\n")));
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("id,name,notes"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectDuplicateContact() throws IOException {
+        new ExchangeReader(new ContactManagerImpl(), ExchangeFormat.CSV).readContacts(channel(bytes("id,name,notes\n1,A,\n1,B,\n")));
+    }
+
+    @Test
+    public void shouldNotResolveParticipantsOfRejectedChunk() throws IOException {
+        ContactManagerImpl imported = new ContactManagerImpl();
+        ExchangeReader reader = new ExchangeReader(imported, ExchangeFormat.CSV);
+        try {
+            reader.readContacts(channel(bytes("id,name,notes\n1,A,\n2,B,\n1,C,\n")));
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("Duplicate contact 1"));
+        }
+
+        try {
+            reader.readMeetings(channel(bytes("id,type,date,participants,notes\n1,past,2000-01-01T00:00:00Z,2,\n")));
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("Unknown participant 2"));
+        }
+        assertTrue(imported.getContacts("").isEmpty());
+    }
+
+    @Test
+    public void shouldRejectUnknownParticipant() throws IOException {
+        ContactManagerImpl imported = new ContactManagerImpl();
+        ExchangeReader reader = new ExchangeReader(imported, ExchangeFormat.JSON_LINES);
+        try {
+            reader.readMeetings(channel(meetings(ExchangeFormat.JSON_LINES)));
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("Unknown participant"));
+        }
+    }
+
+    @Test
+    public void shouldImportPastDueFutureMeetingAsPast() throws IOException {
+        ContactManagerImpl imported = new ContactManagerImpl();
+        List<PastMeeting> converted = new ArrayList<>();
+        imported.addPastMeetingListener(converted::add);
+        ExchangeReader reader = new ExchangeReader(imported, ExchangeFormat.CSV);
+        reader.readContacts(channel(bytes("id,name,notes\n9,Ann,\n")));
+        reader.readMeetings(channel(bytes("id,type,date,participants,notes\n4,future,2000-01-01T00:00:00Z,9,\n")));
+
+        Meeting meeting = imported.getMeeting(1);
+        assertThat(meeting, instanceOf(PastMeeting.class));
+        assertThat(imported.getMeetings().get(0), instanceOf(PastMeeting.class));
+        assertThat(converted.size(), is(1));
+    }
+
+    //HELPER METHODS
+
+    private byte[] contacts(ExchangeFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(new ExchangeWriter(exported, format).writeContacts(Channels.newChannel(out)), is(2L));
+        return out.toByteArray();
+    }
+
+    private byte[] meetings(ExchangeFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(new ExchangeWriter(exported, format).writeMeetings(Channels.newChannel(out)), is(2L));
+        return out.toByteArray();
+    }
+
+    private static ReadableByteChannel channel(byte[] bytes) {
+        return Channels.newChannel(new ByteArrayInputStream(bytes));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
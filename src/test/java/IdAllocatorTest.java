@@ -0,0 +1,94 @@
+import org.junit.Test;
+import utils.IdAllocator;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for IdAllocator.
+ */
+public class IdAllocatorTest {
+
+    @Test
+    public void shouldStartFromOne() {
+        IdAllocator ids = new IdAllocator();
+
+        assertThat(ids.next(), is(1));
+        assertThat(ids.next(), is(2));
+    }
+
+    @Test
+    public void shouldContinueAfterHighestRestoredId() {
+        IdAllocator ids = new IdAllocator();
+        ids.next();
+        ids.restore(10);
+
+        assertThat(ids.next(), is(11));
+    }
+
+    @Test
+    public void shouldNotHandOutObservedId() {
+        IdAllocator ids = new IdAllocator();
+        ids.observe(5);
+        ids.observe(3);
+
+        assertThat(ids.next(), is(6));
+    }
+
+    @Test
+    public void shouldReserveRangeInOneStep() {
+        IdAllocator ids = new IdAllocator();
+        ids.next();
+
+        assertThat(ids.nextRange(100), is(2));
+        assertThat(ids.current(), is(101));
+        assertThat(ids.next(), is(102));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectRangeBeyondIdSpace() {
+        IdAllocator ids = new IdAllocator();
+        ids.restore(Integer.MAX_VALUE - 1);
+
+        ids.nextRange(2);
+    }
+
+    @Test
+    public void shouldKeepFailingOnceIdSpaceIsExhausted() {
+        IdAllocator ids = new IdAllocator();
+        ids.restore(Integer.MAX_VALUE - 1);
+        assertThat(ids.next(), is(Integer.MAX_VALUE));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                ids.next();
+                fail();
+            } catch (IllegalStateException e) {
+                //expected
+            }
+        }
+        try {
+            ids.nextRange(1);
+            fail();
+        } catch (IllegalStateException e) {
+            //expected
+        }
+        assertThat(ids.current(), is(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void shouldGenerateUniqueIdsForConcurrentCallers() {
+        IdAllocator ids = new IdAllocator();
+        Set<Integer> generated = ConcurrentHashMap.newKeySet();
+
+        IntStream.range(0, 100000).parallel().forEach(i -> generated.add(ids.next()));
+
+        assertThat(generated.size(), is(100000));
+        assertThat(ids.current(), is(100000));
+    }
+}
@@ -0,0 +1,91 @@
+import org.junit.Before;
+import org.junit.Test;
+import utils.IntMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for IntMap.
+ */
+public class IntMapTest {
+    IntMap<String> map;
+
+    @Before
+    public void setUp() {
+        map = new IntMap<>();
+    }
+
+    @Test
+    public void shouldReturnNullForMissingKey() {
+        assertNull(map.get(1));
+        assertFalse(map.containsKey(1));
+    }
+
+    @Test
+    public void shouldStoreAndReplaceValues() {
+        assertNull(map.put(0, "zero"));
+        assertNull(map.put(-5, "minus five"));
+        assertThat(map.put(0, "ZERO"), is("zero"));
+
+        assertThat(map.get(0), is("ZERO"));
+        assertThat(map.get(-5), is("minus five"));
+        assertThat(map.size(), is(2));
+    }
+
+    @Test
+    public void shouldKeepAllEntriesAfterResize() {
+        for (int i = 0; i < 10000; i++) {
+            map.put(i * 31, "v" + i);
+        }
+
+        assertThat(map.size(), is(10000));
+        for (int i = 0; i < 10000; i++) {
+            assertThat(map.get(i * 31), is("v" + i));
+        }
+    }
+
+    @Test
+    public void shouldKeepEntriesWhenGrownInAdvance() {
+        map.put(7, "seven");
+
+        map.ensureCapacity(100000);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 31 + 1, "v" + i);
+        }
+
+        assertThat(map.get(7), is("seven"));
+        assertThat(map.get(31 * 999 + 1), is("v999"));
+        assertThat(map.size(), is(1001));
+    }
+
+    @Test
+    public void shouldRemoveWithoutBreakingProbeChain() {
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, "v" + i);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            assertThat(map.remove(i), is("v" + i));
+        }
+
+        assertThat(map.size(), is(500));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(map.get(i), is((i % 2 == 0) ? null : "v" + i));
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldNotAcceptNullValues() {
+        map.put(1, null);
+    }
+
+    @Test
+    public void shouldBeEmptyAfterClear() {
+        map.put(1, "one");
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+    }
+}
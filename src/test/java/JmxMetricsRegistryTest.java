@@ -0,0 +1,69 @@
+import org.junit.After;
+import org.junit.Test;
+import utils.JmxMetricsRegistry;
+import utils.LatencyHistogram;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for JmxMetricsRegistry.
+ */
+public class JmxMetricsRegistryTest {
+    private static final String NAME = "contactManager:type=Metrics,name=JmxMetricsRegistryTest";
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private final JmxMetricsRegistry registry = new JmxMetricsRegistry("test metrics");
+
+    @After
+    public void tearDown() throws JMException {
+        if (server.isRegistered(new ObjectName(NAME))) registry.unregister(NAME);
+    }
+
+    @Test
+    public void shouldPublishCountersAndGauges() throws JMException {
+        AtomicLong calls = new AtomicLong(3);
+        registry.counter("calls", calls::get);
+        registry.gauge("size.contacts", () -> 7);
+        registry.register(NAME);
+
+        calls.incrementAndGet();
+
+        assertThat(server.getAttribute(new ObjectName(NAME), "calls"), is(4L));
+        assertThat(server.getAttribute(new ObjectName(NAME), "size.contacts"), is(7L));
+    }
+
+    @Test
+    public void shouldPublishHistogramSummary() throws JMException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        histogram.record(20);
+        registry.histogram("flush.latency", histogram);
+        registry.register(NAME);
+
+        ObjectName name = new ObjectName(NAME);
+        assertThat(server.getAttribute(name, "flush.latency.count"), is(2L));
+        assertThat(server.getAttribute(name, "flush.latency.max"), is(20L));
+        assertThat(server.getAttribute(name, "flush.latency.p50"), is(10L));
+        assertThat(server.getMBeanInfo(name).getAttributes().length, is(6));
+    }
+
+    @Test(expected = AttributeNotFoundException.class)
+    public void shouldNotFindUnknownAttribute() throws JMException {
+        registry.register(NAME);
+
+        server.getAttribute(new ObjectName(NAME), "unknown");
+    }
+
+    @Test(expected = AttributeNotFoundException.class)
+    public void shouldNotSetAttribute() throws Exception {
+        registry.gauge("size.contacts", () -> 7);
+
+        registry.setAttribute(new Attribute("size.contacts", 8L));
+    }
+}
@@ -0,0 +1,117 @@
+import org.junit.Test;
+import utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for LatencyHistogram.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void shouldBeExactForSmallValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 50; i++) {
+            histogram.record(i);
+        }
+
+        assertThat(histogram.getCount(), is(50L));
+        assertThat(histogram.getValueAtPercentile(50), is(25L));
+        assertThat(histogram.getValueAtPercentile(100), is(50L));
+        assertEquals(25.5, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    public void shouldKeepRelativeErrorSmallForLargeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 100; value < 1_000_000_000_000L; value = value * 7 / 5) {
+            histogram.reset();
+            histogram.record(value);
+            histogram.record(value * 10);
+
+            long reported = histogram.getValueAtPercentile(50);
+            assertTrue(reported >= value);
+            assertTrue(reported <= value * 1.032);
+        }
+    }
+
+    @Test
+    public void shouldFindTailPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 9990; i++) {
+            histogram.record(1000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1_000_000);
+        }
+
+        assertThat(histogram.getValueAtPercentile(99), is(1007L));
+        assertThat(histogram.getValueAtPercentile(99.9), is(1007L));
+        assertThat(histogram.getValueAtPercentile(99.95), is(1_000_000L));
+        assertThat(histogram.getMax(), is(1_000_000L));
+    }
+
+    @Test
+    public void shouldRecordExtremeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertThat(histogram.getValueAtPercentile(0), is(0L));
+        assertThat(histogram.getValueAtPercentile(100), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void shouldReturnZeroWhenEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.getValueAtPercentile(99), is(0L));
+        assertEquals(0, histogram.getMean(), 0);
+    }
+
+    @Test
+    public void shouldAddOtherHistogram() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(10);
+        second.record(20);
+        second.record(30);
+
+        first.add(second);
+
+        assertThat(first.getCount(), is(3L));
+        assertThat(first.getMax(), is(30L));
+        assertThat(second.getCount(), is(2L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectPercentileAbove100() {
+        new LatencyHistogram().getValueAtPercentile(100.1);
+    }
+
+    @Test
+    public void shouldCountConcurrentRecords() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread recorder = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            recorder.start();
+            threads.add(recorder);
+        }
+        for (Thread recorder : threads) {
+            recorder.join();
+        }
+
+        assertThat(histogram.getCount(), is(40_000L));
+        assertThat(histogram.getMax(), is(9999L));
+    }
+}
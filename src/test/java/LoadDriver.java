@@ -0,0 +1,274 @@
+import interfaces.Contact;
+import interfaces.PastMeeting;
+import utils.LatencyHistogram;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a mixed read and write workload against a generated book from several threads
+ * and reports latency percentiles of every operation.
+ *
+ * Every thread draws its operations from a random generator seeded by the seed and its number,
+ * so a run can be replayed with the same operations, only their interleaving differs.
+ *
+ * Run with: java LoadDriver [name=value ...]
+ * Options and defaults: threads=4 operations=100000 (per thread) warmup=20000 (per thread)
+ * contacts=10000 meetings=100000 writes=10 (percent of operations) past=0.5 zipf=1.0 seed=42
+ */
+public class LoadDriver {
+    private final WorkloadGenerator generator;
+    private final int threads;
+    private final int operations;
+    private final int warmup;
+    private final int writePercent;
+    private final long seed;
+
+    private final AtomicLong errors = new AtomicLong();
+    private long elapsedNanos;
+
+    /**
+     * Operations of the workload with their share among reads or among writes, in percent.
+     */
+    enum Operation {
+        GET_CONTACTS_BY_NAME(false, 30) {
+            void run(Book book, Random random) {
+                String name = book.contacts[book.popularity.next(random)].getName();
+                book.cm.getContacts(name.substring(0, Math.min(4, name.length())));
+            }
+        },
+        GET_CONTACTS_BY_ID(false, 20) {
+            void run(Book book, Random random) {
+                book.cm.getContacts(book.popularity.next(random), book.popularity.next(random));
+            }
+        },
+        GET_FUTURE_MEETING_LIST(false, 20) {
+            void run(Book book, Random random) {
+                book.cm.getFutureMeetingList(book.contacts[book.popularity.next(random)]);
+            }
+        },
+        GET_PAST_MEETING_LIST(false, 15) {
+            void run(Book book, Random random) {
+                book.cm.getPastMeetingListFor(book.contacts[book.popularity.next(random)]);
+            }
+        },
+        GET_MEETING_LIST_ON(false, 15) {
+            void run(Book book, Random random) {
+                book.cm.getMeetingListOn(book.generator.day(random));
+            }
+        },
+        ADD_NEW_CONTACT(true, 30) {
+            void run(Book book, Random random) {
+                book.cm.addNewContact(book.generator.name(random), book.generator.notes(random));
+            }
+        },
+        ADD_FUTURE_MEETING(true, 30) {
+            void run(Book book, Random random) {
+                book.cm.addFutureMeeting(book.participants(random), book.generator.futureDate(random));
+            }
+        },
+        ADD_NEW_PAST_MEETING(true, 20) {
+            void run(Book book, Random random) {
+                book.cm.addNewPastMeeting(book.participants(random), book.generator.pastDate(random), book.generator.notes(random));
+            }
+        },
+        ADD_MEETING_NOTES(true, 20) {
+            void run(Book book, Random random) {
+                if (book.pastMeetings.length == 0) return;
+                book.cm.addMeetingNotes(book.pastMeetings[random.nextInt(book.pastMeetings.length)], "ok");
+            }
+        };
+
+        final boolean write;
+        final int share;
+
+        Operation(boolean write, int share) {
+            this.write = write;
+            this.share = share;
+        }
+
+        abstract void run(Book book, Random random);
+
+        static Operation pick(Random random, int writePercent) {
+            boolean write = random.nextInt(100) < writePercent;
+            int point = random.nextInt(100);
+            for (Operation operation : values()) {
+                if (operation.write != write) continue;
+                point -= operation.share;
+                if (point < 0) return operation;
+            }
+            throw new IllegalStateException("Shares do not add up to 100");
+        }
+    }
+
+    public LoadDriver(WorkloadGenerator generator, int threads, int operations, int warmup, int writePercent, long seed) {
+        if (generator == null) {
+            throw new NullPointerException();
+        } else if (threads < 1 || operations < 0 || warmup < 0 || writePercent < 0 || writePercent > 100) {
+            throw new IllegalArgumentException();
+        }
+        this.generator = generator;
+        this.threads = threads;
+        this.operations = operations;
+        this.warmup = warmup;
+        this.writePercent = writePercent;
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the workload against the manager, which holds the generated book.
+     *
+     * @param cm manager filled by the generator
+     * @return latencies in nanoseconds of every operation that ran
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public Map<Operation, LatencyHistogram> run(ContactManagerImpl cm) throws InterruptedException {
+        Book book = new Book(cm, generator);
+        Map<Operation, LatencyHistogram> total = new EnumMap<>(Operation.class);
+        List<Map<Operation, LatencyHistogram>> perThread = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        CountDownLatch warm = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < threads; t++) {
+            Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+            perThread.add(latencies);
+            Random random = new Random(seed * 31 + t);
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < warmup; i++) {
+                    execute(Operation.pick(random, writePercent), book, random);
+                }
+                warm.countDown();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < operations; i++) {
+                    Operation operation = Operation.pick(random, writePercent);
+                    long begin = System.nanoTime();
+                    execute(operation, book, random);
+                    latencies.computeIfAbsent(operation, o -> new LatencyHistogram()).record(System.nanoTime() - begin);
+                }
+            }, "load-driver-" + t);
+            worker.start();
+            workers.add(worker);
+        }
+
+        warm.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        elapsedNanos = System.nanoTime() - begin;
+
+        for (Map<Operation, LatencyHistogram> latencies : perThread) {
+            latencies.forEach((operation, histogram) -> total.computeIfAbsent(operation, o -> new LatencyHistogram()).add(histogram));
+        }
+        return total;
+    }
+
+    /**
+     * Returns number of operations which threw, e.g. because of a bug exposed by the load.
+     *
+     * @return number of failed operations
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2) throw new IllegalArgumentException("Expected name=value: " + arg);
+            options.put(option[0], option[1]);
+        }
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        WorkloadGenerator generator = new WorkloadGenerator(seed);
+        generator.setContacts(Integer.parseInt(options.getOrDefault("contacts", "10000")));
+        generator.setMeetings(Integer.parseInt(options.getOrDefault("meetings", "100000")));
+        generator.setPastRatio(Double.parseDouble(options.getOrDefault("past", "0.5")));
+        generator.setZipfExponent(Double.parseDouble(options.getOrDefault("zipf", "1.0")));
+        LoadDriver driver = new LoadDriver(generator,
+                Integer.parseInt(options.getOrDefault("threads", "4")),
+                Integer.parseInt(options.getOrDefault("operations", "100000")),
+                Integer.parseInt(options.getOrDefault("warmup", "20000")),
+                Integer.parseInt(options.getOrDefault("writes", "10")), seed);
+
+        long begin = System.nanoTime();
+        ContactManagerImpl cm = generator.generate();
+        System.out.printf("generated %d contacts and %d meetings in %.1f s%n",
+                generator.getContacts(), generator.getMeetings(), (System.nanoTime() - begin) / 1e9);
+
+        Map<Operation, LatencyHistogram> latencies = driver.run(cm);
+        report(latencies, driver.getElapsedNanos(), driver.getErrors());
+    }
+
+    //HELPER METHODS
+
+    private void execute(Operation operation, Book book, Random random) {
+        try {
+            operation.run(book, random);
+        } catch (RuntimeException e) {
+            if (errors.incrementAndGet() == 1) e.printStackTrace();
+        }
+    }
+
+    private static void report(Map<Operation, LatencyHistogram> latencies, long elapsedNanos, long errors) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%-24s %10s %10s %10s %10s %10s %10s%n", "operation (us)", "count", "ops/s", "p50", "p99", "p999", "max");
+        long count = 0;
+        for (Map.Entry<Operation, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            count += histogram.getCount();
+            System.out.printf("%-24s %10d %10.0f %10.1f %10.1f %10.1f %10.1f%n", entry.getKey(),
+                    histogram.getCount(), histogram.getCount() / seconds,
+                    histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(99) / 1e3,
+                    histogram.getValueAtPercentile(99.9) / 1e3, histogram.getMax() / 1e3);
+        }
+        System.out.printf("total %d operations in %.2f s, %.0f ops/s, %d errors%n", count, seconds, count / seconds, errors);
+    }
+
+    /**
+     * Generated book and what operations need to pick their arguments from it.
+     */
+    static class Book {
+        final ContactManagerImpl cm;
+        final WorkloadGenerator generator;
+        final WorkloadGenerator.Zipf popularity;
+        //contacts of the generated book by ID
+        final Contact[] contacts;
+        final int[] pastMeetings;
+
+        Book(ContactManagerImpl cm, WorkloadGenerator generator) {
+            this.cm = cm;
+            this.generator = generator;
+            this.popularity = generator.zipf();
+
+            contacts = new Contact[generator.getContacts() + 1];
+            for (Contact contact : cm.getAllContacts()) {
+                if (contact.getId() < contacts.length) contacts[contact.getId()] = contact;
+            }
+            pastMeetings = cm.getMeetings().stream()
+                    .filter(meeting -> meeting instanceof PastMeeting)
+                    .mapToInt(meeting -> ((PastMeeting) meeting).getId())
+                    .toArray();
+        }
+
+        Set<Contact> participants(Random random) {
+            Set<Contact> participants = new HashSet<>();
+            int count = 1 + random.nextInt(3);
+            for (int i = 0; i < count; i++) {
+                participants.add(contacts[popularity.next(random)]);
+            }
+            return participants;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+import org.junit.Test;
+import utils.ManualClock;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test class for ManualClock.
+ */
+public class ManualClockTest {
+
+    @Test
+    public void shouldStandStill() throws InterruptedException {
+        ManualClock clock = new ManualClock(1000);
+        Thread.sleep(5);
+
+        assertThat(clock.millis(), is(1000L));
+        assertThat(clock.instant(), is(Instant.ofEpochMilli(1000)));
+    }
+
+    @Test
+    public void shouldMoveWhenSetOrAdvanced() {
+        ManualClock clock = new ManualClock(1000);
+
+        clock.advance(Duration.ofSeconds(2));
+        assertThat(clock.millis(), is(3000L));
+
+        clock.set(500);
+        assertThat(clock.millis(), is(500L));
+    }
+
+    @Test
+    public void shouldShareTimeWithZonedCopy() {
+        ManualClock clock = new ManualClock(1000);
+        Clock zoned = clock.withZone(ZoneId.of("Europe/London"));
+
+        clock.advance(Duration.ofMillis(1));
+
+        assertThat(zoned.millis(), is(1001L));
+        assertThat(zoned.getZone(), is(ZoneId.of("Europe/London")));
+    }
+}
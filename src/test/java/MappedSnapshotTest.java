@@ -0,0 +1,131 @@
+import interfaces.Contact;
+import interfaces.FutureMeeting;
+import interfaces.Meeting;
+import interfaces.PastMeeting;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for MappedSnapshot.
+ */
+public class MappedSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    Path file;
+    ContactManagerImpl saved;
+    int ann, bob, futureId;
+
+    @Before
+    public void setUp() throws IOException {
+        file = folder.getRoot().toPath().resolve("contacts.bin");
+        saved = new ContactManagerImpl(file);
+        saved.setStoreFormat(StoreFormat.BINARY);
+        ann = saved.addNewContact("Ann", "likes tea");
+        bob = saved.addNewContact("Bob", "likes tea");
+        futureId = saved.addFutureMeeting(saved.getContacts(ann, bob), new GregorianCalendar(2100, 0, 1));
+        saved.addNewPastMeeting(saved.getContacts(bob), new GregorianCalendar(2000, 0, 1), "went well");
+        saved.flush();
+    }
+
+    @Test
+    public void shouldFindContactsById() throws IOException {
+        MappedSnapshot snapshot = MappedSnapshot.open(file);
+
+        Contact contact = snapshot.getContact(bob);
+
+        assertThat(contact.getName(), is("Bob"));
+        assertThat(contact.getNotes(), is("likes tea"));
+        assertThat(snapshot.getContacts(ann, bob).size(), is(2));
+        assertThat(snapshot.getContactCount(), is(2));
+    }
+
+    @Test
+    public void shouldFindMeetingsWithTypes() throws IOException {
+        MappedSnapshot snapshot = MappedSnapshot.open(file);
+
+        Meeting future = snapshot.getMeeting(futureId);
+        Meeting past = snapshot.getMeeting(futureId + 1);
+
+        assertThat(future, instanceOf(FutureMeeting.class));
+        assertThat(future.getContacts(), is(saved.getContacts(ann, bob)));
+        assertThat(past, instanceOf(PastMeeting.class));
+        assertThat(((PastMeeting) past).getNotes(), is("went well"));
+        assertThat(snapshot.getMeetingCount(), is(2));
+    }
+
+    @Test
+    public void shouldReturnNullForUnknownIds() throws IOException {
+        MappedSnapshot snapshot = MappedSnapshot.open(file);
+
+        assertNull(snapshot.getContact(0));
+        assertNull(snapshot.getContact(3));
+        assertNull(snapshot.getMeeting(-1));
+        assertNull(snapshot.getMeeting(99));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotGetUnknownContacts() throws IOException {
+        MappedSnapshot.open(file).getContacts(ann, 99);
+    }
+
+    @Test
+    public void shouldIterateInIdOrder() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            saved.addNewContact("name_" + i, "notes");
+        }
+        saved.flush();
+        List<Integer> ids = new ArrayList<>();
+
+        MappedSnapshot.open(file).forEachContact(contact -> ids.add(contact.getId()));
+
+        assertThat(ids.size(), is(102));
+        for (int i = 0; i < ids.size(); i++) {
+            assertThat(ids.get(i), is(i + 1));
+        }
+    }
+
+    @Test
+    public void shouldFindEveryRecordOfLargerBook() throws IOException {
+        for (int i = 0; i < 1000; i++) {
+            int id = saved.addNewContact("name_" + i, "notes_" + i);
+            saved.addNewPastMeeting(saved.getContacts(id, ann), new GregorianCalendar(2000, 0, 1), "notes_" + i);
+        }
+        saved.flush();
+        MappedSnapshot snapshot = MappedSnapshot.open(file);
+
+        for (int id = 1; id <= 1002; id++) {
+            assertThat(snapshot.getContact(id), is(saved.getContacts(id).iterator().next()));
+        }
+        for (int id = 3; id <= 1002; id++) {
+            assertThat(((PastMeeting) snapshot.getMeeting(id)).getNotes(), is("notes_" + (id - 3)));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectXml() throws IOException {
+        saved.exportXml(file);
+
+        MappedSnapshot.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectDamagedIndex() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        MappedSnapshot.open(file);
+    }
+}
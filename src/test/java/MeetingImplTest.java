@@ -51,6 +51,22 @@ public class MeetingImplTest {
         assertEquals(new GregorianCalendar(2020, 01, 01), meeting2.getDate());
     }
 
+    @Test
+    public void shouldReturnDateAsEpochMillis() throws Exception {
+        assertEquals(new GregorianCalendar(2016, 01, 01).getTimeInMillis(), meeting1.getEpochMillis());
+    }
+
+    @Test
+    public void shouldNotBeChangedThroughCalendars() throws Exception {
+        Calendar date = new GregorianCalendar(2016, 01, 01);
+        Meeting meeting = new MeetingImpl(1, date, contacts1);
+
+        date.add(Calendar.YEAR, 1);
+        meeting.getDate().add(Calendar.YEAR, 1);
+
+        assertEquals(new GregorianCalendar(2016, 01, 01), meeting.getDate());
+    }
+
     @Test
     public void shouldBeEqualIfJustSameIDs() throws Exception {
         assertEquals(meeting1, meeting3);
@@ -0,0 +1,92 @@
+import org.junit.Test;
+import utils.LatencyHistogram;
+import utils.MetricsRegistry;
+import utils.OperationMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for OperationMetrics.
+ */
+public class OperationMetricsTest {
+
+    @Test
+    public void shouldCountCallsAndRecordLatency() {
+        OperationMetrics metrics = new OperationMetrics();
+
+        assertThat(metrics.time(() -> 42), is(42));
+        metrics.time(() -> {});
+
+        assertThat(metrics.getCalls(), is(2L));
+        assertThat(metrics.getErrors(), is(0L));
+        assertThat(metrics.getLatency().getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldCountFailedCallAndRethrow() {
+        OperationMetrics metrics = new OperationMetrics();
+        IllegalArgumentException thrown = new IllegalArgumentException();
+
+        try {
+            metrics.time(() -> {
+                throw thrown;
+            });
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertSame(thrown, e);
+        }
+
+        assertThat(metrics.getCalls(), is(1L));
+        assertThat(metrics.getErrors(), is(1L));
+    }
+
+    @Test
+    public void shouldCountEveryCallButTimeOnlySample() {
+        OperationMetrics metrics = new OperationMetrics();
+        metrics.setLatencySampling(16);
+
+        for (int i = 0; i < 16000; i++) {
+            metrics.time(() -> {});
+        }
+
+        assertThat(metrics.getCalls(), is(16000L));
+        long timed = metrics.getLatency().getCount();
+        assertTrue("timed " + timed, timed > 500 && timed < 1500);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectSamplingOtherThanPowerOfTwo() {
+        new OperationMetrics().setLatencySampling(10);
+    }
+
+    @Test
+    public void shouldBindUnderOperationName() {
+        OperationMetrics metrics = new OperationMetrics();
+        metrics.time(() -> {});
+        Map<String, Object> registered = new HashMap<>();
+
+        metrics.bindTo(new MetricsRegistry() {
+            public void counter(String name, LongSupplier count) {
+                registered.put(name, count.getAsLong());
+            }
+
+            public void gauge(String name, LongSupplier value) {
+                registered.put(name, value.getAsLong());
+            }
+
+            public void histogram(String name, LatencyHistogram histogram) {
+                registered.put(name, histogram);
+            }
+        }, "addNewContact");
+
+        assertThat(registered.get("addNewContact.calls"), is(1L));
+        assertThat(registered.get("addNewContact.errors"), is(0L));
+        assertSame(metrics.getLatency(), registered.get("addNewContact.latency"));
+    }
+}
@@ -0,0 +1,54 @@
+import org.junit.Before;
+import org.junit.Test;
+import utils.PrefixIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test class for PrefixIndex.
+ */
+public class PrefixIndexTest {
+    PrefixIndex index;
+    List<Integer> visited;
+
+    @Before
+    public void setUp() {
+        index = new PrefixIndex();
+        visited = new ArrayList<>();
+
+        index.add(1, "Mark Smith");
+        index.add(2, "  margaret");
+        index.add(3, "Bob Marley");
+    }
+
+    @Test
+    public void shouldVisitMatchesAlphabetically() {
+        index.forEachStartingWith("MAR", id -> visited.add(id));
+
+        assertThat(visited, is(Arrays.asList(2, 1, 3)));
+    }
+
+    @Test
+    public void shouldStopWhenActionReturnsFalse() {
+        index.forEachStartingWith("mar", id -> visited.add(id) && visited.size() < 2);
+
+        assertThat(visited, is(Arrays.asList(2, 1)));
+    }
+
+    @Test
+    public void shouldNotMatchMiddleOfWord() {
+        index.forEachStartingWith("arg", id -> visited.add(id));
+
+        assertThat(visited.size(), is(0));
+    }
+
+    @Test
+    public void shouldNormalizeName() {
+        assertThat(PrefixIndex.normalize(" Ada "), is("ada"));
+    }
+}
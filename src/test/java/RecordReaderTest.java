@@ -0,0 +1,104 @@
+import org.junit.Test;
+import utils.RecordReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for RecordReader.
+ */
+public class RecordReaderTest {
+
+    @Test
+    public void shouldSplitLinesDroppingCarriageReturnsAndBlankLines() throws IOException {
+        assertThat(readAll("a\r\n\r\n\nb\nc", false), is(list("a", "b", "c")));
+    }
+
+    @Test
+    public void shouldReturnNullForEmptyInput() throws IOException {
+        assertNull(reader("", false).next());
+    }
+
+    @Test
+    public void shouldKeepQuotedLineBreaksWhenHonouringQuotes() throws IOException {
+        assertThat(readAll("1,\"x\ny\"\n2,\"\"\"\"\n", true), is(list("1,\"x\ny\"", "2,\"\"\"\"")));
+        assertThat(readAll("1,\"x\ny\"\n", false), is(list("1,\"x", "y\"")));
+    }
+
+    @Test
+    public void shouldDecodeCharactersSplitAcrossBuffers() throws IOException {
+        StringBuilder text = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            String record = i + "\u00E4\u20AC\uD83D\uDE00";
+            expected.add(record);
+            text.append(record).append('\n');
+        }
+        assertThat(readAll(text.toString(), true), is(expected));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectUnclosedQuote() throws IOException {
+        readAll("1,\"x\n", true);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectMalformedUtf8() throws IOException {
+        new RecordReader(Channels.newChannel(new ByteArrayInputStream(new byte[]{'a', (byte) 0xC3, '\n'})), false).next();
+    }
+
+    @Test
+    public void shouldRejectRecordLongerThanMaximum() throws IOException {
+        RecordReader reader = new RecordReader(Channels.newChannel(new ByteArrayInputStream(
+                "short\n\n0123456789\n01234567890\n".getBytes(StandardCharsets.UTF_8))), false, 10);
+        assertThat(reader.next(), is("short"));
+        assertThat(reader.next(), is("0123456789"));
+        try {
+            reader.next();
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("Record 3 is longer than 10 characters"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectQuotedRecordSpanningBuffersBeyondMaximumLength() throws IOException {
+        StringBuilder text = new StringBuilder("1,\"");
+        for (int i = 0; i < 100000; i++) {
+            text.append("x\n");
+        }
+        text.append("\"\n");
+        new RecordReader(Channels.newChannel(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8))), true, 100000).next();
+    }
+
+    //HELPER METHODS
+
+    private static RecordReader reader(String text, boolean honourQuotes) {
+        return new RecordReader(Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))), honourQuotes);
+    }
+
+    private static List<String> readAll(String text, boolean honourQuotes) throws IOException {
+        RecordReader reader = reader(text, honourQuotes);
+        List<String> records = new ArrayList<>();
+        for (String record = reader.next(); record != null; record = reader.next()) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static List<String> list(String... records) {
+        List<String> list = new ArrayList<>();
+        for (String record : records) {
+            list.add(record);
+        }
+        return list;
+    }
+}
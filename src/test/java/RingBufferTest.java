@@ -0,0 +1,134 @@
+import org.junit.Test;
+import utils.RingBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for RingBuffer.
+ */
+public class RingBufferTest {
+
+    @Test
+    public void shouldDrainInOrderOfOffers() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(8);
+        buffer.offer(1);
+        buffer.offer(2);
+        buffer.offer(3);
+        List<Integer> drained = new ArrayList<>();
+
+        assertThat(buffer.drainTo(drained, 10), is(3));
+        assertThat(drained, is(Arrays.asList(1, 2, 3)));
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void shouldDrainAtMostMax() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(i);
+        }
+        List<Integer> drained = new ArrayList<>();
+
+        assertThat(buffer.drainTo(drained, 2), is(2));
+        assertThat(buffer.size(), is(3));
+        assertFalse(buffer.isEmpty());
+    }
+
+    @Test
+    public void shouldRejectWhenFullAndAcceptAgainAfterDrain() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+
+        assertFalse(buffer.offer(4));
+        buffer.drainTo(new ArrayList<>(), 1);
+        assertTrue(buffer.offer(4));
+    }
+
+    @Test
+    public void shouldWrapAround() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(2);
+        List<Integer> drained = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            buffer.offer(i);
+            buffer.drainTo(drained, 1);
+        }
+
+        assertThat(drained, is(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)));
+    }
+
+    @Test
+    public void shouldRoundCapacityUpToPowerOfTwo() {
+        assertThat(new RingBuffer<>(1).capacity(), is(1));
+        assertThat(new RingBuffer<>(5).capacity(), is(8));
+        assertThat(new RingBuffer<>(8).capacity(), is(8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptZeroCapacity() {
+        new RingBuffer<>(0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldNotAcceptNull() {
+        new RingBuffer<>(2).offer(null);
+    }
+
+    @Test
+    public void shouldNotLoseOrDuplicateConcurrentOffers() throws InterruptedException {
+        RingBuffer<Integer> buffer = new RingBuffer<>(64);
+        int producers = 4;
+        int offers = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int first = p * offers;
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = first; i < first + offers; i++) {
+                    while (!buffer.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producer.start();
+            threads.add(producer);
+        }
+
+        boolean[] seen = new boolean[producers * offers];
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        List<Integer> batch = new ArrayList<>();
+        start.countDown();
+        int received = 0;
+        while (received < seen.length) {
+            batch.clear();
+            buffer.drainTo(batch, 16);
+            for (int value : batch) {
+                assertFalse(seen[value]);
+                seen[value] = true;
+                //every producer's values arrive in the order it offered them
+                assertTrue(value > last[value / offers]);
+                last[value / offers] = value;
+            }
+            received += batch.size();
+        }
+        for (Thread producer : threads) {
+            producer.join();
+        }
+
+        assertTrue(buffer.isEmpty());
+    }
+}
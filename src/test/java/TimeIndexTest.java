@@ -0,0 +1,102 @@
+import org.junit.Before;
+import org.junit.Test;
+import utils.TimeIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for TimeIndex.
+ */
+public class TimeIndexTest {
+    TimeIndex index;
+    List<Integer> visited;
+
+    @Before
+    public void setUp() {
+        index = new TimeIndex();
+        visited = new ArrayList<>();
+
+        index.add(100, 1);
+        index.add(300, 3);
+        index.add(200, 2);
+        index.add(200, 4);
+    }
+
+    @Test
+    public void shouldVisitRangeLatestFirst() {
+        index.forEachBetween(100, 300, visited::add);
+
+        assertThat(visited, is(Arrays.asList(2, 4, 1)));
+    }
+
+    @Test
+    public void shouldVisitNothingForEmptyRange() {
+        index.forEachBetween(200, 200, visited::add);
+
+        assertTrue(visited.isEmpty());
+    }
+
+    @Test
+    public void shouldVisitStrictlyAfter() {
+        index.forEachAfter(200, visited::add);
+
+        assertThat(visited, is(Arrays.asList(3)));
+    }
+
+    @Test
+    public void shouldVisitStrictlyBefore() {
+        index.forEachBefore(300, visited::add);
+
+        assertThat(visited, is(Arrays.asList(2, 4, 1)));
+    }
+
+    @Test
+    public void shouldPollUpToTimeEarliestFirst() {
+        index.pollUpTo(200, visited::add);
+
+        assertThat(visited, is(Arrays.asList(1, 2, 4)));
+        assertThat(index.size(), is(1));
+        assertThat(index.earliest(), is(300L));
+    }
+
+    @Test
+    public void shouldReturnMaxValueAsEarliestOfEmptyIndex() {
+        index.clear();
+
+        assertThat(index.earliest(), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void shouldRemoveSingleIdFromSharedTime() {
+        assertTrue(index.remove(200, 2));
+        assertFalse(index.remove(200, 2));
+
+        index.forEachBetween(0, 1000, visited::add);
+
+        assertThat(visited, is(Arrays.asList(3, 4, 1)));
+        assertThat(index.size(), is(3));
+    }
+
+    @Test
+    public void shouldKeepOrderOfManyIdsSharingTime() {
+        List<Integer> expected = new ArrayList<>(Arrays.asList(2, 4));
+        for (int id = 10; id < 1000; id++) {
+            index.add(200, id);
+            expected.add(id);
+        }
+        assertTrue(index.remove(200, 500));
+        expected.remove(Integer.valueOf(500));
+
+        index.forEachBetween(200, 201, visited::add);
+
+        assertThat(visited, is(expected));
+        assertThat(index.size(), is(expected.size() + 2));
+    }
+}
@@ -0,0 +1,65 @@
+import org.junit.Before;
+import org.junit.Test;
+import utils.TrigramIndex;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for TrigramIndex.
+ */
+public class TrigramIndexTest {
+    TrigramIndex index;
+    Set<Integer> candidates;
+
+    @Before
+    public void setUp() {
+        index = new TrigramIndex();
+        candidates = new HashSet<>();
+
+        index.add(1, "Margaret");
+        index.add(2, "Mark");
+        index.add(3, "Bob");
+        index.add(4, "banana");
+    }
+
+    @Test
+    public void shouldReturnCandidatesSharingAllGrams() {
+        index.forEachCandidate("mar", candidates::add);
+
+        assertTrue(candidates.containsAll(new HashSet<>(Arrays.asList(1, 2))));
+        assertFalse(candidates.contains(3));
+    }
+
+    @Test
+    public void shouldIgnoreCaseOfGrams() {
+        index.forEachCandidate("BOB", candidates::add);
+
+        assertTrue(candidates.contains(3));
+    }
+
+    @Test
+    public void shouldVisitRepeatedGramOnce() {
+        index.forEachCandidate("ana", candidates::add);
+
+        assertThat(candidates.size(), is(1));
+    }
+
+    @Test
+    public void shouldReturnNoCandidatesIfAnyGramIsUnknown() {
+        index.forEachCandidate("markz", candidates::add);
+
+        assertTrue(candidates.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectQueryShorterThanGram() {
+        index.forEachCandidate("ma", candidates::add);
+    }
+}
@@ -1,6 +1,8 @@
 import org.junit.Test;
 import utils.Utils;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashSet;
@@ -63,6 +65,13 @@ public class UtilsTest {
         assertThat(newID, is(0));
     }
 
+    @Test
+    public void shouldFindPartIgnoringCase() {
+        assertTrue(Utils.containsIgnoreCase("Name_Future", "fUTURE"));
+        assertTrue(Utils.containsIgnoreCase("name", ""));
+        assertFalse(Utils.containsIgnoreCase("name", "names"));
+    }
+
     @Test
     public void shouldReturnTrueForFutureDate() throws Exception {
         Calendar tomorrow = Calendar.getInstance();
@@ -76,4 +85,18 @@ public class UtilsTest {
         now.roll(Calendar.MONTH, false);
         assertFalse(Utils.isFuture(now));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldMoveFileOverTarget() throws Exception {
+        Path directory = Files.createTempDirectory("utils-test");
+        Path source = Files.write(directory.resolve("source"), new byte[]{1, 2});
+        Path target = Files.write(directory.resolve("target"), new byte[]{3});
+
+        Utils.moveAtomically(source, target);
+
+        assertFalse(Files.exists(source));
+        assertThat(Files.readAllBytes(target), is(new byte[]{1, 2}));
+        Files.delete(target);
+        Files.delete(directory);
+    }
+}
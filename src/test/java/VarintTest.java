@@ -0,0 +1,57 @@
+import org.junit.Test;
+import utils.Varint;
+
+import java.io.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test class for Varint.
+ */
+public class VarintTest {
+
+    @Test
+    public void shouldWriteSmallIntInOneByte() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Varint.writeInt(new DataOutputStream(bytes), 127);
+
+        assertThat(bytes.size(), is(1));
+    }
+
+    @Test
+    public void shouldReadBackInts() throws IOException {
+        int[] values = {0, 1, 127, 128, 300, 16384, Integer.MAX_VALUE, -1};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int value : values) {
+            Varint.writeInt(out, value);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int value : values) {
+            assertThat(Varint.readInt(in), is(value));
+        }
+    }
+
+    @Test
+    public void shouldReadBackLongs() throws IOException {
+        long[] values = {0, -1, 1, Long.MIN_VALUE, Long.MAX_VALUE, System.currentTimeMillis(), -62135596800000L};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (long value : values) {
+            Varint.writeLong(out, value);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (long value : values) {
+            assertThat(Varint.readLong(in), is(value));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectTooLongEncoding() throws IOException {
+        byte[] bytes = {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01};
+        Varint.readInt(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+}
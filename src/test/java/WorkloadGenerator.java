@@ -0,0 +1,225 @@
+import interfaces.Contact;
+import interfaces.NewContact;
+import interfaces.NewMeeting;
+import utils.ManualClock;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates realistic contact books, the same book for the same seed.
+ *
+ * Names are made of random syllables, so substring searches match as unevenly as real names.
+ * Participation in meetings follows a Zipf distribution: a few contacts attend many meetings
+ * and most attend few. Meetings start on quarter hours within the horizon around a fixed "now",
+ * past meetings have notes whose length is log-normally distributed.
+ */
+public class WorkloadGenerator {
+    static final long NOW = 1893456000000L; //2030-01-01 UTC
+    private static final long SLOT = TimeUnit.MINUTES.toMillis(15);
+    private static final String[] SYLLABLES = {"an", "ber", "ca", "dor", "el", "fi", "gan", "ha", "is", "jo",
+            "ka", "li", "mar", "no", "ol", "pe", "qui", "ro", "sa", "ta", "ul", "vi", "wen", "xa", "yo", "zel"};
+    private static final String[] WORDS = {"call", "about", "budget", "follow", "up", "next", "week", "met",
+            "agreed", "offer", "contract", "review", "lunch", "project", "plan", "sent", "notes", "deal"};
+
+    private final long seed;
+    private int contacts = 10_000;
+    private int meetings = 100_000;
+    private double pastRatio = 0.5;
+    private double zipfExponent = 1.0;
+    private int maxParticipants = 5;
+    private int meanNotesLength = 60;
+    private int horizonDays = 365;
+
+    public WorkloadGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public void setContacts(int contacts) {
+        if (contacts < 1) throw new IllegalArgumentException();
+        this.contacts = contacts;
+    }
+
+    public void setMeetings(int meetings) {
+        if (meetings < 0) throw new IllegalArgumentException();
+        this.meetings = meetings;
+    }
+
+    /**
+     * @param pastRatio share of past meetings, between 0 and 1
+     */
+    public void setPastRatio(double pastRatio) {
+        if (!(pastRatio >= 0 && pastRatio <= 1)) throw new IllegalArgumentException();
+        this.pastRatio = pastRatio;
+    }
+
+    /**
+     * @param zipfExponent skew of participation, 0 for uniform, around 1 for real books
+     */
+    public void setZipfExponent(double zipfExponent) {
+        if (zipfExponent < 0) throw new IllegalArgumentException();
+        this.zipfExponent = zipfExponent;
+    }
+
+    public void setMaxParticipants(int maxParticipants) {
+        if (maxParticipants < 1) throw new IllegalArgumentException();
+        this.maxParticipants = maxParticipants;
+    }
+
+    public void setMeanNotesLength(int meanNotesLength) {
+        if (meanNotesLength < 1) throw new IllegalArgumentException();
+        this.meanNotesLength = meanNotesLength;
+    }
+
+    public void setHorizonDays(int horizonDays) {
+        if (horizonDays < 1) throw new IllegalArgumentException();
+        this.horizonDays = horizonDays;
+    }
+
+    public int getContacts() {
+        return contacts;
+    }
+
+    public int getMeetings() {
+        return meetings;
+    }
+
+    /**
+     * Creates manager with a clock standing at "now" and fills it with the book.
+     * Contact IDs are 1 to the number of contacts, ranked by popularity.
+     *
+     * @return filled manager
+     */
+    public ContactManagerImpl generate() {
+        ContactManagerImpl cm = new ContactManagerImpl();
+        cm.setClock(new ManualClock(NOW));
+        Random random = new Random(seed);
+
+        List<NewContact> newContacts = new ArrayList<>(contacts);
+        for (int i = 0; i < contacts; i++) {
+            newContacts.add(new NewContact(name(random), notes(random)));
+        }
+        Contact[] byId = new Contact[contacts + 1];
+        for (int id : cm.addNewContacts(newContacts)) {
+            byId[id] = cm.getContacts(id).iterator().next();
+        }
+
+        Zipf popularity = zipf();
+        List<NewMeeting> newMeetings = new ArrayList<>(meetings);
+        for (int i = 0; i < meetings; i++) {
+            Set<Contact> participants = new HashSet<>();
+            int count = 1 + random.nextInt(maxParticipants);
+            for (int j = 0; j < count; j++) {
+                participants.add(byId[popularity.next(random)]);
+            }
+            if (random.nextDouble() < pastRatio) {
+                newMeetings.add(NewMeeting.past(participants, pastDate(random), notes(random)));
+            } else {
+                newMeetings.add(NewMeeting.future(participants, futureDate(random)));
+            }
+        }
+        cm.addMeetings(newMeetings);
+        return cm;
+    }
+
+    /**
+     * Returns sampler of contact IDs following the participation of the generated book.
+     *
+     * @return sampler of IDs from 1 to the number of contacts
+     */
+    public Zipf zipf() {
+        return new Zipf(contacts, zipfExponent);
+    }
+
+    /**
+     * Returns random quarter hour after "now" within the horizon.
+     */
+    public Calendar futureDate(Random random) {
+        return calendar(NOW + SLOT * (1 + random.nextInt(slots())));
+    }
+
+    /**
+     * Returns random quarter hour before "now" within the horizon.
+     */
+    public Calendar pastDate(Random random) {
+        return calendar(NOW - SLOT * (1 + random.nextInt(slots())));
+    }
+
+    /**
+     * Returns random day within the horizon on either side of "now".
+     */
+    public Calendar day(Random random) {
+        return calendar(NOW + TimeUnit.DAYS.toMillis(random.nextInt(2 * horizonDays) - horizonDays));
+    }
+
+    /**
+     * Returns name of two words of two to three syllables each, e.g. "Kamar Olpe".
+     */
+    public String name(Random random) {
+        return word(random) + " " + word(random);
+    }
+
+    /**
+     * Returns notes of log-normally distributed length around the mean.
+     */
+    public String notes(Random random) {
+        //sigma 0.75 gives a long tail, mu is chosen so that the mean is as configured
+        double sigma = 0.75;
+        double mu = Math.log(meanNotesLength) - sigma * sigma / 2;
+        int length = Math.max(1, (int) Math.round(Math.exp(mu + sigma * random.nextGaussian())));
+
+        StringBuilder notes = new StringBuilder(length + 10);
+        while (notes.length() < length) {
+            if (notes.length() > 0) notes.append(' ');
+            notes.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return notes.toString();
+    }
+
+    //HELPER METHODS
+
+    private int slots() {
+        return (int) (TimeUnit.DAYS.toMillis(horizonDays) / SLOT);
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(2);
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+        return word.toString();
+    }
+
+    private static Calendar calendar(long millis) {
+        Calendar date = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        date.setTimeInMillis(millis);
+        return date;
+    }
+
+    /**
+     * Samples ranks from 1 to n with probability proportional to 1 / rank^exponent,
+     * by binary search in the cumulative distribution.
+     */
+    public static class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 1; rank <= n; rank++) {
+                sum += 1 / Math.pow(rank, exponent);
+                cumulative[rank - 1] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        public int next(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length, ((index < 0) ? -index - 1 : index) + 1);
+        }
+    }
+}
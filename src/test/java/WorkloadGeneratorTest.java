@@ -0,0 +1,82 @@
+import interfaces.PastMeeting;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for WorkloadGenerator and LoadDriver.
+ */
+public class WorkloadGeneratorTest {
+
+    @Test
+    public void shouldGenerateBookOfRequestedSize() {
+        WorkloadGenerator generator = smallGenerator(1);
+
+        ContactManagerImpl cm = generator.generate();
+
+        assertThat(cm.getContacts("").size(), is(200));
+        assertThat(cm.getMeetings().size(), is(1000));
+    }
+
+    @Test
+    public void shouldGenerateSameBookForSameSeed() {
+        ContactManagerImpl first = smallGenerator(7).generate();
+        ContactManagerImpl second = smallGenerator(7).generate();
+
+        for (int id = 1; id <= 200; id++) {
+            assertThat(first.getContacts(id).iterator().next().getName(), is(second.getContacts(id).iterator().next().getName()));
+        }
+        assertThat(first.getMeeting(500).getEpochMillis(), is(second.getMeeting(500).getEpochMillis()));
+    }
+
+    @Test
+    public void shouldRespectPastRatio() {
+        WorkloadGenerator generator = smallGenerator(1);
+        generator.setPastRatio(0.8);
+
+        long past = generator.generate().getMeetings().stream().filter(meeting -> meeting instanceof PastMeeting).count();
+
+        assertTrue(past > 740 && past < 860);
+    }
+
+    @Test
+    public void shouldMakeLowRanksPopular() {
+        WorkloadGenerator.Zipf zipf = smallGenerator(1).zipf();
+        Random random = new Random(1);
+        int[] hits = new int[201];
+        for (int i = 0; i < 100_000; i++) {
+            hits[zipf.next(random)]++;
+        }
+
+        assertTrue(hits[1] > 10 * hits[20]);
+        assertTrue(hits[1] > 0 && hits[200] > 0);
+        assertThat(hits[0], is(0));
+    }
+
+    @Test
+    public void shouldRunEveryOperationWithoutErrors() throws InterruptedException {
+        WorkloadGenerator generator = smallGenerator(1);
+        LoadDriver driver = new LoadDriver(generator, 2, 2000, 100, 30, 1);
+
+        long count = driver.run(generator.generate()).values().stream().mapToLong(histogram -> histogram.getCount()).sum();
+
+        assertThat(count, is(4000L));
+        assertThat(driver.getErrors(), is(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectWritePercentAbove100() {
+        new LoadDriver(smallGenerator(1), 1, 1, 1, 101, 1);
+    }
+
+    private WorkloadGenerator smallGenerator(long seed) {
+        WorkloadGenerator generator = new WorkloadGenerator(seed);
+        generator.setContacts(200);
+        generator.setMeetings(1000);
+        return generator;
+    }
+}
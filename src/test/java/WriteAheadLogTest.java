@@ -0,0 +1,538 @@
+import interfaces.Contact;
+import interfaces.NewContact;
+import interfaces.NewMeeting;
+import interfaces.PastMeeting;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for WriteAheadLog and recovery of a contact manager from snapshot plus log.
+ */
+public class WriteAheadLogTest {
+    private static final long NO_COMPACTION = Long.MAX_VALUE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    Path store;
+    Path logFile;
+    ContactManagerImpl cm;
+
+    @Before
+    public void setUp() throws IOException {
+        store = folder.getRoot().toPath().resolve("contacts.txt");
+        logFile = folder.getRoot().toPath().resolve("contacts.log");
+        cm = new ContactManagerImpl(store);
+        cm.openLog(logFile, 0, NO_COMPACTION);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cm.closeLog();
+    }
+
+    @Test
+    public void shouldRecoverMutationsFromLogAlone() throws IOException {
+        int ann = cm.addNewContact("Ann", "likes tea");
+        int bob = cm.addNewContact("Bob", "notes");
+        int future = cm.addFutureMeeting(cm.getContacts(ann, bob), new GregorianCalendar(2100, 0, 1));
+        cm.addNewPastMeeting(cm.getContacts(bob), new GregorianCalendar(2000, 0, 1), "went well");
+        cm.getContacts(ann).iterator().next().addNotes("and coffee");
+        cm.closeLog();
+
+        ContactManagerImpl recovered = recover();
+
+        Contact restoredAnn = recovered.getContacts(ann).iterator().next();
+        List<PastMeeting> past = recovered.getPastMeetingListFor(recovered.getContacts(bob).iterator().next());
+        assertThat(restoredAnn.getNotes(), is("likes tea and coffee"));
+        assertThat(recovered.getFutureMeeting(future).getContacts().size(), is(2));
+        assertThat(past.get(0).getNotes(), is("went well"));
+        assertThat(recovered.addNewContact("Carol", "notes"), is(3));
+    }
+
+    @Test
+    public void shouldRecoverMeetingNotes() throws IOException {
+        int ann = cm.addNewContact("Ann", "notes");
+        cm.addNewPastMeeting(cm.getContacts(ann), new GregorianCalendar(2000, 0, 1), "first");
+        cm.addMeetingNotes(1, "second");
+        cm.closeLog();
+
+        assertThat(recover().getPastMeeting(1).getNotes(), is("first second"));
+    }
+
+    @Test
+    public void shouldReplayLogOverSnapshot() throws IOException {
+        int ann = cm.addNewContact("Ann", "notes");
+        cm.flush();
+        cm.addNewContact("Bob", "notes");
+        cm.addNewPastMeeting(cm.getContacts(ann), new GregorianCalendar(2000, 0, 1), "went well");
+        cm.closeLog();
+
+        ContactManagerImpl recovered = recover();
+
+        assertThat(recovered.getContacts("").size(), is(2));
+        assertThat(recovered.getMeeting(1), instanceOf(PastMeeting.class));
+    }
+
+    @Test
+    public void shouldReplayRecordsAlreadyInSnapshotHarmlessly() throws IOException {
+        int ann = cm.addNewContact("Ann", "notes");
+        cm.getContacts(ann).iterator().next().addNotes("more");
+        cm.addNewPastMeeting(cm.getContacts(ann), new GregorianCalendar(2000, 0, 1), "first");
+        cm.addMeetingNotes(1, "second");
+        cm.flush();
+        cm.closeLog();
+
+        ContactManagerImpl recovered = recover();
+
+        assertThat(recovered.getContacts("").size(), is(1));
+        assertThat(recovered.getContacts(ann).iterator().next().getNotes(), is("notes more"));
+        assertThat(recovered.getPastMeeting(1).getNotes(), is("first second"));
+    }
+
+    @Test
+    public void shouldDropTornRecord() throws IOException {
+        cm.addNewContact("Ann", "notes");
+        cm.addNewContact("Bob", "notes");
+        cm.closeLog();
+        try (RandomAccessFile file = new RandomAccessFile(logFile.toFile(), "rw")) {
+            file.setLength(file.length() - 2);
+        }
+
+        ContactManagerImpl recovered = recover();
+
+        assertThat(recovered.getContacts("").size(), is(1));
+        assertThat(recovered.addNewContact("Carol", "notes"), is(2));
+        recovered.closeLog();
+        assertThat(recover().getContacts("").size(), is(2));
+    }
+
+    @Test
+    public void shouldRecoverBatches() throws IOException {
+        int[] contactIds = cm.addNewContacts(Arrays.asList(new NewContact("Ann", "notes"), new NewContact("Bob", "notes")));
+        Set<Contact> participants = cm.getContacts(contactIds);
+        int[] meetingIds = cm.addMeetings(Arrays.asList(
+                NewMeeting.future(participants, new GregorianCalendar(2100, 0, 1)),
+                NewMeeting.past(participants, new GregorianCalendar(2000, 0, 1), "went well")));
+        cm.closeLog();
+
+        ContactManagerImpl recovered = recover();
+
+        assertThat(recovered.getContacts("").size(), is(2));
+        assertThat(recovered.getFutureMeeting(meetingIds[0]).getContacts().size(), is(2));
+        assertThat(recovered.getPastMeeting(meetingIds[1]).getNotes(), is("went well"));
+        assertThat(recovered.addNewContact("Carol", "notes"), is(3));
+    }
+
+    @Test
+    public void shouldDropTornBatchAsWhole() throws IOException {
+        cm.addNewContact("Ann", "notes");
+        cm.addNewContacts(Arrays.asList(new NewContact("Bob", "notes"), new NewContact("Carol", "notes")));
+        cm.closeLog();
+        try (RandomAccessFile file = new RandomAccessFile(logFile.toFile(), "rw")) {
+            file.setLength(file.length() - 2);
+        }
+
+        assertThat(recover().getContacts("").size(), is(1));
+    }
+
+    @Test
+    public void shouldDropCorruptRecord() throws IOException {
+        cm.addNewContact("Ann", "notes");
+        cm.closeLog();
+        try (RandomAccessFile file = new RandomAccessFile(logFile.toFile(), "rw")) {
+            file.seek(file.length() - 1);
+            file.write('x');
+        }
+
+        assertThat(recover().getContacts("").size(), is(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectFileWhichIsNotLog() throws IOException {
+        Path other = folder.newFile("other.log").toPath();
+        Files.write(other, "<xml/>".getBytes("UTF-8"));
+
+        new ContactManagerImpl().openLog(other, 0, NO_COMPACTION);
+    }
+
+    @Test
+    public void shouldCompactIntoSnapshot() throws IOException {
+        int ann = cm.addNewContact("Ann", "notes");
+        long before = Files.size(logFile);
+
+        cm.compact();
+        cm.addNewContact("Bob", "notes");
+        cm.closeLog();
+
+        assertTrue(Files.size(logFile) < before + 20);
+        assertThat(recover().getContacts("").size(), is(2));
+        assertTrue(Files.exists(store));
+        assertThat(ContactManagerImpl.load(store).getContacts(ann).size(), is(1));
+    }
+
+    @Test
+    public void shouldCompactWhenLogGrows() throws IOException {
+        cm.closeLog();
+        cm.setFlushExecutor(Runnable::run);
+        cm.openLog(logFile, 0, 200);
+        for (int i = 0; i < 50; i++) {
+            cm.addNewContact("name_" + i, "notes_" + i);
+        }
+
+        assertTrue(Files.size(logFile) < 200);
+        assertTrue(Files.exists(store));
+        cm.closeLog();
+        assertThat(recover().getContacts("").size(), is(50));
+    }
+
+    @Test
+    public void shouldNotWaitForCompactionOnWrite() throws IOException {
+        cm.closeLog();
+        List<Runnable> compactions = new ArrayList<>();
+        cm.setFlushExecutor(compactions::add);
+        cm.openLog(logFile, 0, 200);
+        for (int i = 0; i < 50; i++) {
+            cm.addNewContact("name_" + i, "notes_" + i);
+        }
+
+        //writes went on while the compaction was waiting, without requesting another one
+        assertThat(compactions.size(), is(1));
+        assertFalse(Files.exists(store));
+        assertTrue(Files.size(logFile) > 200);
+
+        compactions.get(0).run();
+        assertTrue(Files.size(logFile) < 200);
+        cm.closeLog();
+        assertThat(recover().getContacts("").size(), is(50));
+    }
+
+    @Test
+    public void shouldKeepRecordsAfterDroppedPosition() throws IOException {
+        Path path = folder.newFile().toPath();
+        WriteAheadLog log = WriteAheadLog.open(path, 0, new IgnoreReplay());
+        log.appendContact(1, "name", "notes");
+        long position = log.size();
+        log.appendContact(2, "name", "notes");
+        log.dropUpTo(position);
+        log.awaitDurable(log.appendContact(3, "name", "notes"));
+        log.close();
+
+        List<Integer> replayed = new ArrayList<>();
+        WriteAheadLog.open(path, 0, new IgnoreReplay() {
+            public void contact(int id, String name, String notes) {
+                replayed.add(id);
+            }
+        }).close();
+
+        assertThat(replayed, is(Arrays.asList(2, 3)));
+    }
+
+    @Test
+    public void shouldCutOffFrameOfFailedWrite() throws IOException {
+        Path path = folder.newFile().toPath();
+        TornWriteChannel channel = new TornWriteChannel(FileChannel.open(path, READ, WRITE));
+        WriteAheadLog log = WriteAheadLog.open(path, channel, 0, new IgnoreReplay());
+        log.appendContact(1, "name", "notes");
+        channel.tearNextWrite = true;
+        try {
+            log.appendContact(2, "name", "notes");
+            fail();
+        } catch (IOException e) {
+            //expected
+        }
+        log.awaitDurable(log.appendContact(3, "name", "notes"));
+        log.close();
+
+        assertThat(Files.size(path), is(log.size()));
+        List<Integer> replayed = new ArrayList<>();
+        WriteAheadLog.open(path, 0, new IgnoreReplay() {
+            public void contact(int id, String name, String notes) {
+                replayed.add(id);
+            }
+        }).close();
+        assertThat(replayed, is(Arrays.asList(1, 3)));
+    }
+
+    @Test
+    public void shouldNotLoseWriteCompactedWhileFlushing() throws Exception {
+        List<NewContact> book = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            book.add(new NewContact("name_" + i, "notes_" + i));
+        }
+        cm.addNewContacts(book);
+
+        for (int round = 0; round < 5; round++) {
+            //the flush copies the book before the write and may replace the store after compaction
+            CompletableFuture<Void> flush = cm.flushAsync();
+            Thread.sleep(1);
+            int id = cm.addNewContact("written_" + round, "notes");
+            cm.compact();
+            flush.join();
+
+            Path logCopy = folder.newFile().toPath();
+            Files.copy(logFile, logCopy, StandardCopyOption.REPLACE_EXISTING);
+            ContactManagerImpl recovered = ContactManagerImpl.load(store);
+            recovered.openLog(logCopy, 0, NO_COMPACTION);
+            assertThat(recovered.getContacts("written_" + round).size(), is(1));
+            assertThat(recovered.getContacts(id).size(), is(1));
+            recovered.closeLog();
+        }
+    }
+
+    @Test
+    public void shouldForceOnceForEveryWriteWithoutConcurrency() throws IOException {
+        WriteAheadLog log = WriteAheadLog.open(folder.newFile().toPath(), 0, new IgnoreReplay());
+        for (int i = 0; i < 10; i++) {
+            log.awaitDurable(log.appendContact(i + 1, "name", "notes"));
+        }
+
+        assertThat(log.getSyncCount(), is(10L));
+        log.close();
+    }
+
+    @Test
+    public void shouldAppendBatchAsOneRecord() throws IOException {
+        Path path = folder.newFile().toPath();
+        WriteAheadLog log = WriteAheadLog.open(path, 0, new IgnoreReplay());
+        WriteAheadLog.Batch batch = new WriteAheadLog.Batch();
+        for (int i = 0; i < 100; i++) {
+            batch.addContact(i + 1, "name", "notes");
+        }
+        batch.addMeeting(1, 42, new int[] {1, 2}, null);
+        log.awaitDurable(log.append(batch));
+        log.close();
+
+        List<Integer> replayed = new ArrayList<>();
+        WriteAheadLog.open(path, 0, new IgnoreReplay() {
+            public void contact(int id, String name, String notes) {
+                replayed.add(id);
+            }
+
+            public void meeting(int id, long date, int[] participants, String notes) {
+                replayed.add(-id);
+            }
+        }).close();
+
+        assertThat(batch.size(), is(101));
+        assertThat(log.getSyncCount(), is(1L));
+        assertThat(replayed.size(), is(101));
+        assertThat(replayed.get(99), is(100));
+        assertThat(replayed.get(100), is(-1));
+    }
+
+    @Test
+    public void shouldGroupConcurrentWrites() throws Exception {
+        int threads = 8;
+        int writes = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < writes; i++) {
+                        cm.addNewContact("name", "notes");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        cm.closeLog();
+
+        assertThat(recover().getContacts("").size(), is(threads * writes));
+    }
+
+    @Test
+    public void shouldForceAfterResetWhileOthersCommit() throws Exception {
+        WriteAheadLog log = WriteAheadLog.open(folder.newFile().toPath(), 0, new IgnoreReplay());
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread writer = new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        log.awaitDurable(log.appendContact(1, "name", "notes"));
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        try {
+            for (int i = 0; i < 1000; i++) {
+                log.reset();
+                long forced = log.getSyncCount();
+                log.awaitDurable(log.appendContact(2, "name", "notes"));
+                //no force running before the append covered it, so a new one must have happened
+                assertTrue(log.getSyncCount() > forced);
+            }
+        } finally {
+            stop.set(true);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            log.close();
+        }
+    }
+
+    @Test
+    public void shouldNotWaitWithBackgroundSync() throws IOException {
+        WriteAheadLog log = WriteAheadLog.open(folder.newFile().toPath(), 60_000, new IgnoreReplay());
+        log.awaitDurable(log.appendContact(1, "name", "notes"));
+
+        assertThat(log.getSyncCount(), is(0L));
+        log.close();
+        assertThat(log.getSyncCount(), is(1L));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotOpenSecondLog() throws IOException {
+        cm.openLog(logFile, 0, NO_COMPACTION);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptNegativeSyncInterval() throws IOException {
+        new ContactManagerImpl().openLog(logFile, -1, NO_COMPACTION);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void shouldNotAcceptNullLogPath() throws IOException {
+        new ContactManagerImpl().openLog(null, 0, NO_COMPACTION);
+    }
+
+    private ContactManagerImpl recover() throws IOException {
+        ContactManagerImpl recovered = ContactManagerImpl.load(store);
+        recovered.openLog(logFile, 0, NO_COMPACTION);
+        return recovered;
+    }
+
+    /**
+     * File channel writing only half of the buffer and failing then, when asked to.
+     */
+    private static class TornWriteChannel extends FileChannel {
+        private final FileChannel file;
+        boolean tearNextWrite;
+
+        private TornWriteChannel(FileChannel file) {
+            this.file = file;
+        }
+
+        public int write(ByteBuffer src) throws IOException {
+            if (!tearNextWrite) return file.write(src);
+            tearNextWrite = false;
+            ByteBuffer half = src.duplicate();
+            half.limit(src.position() + src.remaining() / 2);
+            file.write(half);
+            throw new IOException("No space left on device");
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            return file.read(dst);
+        }
+
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return file.read(dsts, offset, length);
+        }
+
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return file.write(srcs, offset, length);
+        }
+
+        public long position() throws IOException {
+            return file.position();
+        }
+
+        public FileChannel position(long newPosition) throws IOException {
+            file.position(newPosition);
+            return this;
+        }
+
+        public long size() throws IOException {
+            return file.size();
+        }
+
+        public FileChannel truncate(long size) throws IOException {
+            file.truncate(size);
+            return this;
+        }
+
+        public void force(boolean metaData) throws IOException {
+            file.force(metaData);
+        }
+
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return file.transferTo(position, count, target);
+        }
+
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return file.transferFrom(src, position, count);
+        }
+
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return file.read(dst, position);
+        }
+
+        public int write(ByteBuffer src, long position) throws IOException {
+            return file.write(src, position);
+        }
+
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return file.map(mode, position, size);
+        }
+
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return file.lock(position, size, shared);
+        }
+
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return file.tryLock(position, size, shared);
+        }
+
+        protected void implCloseChannel() throws IOException {
+            file.close();
+        }
+    }
+
+    /**
+     * Replay of a new, empty log.
+     */
+    private static class IgnoreReplay implements WriteAheadLog.Replay {
+        public void contact(int id, String name, String notes) {}
+        public void contactNotes(int id, String notes) {}
+        public void meeting(int id, long date, int[] participants, String notes) {}
+        public void meetingNotes(int id, String notes) {}
+    }
+}
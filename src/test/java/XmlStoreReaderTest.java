@@ -0,0 +1,186 @@
+import interfaces.Contact;
+import interfaces.FutureMeeting;
+import interfaces.Meeting;
+import interfaces.PastMeeting;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for XmlStoreReader.
+ */
+public class XmlStoreReaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    Path file;
+    ContactManagerImpl saved;
+    int ann, bob, futureId;
+
+    @Before
+    public void setUp() throws IOException {
+        file = folder.getRoot().toPath().resolve("contacts.txt");
+        saved = new ContactManagerImpl(file);
+        ann = saved.addNewContact("Ann <&>", "likes tea");
+        bob = saved.addNewContact("Bob", "notes");
+        futureId = saved.addFutureMeeting(saved.getContacts(ann, bob), new GregorianCalendar(2100, 0, 1));
+        saved.addNewPastMeeting(saved.getContacts(ann), new GregorianCalendar(2000, 0, 1, 10, 30), "went well");
+        saved.flush();
+    }
+
+    @Test
+    public void shouldRestoreContacts() throws IOException {
+        ContactManagerImpl cm = ContactManagerImpl.load(file);
+
+        Contact restored = cm.getContacts(ann).iterator().next();
+        assertThat(restored.getName(), is("Ann <&>"));
+        assertThat(restored.getNotes(), is("likes tea"));
+        assertThat(cm.getContacts("").size(), is(2));
+    }
+
+    @Test
+    public void shouldRestoreMeetingsWithTypesAndNotes() throws IOException {
+        ContactManagerImpl cm = ContactManagerImpl.load(file);
+        Contact annContact = cm.getContacts(ann).iterator().next();
+
+        FutureMeeting future = cm.getFutureMeeting(futureId);
+        List<PastMeeting> past = cm.getPastMeetingListFor(annContact);
+
+        assertThat(future.getContacts().size(), is(2));
+        assertThat(past.size(), is(1));
+        assertThat(past.get(0).getNotes(), is("went well"));
+        assertThat(past.get(0).getDate().getTimeInMillis(), is(new GregorianCalendar(2000, 0, 1, 10, 30).getTimeInMillis()));
+        assertThat(cm.getMeeting(futureId), instanceOf(FutureMeeting.class));
+    }
+
+    @Test
+    public void shouldRebuildIndexesAndIdAllocation() throws IOException {
+        ContactManagerImpl cm = ContactManagerImpl.load(file);
+        Contact bobContact = cm.getContacts(bob).iterator().next();
+
+        assertThat(cm.getContacts("Bo").size(), is(1));
+        assertThat(cm.suggestContacts("ann", 5).size(), is(1));
+        assertThat(cm.getFutureMeetingList(bobContact).size(), is(1));
+        assertThat(cm.addNewContact("Carol", "notes"), is(3));
+        assertThat(cm.addFutureMeeting(cm.getContacts(bob), new GregorianCalendar(2100, 0, 1)), is(3));
+    }
+
+    @Test
+    public void shouldShareParticipantsWithContacts() throws IOException {
+        ContactManagerImpl cm = ContactManagerImpl.load(file);
+
+        Contact participant = cm.getMeeting(futureId).getContacts().iterator().next();
+        Contact contact = cm.getContacts(participant.getId()).iterator().next();
+
+        assertSame(contact, participant);
+    }
+
+    @Test
+    public void shouldReportCountsAndTime() throws IOException {
+        XmlStoreReader reader = new XmlStoreReader(file);
+        reader.readInto(new ContactManagerImpl());
+
+        assertThat(reader.getContactCount(), is(2));
+        assertThat(reader.getMeetingCount(), is(2));
+        assertTrue(reader.getPeakHeapBytes() > 0);
+        assertTrue(reader.report().startsWith("Loaded 2 contacts and 2 meetings"));
+    }
+
+    @Test
+    public void shouldReadLegacyMeetingElements() throws IOException {
+        String xml = "<contactManager><contacts><contact id=\"4\"><name>Dan</name><notes>n</notes></contact></contacts>"
+                + "<meetings><meeting id=\"7\"><date>2000-01-01T00:00:00Z</date>"
+                + "<participants><contact id=\"4\"><name>Dan</name></contact></participants></meeting></meetings></contactManager>";
+        Files.write(file, xml.getBytes(StandardCharsets.UTF_8));
+
+        ContactManagerImpl cm = ContactManagerImpl.load(file);
+        Meeting meeting = cm.getMeeting(7);
+
+        assertThat(meeting.getContacts().size(), is(1));
+        assertThat(cm.getPastMeeting(7).getNotes(), is(""));
+    }
+
+    @Test
+    public void shouldReturnEmptyManagerIfFileMissing() throws IOException {
+        ContactManagerImpl cm = ContactManagerImpl.load(folder.getRoot().toPath().resolve("missing.txt"));
+
+        assertTrue(cm.getContacts("").isEmpty());
+        assertThat(cm.addNewContact("first", "notes"), is(1));
+    }
+
+    @Test
+    public void shouldNotResolveExternalEntities() throws IOException {
+        Path secret = folder.newFile("secret.txt").toPath();
+        Files.write(secret, "top secret".getBytes(StandardCharsets.UTF_8));
+        String xml = "<?xml version=\"1.0\"?><!DOCTYPE contactManager [<!ENTITY secret SYSTEM \"" + secret.toUri() + "\">]>"
+                + "<contactManager><contacts><contact id=\"4\"><name>&secret;</name><notes>n</notes></contact></contacts>"
+                + "<meetings/></contactManager>";
+        Files.write(file, xml.getBytes(StandardCharsets.UTF_8));
+
+        try {
+            ContactManagerImpl cm = ContactManagerImpl.load(file);
+            assertTrue(cm.getContacts("secret").isEmpty());
+        } catch (IOException e) {
+            //refusing the entity is fine as well
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectUnknownParticipant() throws IOException {
+        String xml = "<contactManager><contacts/><meetings><meeting id=\"7\"><date>2000-01-01T00:00:00Z</date>"
+                + "<participants><contact id=\"4\"/></participants></meeting></meetings></contactManager>";
+        Files.write(file, xml.getBytes(StandardCharsets.UTF_8));
+
+        ContactManagerImpl.load(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectMalformedFile() throws IOException {
+        Files.write(file, "<contactManager><contacts>".getBytes(StandardCharsets.UTF_8));
+
+        ContactManagerImpl.load(file);
+    }
+
+    @Test
+    public void shouldRejectContactWithoutName() throws IOException {
+        assertRejected("<contactManager><contacts><contact id=\"4\"><notes>n</notes></contact></contacts></contactManager>");
+    }
+
+    @Test
+    public void shouldRejectContactWithEmptyName() throws IOException {
+        assertRejected("<contactManager><contacts><contact id=\"4\"><name></name></contact></contacts></contactManager>");
+    }
+
+    @Test
+    public void shouldRejectInvalidId() throws IOException {
+        assertRejected("<contactManager><contacts><contact id=\"four\"><name>Dan</name></contact></contacts></contactManager>");
+    }
+
+    @Test
+    public void shouldRejectInvalidDate() throws IOException {
+        assertRejected("<contactManager><contacts/><meetings><meeting id=\"7\"><date>yesterday</date></meeting></meetings></contactManager>");
+    }
+
+    private void assertRejected(String xml) throws IOException {
+        Files.write(file, xml.getBytes(StandardCharsets.UTF_8));
+        try {
+            ContactManagerImpl.load(file);
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getCause(), instanceOf(XMLStreamException.class));
+        }
+    }
+}